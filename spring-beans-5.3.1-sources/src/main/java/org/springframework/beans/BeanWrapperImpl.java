@@ -17,12 +17,15 @@
 package org.springframework.beans;
 
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.convert.Property;
@@ -269,9 +272,16 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 
 		private final PropertyDescriptor pd;
 
+		@Nullable
+		private final PropertyMethodAccessor methodAccessor;
+
 		public BeanPropertyHandler(PropertyDescriptor pd) {
 			super(pd.getPropertyType(), pd.getReadMethod() != null, pd.getWriteMethod() != null);
 			this.pd = pd;
+			// Generated accessors don't run with the bean wrapper's access control context
+			this.methodAccessor = (pd instanceof GenericTypeAwarePropertyDescriptor &&
+					System.getSecurityManager() == null ?
+					((GenericTypeAwarePropertyDescriptor) pd).getMethodAccessor() : null);
 		}
 
 		@Override
@@ -281,7 +291,12 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 
 		@Override
 		public TypeDescriptor toTypeDescriptor() {
-			return new TypeDescriptor(property(this.pd));
+			CachedIntrospectionResults cachedIntrospectionResults = getCachedIntrospectionResults();
+			TypeDescriptor td = cachedIntrospectionResults.getTypeDescriptor(this.pd);
+			if (td == null) {
+				td = cachedIntrospectionResults.addTypeDescriptor(this.pd, new TypeDescriptor(property(this.pd)));
+			}
+			return td;
 		}
 
 		@Override
@@ -294,6 +309,16 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 		@Nullable
 		public Object getValue() throws Exception {
 			Method readMethod = this.pd.getReadMethod();
+			Function<Object, Object> reader = (this.methodAccessor != null ? this.methodAccessor.getReader() : null);
+			if (reader != null) {
+				try {
+					return reader.apply(getWrappedInstance());
+				}
+				catch (Throwable ex) {
+					// Thrown by the read method itself, as reported by Method.invoke
+					throw new InvocationTargetException(ex);
+				}
+			}
 			if (System.getSecurityManager() != null) {
 				AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
 					ReflectionUtils.makeAccessible(readMethod);
@@ -318,6 +343,17 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 			Method writeMethod = (this.pd instanceof GenericTypeAwarePropertyDescriptor ?
 					((GenericTypeAwarePropertyDescriptor) this.pd).getWriteMethodForActualAccess() :
 					this.pd.getWriteMethod());
+			BiConsumer<Object, Object> writer = (this.methodAccessor != null ? this.methodAccessor.getWriter() : null);
+			if (writer != null && this.methodAccessor.isWritable(value)) {
+				try {
+					writer.accept(getWrappedInstance(), value);
+					return;
+				}
+				catch (Throwable ex) {
+					// Thrown by the write method itself, as reported by Method.invoke
+					throw new InvocationTargetException(ex);
+				}
+			}
 			if (System.getSecurityManager() != null) {
 				AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
 					ReflectionUtils.makeAccessible(writeMethod);
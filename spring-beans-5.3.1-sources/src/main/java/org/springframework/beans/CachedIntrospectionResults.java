@@ -126,6 +126,20 @@ public final class CachedIntrospectionResults {
 	// 202012023 指示Spring在调用JavaBeans{@link Introspector}时使用{@link Introspector}模式的系统属性：spring.beaninfo.ignore，值为“true”时跳过对{@code beaninfo}类的搜索
 	public static final String IGNORE_BEANINFO_PROPERTY_NAME = "spring.beaninfo.ignore";
 
+	/**
+	 * System property that instructs Spring to generate direct accessors for the
+	 * read and write methods of frequently accessed bean properties:
+	 * "spring.beaninfo.generate-accessors", with a value of "true" replacing
+	 * {@link Method#invoke} calls with {@link java.lang.invoke.LambdaMetafactory}
+	 * generated functions, e.g. for properties that are bound from request
+	 * parameters on every request.
+	 * <p>The default is "false". Accessors are only generated for public methods
+	 * of public classes that are visible to the Spring class loader, and are
+	 * cached along with the introspection results of their bean class.
+	 * @since 5.3.2
+	 */
+	public static final String GENERATE_ACCESSORS_PROPERTY_NAME = "spring.beaninfo.generate-accessors";
+
 	private static final PropertyDescriptor[] EMPTY_PROPERTY_DESCRIPTOR_ARRAY = {};
 
 
@@ -63,6 +63,9 @@ final class GenericTypeAwarePropertyDescriptor extends PropertyDescriptor {
 	@Nullable
 	private final Class<?> propertyEditorClass;
 
+	@Nullable
+	private final PropertyMethodAccessor methodAccessor;
+
 
 	public GenericTypeAwarePropertyDescriptor(Class<?> beanClass, String propertyName,
 			@Nullable Method readMethod, @Nullable Method writeMethod,
@@ -114,6 +117,8 @@ final class GenericTypeAwarePropertyDescriptor extends PropertyDescriptor {
 		}
 
 		this.propertyEditorClass = propertyEditorClass;
+		this.methodAccessor = (PropertyMethodAccessor.enabled ?
+				new PropertyMethodAccessor(this.readMethod, this.writeMethod) : null);
 	}
 
 
@@ -145,6 +150,16 @@ final class GenericTypeAwarePropertyDescriptor extends PropertyDescriptor {
 		return this.writeMethod;
 	}
 
+	/**
+	 * Return the generated accessor for the read and write method,
+	 * or {@code null} if accessor generation is not enabled.
+	 * @since 5.3.2
+	 */
+	@Nullable
+	PropertyMethodAccessor getMethodAccessor() {
+		return this.methodAccessor;
+	}
+
 	public MethodParameter getWriteMethodParameter() {
 		Assert.state(this.writeMethodParameter != null, "No write method available");
 		return this.writeMethodParameter;
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Direct accessors for the read and write method of a bean property, generated
+ * through the {@link LambdaMetafactory} once the property has been accessed
+ * a number of times, so that hot properties such as those bound from request
+ * parameters are read and written without going through {@link Method#invoke}.
+ *
+ * <p>Only generated when enabled through the
+ * {@value CachedIntrospectionResults#GENERATE_ACCESSORS_PROPERTY_NAME} property,
+ * and only for public methods of public classes that are visible to the
+ * Spring class loader. Other properties keep using reflection.
+ *
+ * @since 5.3.2
+ * @see GenericTypeAwarePropertyDescriptor#getMethodAccessor()
+ */
+final class PropertyMethodAccessor {
+
+	/**
+	 * Whether accessor generation is enabled.
+	 */
+	static final boolean enabled = SpringProperties.getFlag(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME);
+
+	/**
+	 * The number of accesses through reflection after which an accessor is
+	 * generated, in line with the inflation threshold of {@link Method#invoke}.
+	 */
+	private static final int GENERATION_THRESHOLD = 16;
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private static final Function<Object, Object> NO_READER = target -> null;
+
+	private static final BiConsumer<Object, Object> NO_WRITER = (target, value) -> {};
+
+	private static final Log logger = LogFactory.getLog(PropertyMethodAccessor.class);
+
+
+	@Nullable
+	private final Method readMethod;
+
+	@Nullable
+	private final Method writeMethod;
+
+	private int readCount;
+
+	private int writeCount;
+
+	@Nullable
+	private volatile Function<Object, Object> reader;
+
+	@Nullable
+	private volatile BiConsumer<Object, Object> writer;
+
+
+	PropertyMethodAccessor(@Nullable Method readMethod, @Nullable Method writeMethod) {
+		this.readMethod = readMethod;
+		this.writeMethod = writeMethod;
+	}
+
+
+	/**
+	 * Return the generated reader for the property, or {@code null} if the
+	 * read method is to be invoked through reflection.
+	 */
+	@Nullable
+	Function<Object, Object> getReader() {
+		Function<Object, Object> reader = this.reader;
+		if (reader == null) {
+			// Unsynchronized counting: an occasional lost update merely delays generation
+			if (this.readMethod == null || ++this.readCount < GENERATION_THRESHOLD) {
+				return null;
+			}
+			reader = generateReader(this.readMethod);
+			this.reader = reader;
+		}
+		return (reader != NO_READER ? reader : null);
+	}
+
+	/**
+	 * Return the generated writer for the property, or {@code null} if the
+	 * write method is to be invoked through reflection.
+	 */
+	@Nullable
+	BiConsumer<Object, Object> getWriter() {
+		BiConsumer<Object, Object> writer = this.writer;
+		if (writer == null) {
+			if (this.writeMethod == null || ++this.writeCount < GENERATION_THRESHOLD) {
+				return null;
+			}
+			writer = generateWriter(this.writeMethod);
+			this.writer = writer;
+		}
+		return (writer != NO_WRITER ? writer : null);
+	}
+
+	/**
+	 * Determine whether the given value can be passed to the generated writer:
+	 * values that {@link Method#invoke} would reject are left to reflection
+	 * in order to fail in the same way.
+	 */
+	boolean isWritable(@Nullable Object value) {
+		Class<?> parameterType = this.writeMethod.getParameterTypes()[0];
+		return (value != null ? ClassUtils.isAssignableValue(parameterType, value) : !parameterType.isPrimitive());
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> generateReader(Method readMethod) {
+		if (!isAccessible(readMethod, readMethod.getReturnType())) {
+			return NO_READER;
+		}
+		try {
+			MethodHandle target = lookup.unreflect(readMethod);
+			MethodType instantiatedType = MethodType.methodType(
+					ClassUtils.resolvePrimitiveIfNecessary(readMethod.getReturnType()), readMethod.getDeclaringClass());
+			return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+					MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+					target, instantiatedType).getTarget().invokeExact();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate accessor for read method " + readMethod, ex);
+			}
+			return NO_READER;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<Object, Object> generateWriter(Method writeMethod) {
+		Class<?> parameterType = writeMethod.getParameterTypes()[0];
+		if (!isAccessible(writeMethod, parameterType)) {
+			return NO_WRITER;
+		}
+		try {
+			MethodHandle target = lookup.unreflect(writeMethod);
+			MethodType instantiatedType = MethodType.methodType(void.class,
+					writeMethod.getDeclaringClass(), ClassUtils.resolvePrimitiveIfNecessary(parameterType));
+			return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept",
+					MethodType.methodType(BiConsumer.class), MethodType.methodType(void.class, Object.class, Object.class),
+					target, instantiatedType).getTarget().invokeExact();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate accessor for write method " + writeMethod, ex);
+			}
+			return NO_WRITER;
+		}
+	}
+
+	/**
+	 * Determine whether a generated accessor can call the given method: the
+	 * accessor is defined in the Spring class loader, so the method and the
+	 * types in its signature need to be public and visible from there.
+	 */
+	private static boolean isAccessible(Method method, Class<?> propertyType) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ||
+				!Modifier.isPublic(declaringClass.getModifiers())) {
+			return false;
+		}
+		ClassLoader classLoader = PropertyMethodAccessor.class.getClassLoader();
+		return (ClassUtils.isVisible(declaringClass, classLoader) &&
+				(propertyType.isPrimitive() || ClassUtils.isVisible(propertyType, classLoader)));
+	}
+
+}
@@ -87,10 +87,13 @@ public class ConcurrentReferenceCachingMetadataReaderFactory extends SimpleMetad
 	}
 
 	/**
-	 * Clear the entire MetadataReader cache, removing all cached class metadata.
+	 * Clear the entire MetadataReader cache, removing all cached class metadata. Class
+	 * metadata read so far is saved to the persistent cache, if any.
+	 * @see #savePersistentCache()
 	 */
 	public void clearCache() {
 		this.cache.clear();
+		savePersistentCache();
 	}
 
 }
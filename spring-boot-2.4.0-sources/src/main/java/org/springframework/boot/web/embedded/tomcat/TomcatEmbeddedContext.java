@@ -17,6 +17,7 @@
 package org.springframework.boot.web.embedded.tomcat;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -33,6 +34,8 @@ import org.apache.catalina.core.StandardWrapper;
 import org.apache.catalina.session.ManagerBase;
 
 import org.springframework.boot.web.server.WebServerException;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.ClassUtils;
 
 /**
@@ -50,8 +53,14 @@ import org.springframework.util.ClassUtils;
 // 20201228 {@link TomcatWebServer}使用的Tomcat {@link StandardContext}支持延迟的初始化:  Context接口的标准实现, 每个子容器必须是Wrapper实现，才能处理针对特定servlet的请求
 class TomcatEmbeddedContext extends StandardContext {
 
+	private static final String LOAD_ON_STARTUP_PHASE = "loadOnStartup";
+
 	private TomcatStarter starter;
 
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+	private final Map<String, StartupStep> startupSteps = new HashMap<>();
+
 	@Override
 	public boolean loadOnStartup(Container[] children) {
 		// deferred until later (see deferredLoadOnStartup)
@@ -66,9 +75,47 @@ class TomcatEmbeddedContext extends StandardContext {
 		super.setManager(manager);
 	}
 
+	/**
+	 * Record each startup phase as a {@link StartupStep}. Phases that run concurrently
+	 * when {@link #setPhasedStartup phased startup} is enabled start when they are forked
+	 * and end when they are joined, so the steps are nested on the starting thread.
+	 */
+	@Override
+	protected void startupPhaseStarted(String phase) {
+		super.startupPhaseStarted(phase);
+		// The servlets are loaded later (see deferredLoadOnStartup)
+		if (!LOAD_ON_STARTUP_PHASE.equals(phase)) {
+			this.startupSteps.put(phase, startStartupStep(phase));
+		}
+	}
+
+	@Override
+	protected void startupPhaseCompleted(String phase, long durationNanos) {
+		StartupStep step = this.startupSteps.remove(phase);
+		if (step != null) {
+			super.startupPhaseCompleted(phase, durationNanos);
+			step.end();
+		}
+	}
+
 	void deferredLoadOnStartup() throws LifecycleException {
-		doWithThreadContextClassLoader(getLoader().getClassLoader(),
-				() -> getLoadOnStartupWrappers(findChildren()).forEach(this::load));
+		StartupStep step = startStartupStep(LOAD_ON_STARTUP_PHASE);
+		long start = System.nanoTime();
+		try {
+			doWithThreadContextClassLoader(getLoader().getClassLoader(),
+					() -> getLoadOnStartupWrappers(findChildren()).forEach(this::load));
+		}
+		finally {
+			super.startupPhaseCompleted(LOAD_ON_STARTUP_PHASE, System.nanoTime() - start);
+			step.end();
+		}
+	}
+
+	private StartupStep startStartupStep(String phase) {
+		StartupStep step = this.applicationStartup.start("spring.boot.webserver.tomcat.context.phase");
+		step.tag("context", getName());
+		step.tag("phase", phase);
+		return step;
 	}
 
 	private Stream<Wrapper> getLoadOnStartupWrappers(Container[] children) {
@@ -118,6 +165,10 @@ class TomcatEmbeddedContext extends StandardContext {
 		}
 	}
 
+	void setApplicationStartup(ApplicationStartup applicationStartup) {
+		this.applicationStartup = applicationStartup;
+	}
+
 	void setStarter(TomcatStarter starter) {
 		this.starter = starter;
 	}
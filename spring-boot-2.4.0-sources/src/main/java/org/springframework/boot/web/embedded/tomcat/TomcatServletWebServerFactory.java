@@ -70,8 +70,10 @@ import org.springframework.boot.web.server.MimeMappings;
 import org.springframework.boot.web.server.WebServer;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.server.AbstractServletWebServerFactory;
+import org.springframework.context.ApplicationStartupAware;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
@@ -107,7 +109,8 @@ import org.springframework.util.StringUtils;
  * @see TomcatWebServer
  */
 // 20201228 {@link AbstractServletWebServerFactory}，可用于创建{@link TomcatWebServer}。 可以使用Spring的{@link ServletContextInitializer}或Tomcat {@link LifecycleListener}进行初始化
-public class TomcatServletWebServerFactory extends AbstractServletWebServerFactory implements ConfigurableTomcatWebServerFactory, ResourceLoaderAware {
+public class TomcatServletWebServerFactory extends AbstractServletWebServerFactory
+		implements ConfigurableTomcatWebServerFactory, ResourceLoaderAware, ApplicationStartupAware {
 
 	private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -139,6 +142,8 @@ public class TomcatServletWebServerFactory extends AbstractServletWebServerFacto
 
 	private ResourceLoader resourceLoader;
 
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
 	// 20201228 使用的默认协议的类名称 eg: "org.apache.coyote.http11.Http11NioProtocol"
 	private String protocol = DEFAULT_PROTOCOL;
 
@@ -258,6 +263,7 @@ public class TomcatServletWebServerFactory extends AbstractServletWebServerFacto
 		// 20201228 {@link TomcatWebServer}使用的Tomcat {@link StandardContext}支持延迟的初始化:  Context接口的标准实现, 每个子容器必须是Wrapper实现，才能处理针对特定servlet的请求
 		// 20201228 eg: TomcatEmbeddedContext@xxxx: "TomcatEmbeddedContext[null]", state: LifecycleState@xxxx: "NEW"
 		TomcatEmbeddedContext context = new TomcatEmbeddedContext();
+		context.setApplicationStartup(this.applicationStartup);
 		if (documentRoot != null) {
 			context.setResources(new LoaderHidingResourceRoot(context));
 		}
@@ -548,6 +554,17 @@ public class TomcatServletWebServerFactory extends AbstractServletWebServerFacto
 		this.resourceLoader = resourceLoader;
 	}
 
+	/**
+	 * Set the {@link ApplicationStartup} used to record the phases of the start of the
+	 * Tomcat context.
+	 * @param applicationStartup the application startup to use
+	 */
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "ApplicationStartup must not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
 	@Override
 	public void setBaseDirectory(File baseDirectory) {
 		this.baseDirectory = baseDirectory;
@@ -41,6 +41,7 @@ import org.springframework.boot.web.server.Ssl;
 import org.springframework.boot.web.servlet.server.Encoding;
 import org.springframework.boot.web.servlet.server.Jsp;
 import org.springframework.boot.web.servlet.server.Session;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.util.unit.DataSize;
 
@@ -346,6 +347,13 @@ public class ServerProperties {
 		 */
 		private boolean useRelativeRedirects;
 
+		/**
+		 * Whether independent phases of the start of the context, such as opening the
+		 * jars, scanning for annotations and starting the session manager, should run
+		 * concurrently on Tomcat's utility executor.
+		 */
+		private boolean phasedStartup;
+
 		/**
 		 * Character encoding to use to decode the URI.
 		 */
@@ -411,6 +419,11 @@ public class ServerProperties {
 		 */
 		private final Remoteip remoteip = new Remoteip();
 
+		/**
+		 * Adaptive concurrency limit configuration.
+		 */
+		private final Concurrencylimit concurrencylimit = new Concurrencylimit();
+
 		@Deprecated
 		@DeprecatedConfigurationProperty(replacement = "server.tomcat.threads.max")
 		public int getMaxThreads() {
@@ -557,6 +570,14 @@ public class ServerProperties {
 			this.useRelativeRedirects = (useRelativeRedirects != null) ? useRelativeRedirects : false;
 		}
 
+		public boolean isPhasedStartup() {
+			return this.phasedStartup;
+		}
+
+		public void setPhasedStartup(boolean phasedStartup) {
+			this.phasedStartup = phasedStartup;
+		}
+
 		public Charset getUriEncoding() {
 			return this.uriEncoding;
 		}
@@ -641,6 +662,10 @@ public class ServerProperties {
 			return this.remoteip;
 		}
 
+		public Concurrencylimit getConcurrencylimit() {
+			return this.concurrencylimit;
+		}
+
 		/**
 		 * Tomcat access log properties.
 		 */
@@ -1050,6 +1075,124 @@ public class ServerProperties {
 
 		}
 
+		/**
+		 * Tomcat adaptive concurrency limit properties.
+		 */
+		public static class Concurrencylimit {
+
+			/**
+			 * Whether to limit the number of requests processed concurrently, adjusting
+			 * the limit from the observed request latency.
+			 */
+			private boolean enabled;
+
+			/**
+			 * Limit used until enough requests have been measured.
+			 */
+			private int initialLimit = 20;
+
+			/**
+			 * Lower bound of the limit.
+			 */
+			private int minLimit = 4;
+
+			/**
+			 * Upper bound of the limit.
+			 */
+			private int maxLimit = 1000;
+
+			/**
+			 * Number of completed requests per limit update.
+			 */
+			private int sampleWindow = 50;
+
+			/**
+			 * Ratio by which the latency of recent requests may exceed the long term
+			 * latency before the limit is reduced.
+			 */
+			private double rttTolerance = 1.5;
+
+			/**
+			 * Weight of a newly computed limit against the previous one.
+			 */
+			private double smoothing = 0.2;
+
+			/**
+			 * Share of the limit guaranteed to requests matching a URI pattern, for
+			 * instance `/api/*` or `*.jsp`. Requests matching no pattern are rejected
+			 * first once the limit is reached. Patterns containing characters other than
+			 * letters, digits and `-` must use bracket notation, for instance
+			 * `server.tomcat.concurrencylimit.partitions.[/api/*]=0.5`.
+			 */
+			private Map<String, Double> partitions = new LinkedHashMap<>();
+
+			public boolean isEnabled() {
+				return this.enabled;
+			}
+
+			public void setEnabled(boolean enabled) {
+				this.enabled = enabled;
+			}
+
+			public int getInitialLimit() {
+				return this.initialLimit;
+			}
+
+			public void setInitialLimit(int initialLimit) {
+				this.initialLimit = initialLimit;
+			}
+
+			public int getMinLimit() {
+				return this.minLimit;
+			}
+
+			public void setMinLimit(int minLimit) {
+				this.minLimit = minLimit;
+			}
+
+			public int getMaxLimit() {
+				return this.maxLimit;
+			}
+
+			public void setMaxLimit(int maxLimit) {
+				this.maxLimit = maxLimit;
+			}
+
+			public int getSampleWindow() {
+				return this.sampleWindow;
+			}
+
+			public void setSampleWindow(int sampleWindow) {
+				Assert.isTrue(sampleWindow > 0, "SampleWindow must be positive");
+				this.sampleWindow = sampleWindow;
+			}
+
+			public double getRttTolerance() {
+				return this.rttTolerance;
+			}
+
+			public void setRttTolerance(double rttTolerance) {
+				this.rttTolerance = rttTolerance;
+			}
+
+			public double getSmoothing() {
+				return this.smoothing;
+			}
+
+			public void setSmoothing(double smoothing) {
+				this.smoothing = smoothing;
+			}
+
+			public Map<String, Double> getPartitions() {
+				return this.partitions;
+			}
+
+			public void setPartitions(Map<String, Double> partitions) {
+				this.partitions = partitions;
+			}
+
+		}
+
 	}
 
 	/**
@@ -18,10 +18,13 @@ package org.springframework.boot.autoconfigure.web.embedded;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.catalina.Lifecycle;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.valves.AccessLogValve;
+import org.apache.catalina.valves.AdaptiveConcurrencyLimitValve;
 import org.apache.catalina.valves.ErrorReportValve;
 import org.apache.catalina.valves.RemoteIpValve;
 import org.apache.coyote.AbstractProtocol;
@@ -32,6 +35,7 @@ import org.springframework.boot.autoconfigure.web.ErrorProperties;
 import org.springframework.boot.autoconfigure.web.ErrorProperties.IncludeStacktrace;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.autoconfigure.web.ServerProperties.Tomcat.Accesslog;
+import org.springframework.boot.autoconfigure.web.ServerProperties.Tomcat.Concurrencylimit;
 import org.springframework.boot.autoconfigure.web.ServerProperties.Tomcat.Remoteip;
 import org.springframework.boot.cloud.CloudPlatform;
 import org.springframework.boot.context.properties.PropertyMapper;
@@ -99,6 +103,10 @@ public class TomcatWebServerFactoryCustomizer
 				.to((maxHttpFormPostSize) -> customizeMaxHttpFormPostSize(factory, maxHttpFormPostSize));
 		propertyMapper.from(tomcatProperties::getAccesslog).when(ServerProperties.Tomcat.Accesslog::isEnabled)
 				.to((enabled) -> customizeAccessLog(factory));
+		propertyMapper.from(tomcatProperties::getConcurrencylimit).when(Concurrencylimit::isEnabled)
+				.to((enabled) -> customizeConcurrencyLimit(factory));
+		propertyMapper.from(tomcatProperties::isPhasedStartup).whenTrue()
+				.to((phasedStartup) -> customizePhasedStartup(factory));
 		propertyMapper.from(tomcatProperties::getUriEncoding).whenNonNull().to(factory::setUriEncoding);
 		propertyMapper.from(tomcatProperties::getConnectionTimeout).whenNonNull()
 				.to((connectionTimeout) -> customizeConnectionTimeout(factory, connectionTimeout));
@@ -278,6 +286,34 @@ public class TomcatWebServerFactoryCustomizer
 		factory.addEngineValves(valve);
 	}
 
+	private void customizePhasedStartup(ConfigurableTomcatWebServerFactory factory) {
+		factory.addContextCustomizers((context) -> {
+			if (context instanceof StandardContext) {
+				((StandardContext) context).setPhasedStartup(true);
+			}
+		});
+	}
+
+	private void customizeConcurrencyLimit(ConfigurableTomcatWebServerFactory factory) {
+		Concurrencylimit concurrencyLimitConfig = this.serverProperties.getTomcat().getConcurrencylimit();
+		AdaptiveConcurrencyLimitValve valve = new AdaptiveConcurrencyLimitValve();
+		PropertyMapper map = PropertyMapper.get();
+		map.from(concurrencyLimitConfig.getInitialLimit()).to(valve::setInitialLimit);
+		map.from(concurrencyLimitConfig.getMinLimit()).to(valve::setMinLimit);
+		map.from(concurrencyLimitConfig.getMaxLimit()).to(valve::setMaxLimit);
+		map.from(concurrencyLimitConfig.getSampleWindow()).to(valve::setSampleWindow);
+		map.from(concurrencyLimitConfig.getRttTolerance()).to(valve::setRttTolerance);
+		map.from(concurrencyLimitConfig.getSmoothing()).to(valve::setSmoothing);
+		map.from(concurrencyLimitConfig.getPartitions()).when((partitions) -> !partitions.isEmpty())
+				.as(this::joinPartitions).to(valve::setPartitions);
+		factory.addEngineValves(valve);
+	}
+
+	private String joinPartitions(Map<String, Double> partitions) {
+		return partitions.entrySet().stream().map((entry) -> entry.getKey() + "=" + entry.getValue())
+				.collect(Collectors.joining(","));
+	}
+
 	private void customizeStaticResources(ConfigurableTomcatWebServerFactory factory) {
 		ServerProperties.Tomcat.Resource resource = this.serverProperties.getTomcat().getResource();
 		factory.addContextCustomizers((context) -> context.addLifecycleListener((event) -> {
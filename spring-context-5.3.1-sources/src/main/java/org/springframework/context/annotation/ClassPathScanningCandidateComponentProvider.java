@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +36,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.index.CandidateComponentsIndex;
 import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
@@ -48,6 +50,7 @@ import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
@@ -129,6 +132,9 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	@Nullable
 	private CandidateComponentsIndex componentsIndex;
 
+	private boolean parallelScanning =
+			SpringProperties.getFlag(PathMatchingResourcePatternResolver.PARALLEL_SCANNING_PROPERTY_NAME);
+
 	/**
 	 * Protected constructor for flexible subclass initialization.
 	 * @since 4.3.6
@@ -374,6 +380,31 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return this.metadataReaderFactory;
 	}
 
+	/**
+	 * Set whether to read the metadata of the scanned classes concurrently, in the
+	 * common {@link java.util.concurrent.ForkJoinPool}. The include and exclude
+	 * filters and conditions are still evaluated on the calling thread, in the same
+	 * order as for sequential scanning, so only the {@code MetadataReaderFactory}
+	 * needs to be thread-safe.
+	 * <p>Default is "false", unless the
+	 * {@value PathMatchingResourcePatternResolver#PARALLEL_SCANNING_PROPERTY_NAME}
+	 * property has been set to "true", which also makes a
+	 * {@link PathMatchingResourcePatternResolver} match resources concurrently.
+	 * @since 5.3.2
+	 * @see PathMatchingResourcePatternResolver#setParallelScanning
+	 */
+	public void setParallelScanning(boolean parallelScanning) {
+		this.parallelScanning = parallelScanning;
+	}
+
+	/**
+	 * Return whether the metadata of the scanned classes is read concurrently.
+	 * @since 5.3.2
+	 */
+	public boolean isParallelScanning() {
+		return this.parallelScanning;
+	}
+
 
 	/**
 	 * Scan the class path for candidate components.
@@ -506,45 +537,37 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
 					resolveBasePackage(basePackage) + '/' + this.resourcePattern;
 			Resource[] resources = getResourcePatternResolver().getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
-				}
-				if (resource.isReadable()) {
+			MetadataReader[] metadataReaders = new MetadataReader[resources.length];
+			if (this.parallelScanning && resources.length > 1) {
+				// Initialize the factory up front rather than lazily from several threads
+				MetadataReaderFactory metadataReaderFactory = getMetadataReaderFactory();
+				// Resolve annotation types against the ClassLoader of the calling thread
+				// rather than against the context ClassLoader of a pool thread
+				ClassLoader classLoader = getScanningClassLoader(metadataReaderFactory);
+				IntStream.range(0, resources.length).parallel().forEach(i -> {
+					Thread currentThread = Thread.currentThread();
+					ClassLoader threadContextClassLoader = currentThread.getContextClassLoader();
 					try {
-						MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setSource(resource);
-							if (isCandidateComponent(sbd)) {
-								if (debugEnabled) {
-									logger.debug("Identified candidate component class: " + resource);
-								}
-								candidates.add(sbd);
-							}
-							else {
-								if (debugEnabled) {
-									logger.debug("Ignored because not a concrete top-level class: " + resource);
-								}
+						currentThread.setContextClassLoader(classLoader);
+						try {
+							if (resources[i].isReadable()) {
+								metadataReaders[i] = metadataReaderFactory.getMetadataReader(resources[i]);
 							}
 						}
-						else {
-							if (traceEnabled) {
-								logger.trace("Ignored because not matching any filter: " + resource);
-							}
+						finally {
+							currentThread.setContextClassLoader(threadContextClassLoader);
 						}
 					}
 					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
-					}
-				}
-				else {
-					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
+						// Read again on the calling thread, failing there if need be
+						metadataReaders[i] = null;
 					}
+				});
+			}
+			for (int i = 0; i < resources.length; i++) {
+				ScannedGenericBeanDefinition result = scanCandidateComponent(resources[i], metadataReaders[i]);
+				if (result != null) {
+					candidates.add(result);
 				}
 			}
 		}
@@ -554,6 +577,68 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return candidates;
 	}
 
+	/**
+	 * Create a bean definition for the given class file if it is a candidate component.
+	 * @param resource the class file resource
+	 * @param metadataReader the metadata of the class if read concurrently before,
+	 * or {@code null} to read it now
+	 * @return the bean definition, or {@code null} if the class is not a candidate
+	 */
+	@Nullable
+	private ScannedGenericBeanDefinition scanCandidateComponent(Resource resource,
+			@Nullable MetadataReader metadataReader) {
+
+		if (logger.isTraceEnabled()) {
+			logger.trace("Scanning " + resource);
+		}
+		try {
+			if (metadataReader == null) {
+				if (!resource.isReadable()) {
+					if (logger.isTraceEnabled()) {
+						logger.trace("Ignored because not readable: " + resource);
+					}
+					return null;
+				}
+				metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
+			}
+			if (!isCandidateComponent(metadataReader)) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Ignored because not matching any filter: " + resource);
+				}
+				return null;
+			}
+			ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+			sbd.setSource(resource);
+			if (!isCandidateComponent(sbd)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignored because not a concrete top-level class: " + resource);
+				}
+				return null;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Identified candidate component class: " + resource);
+			}
+			return sbd;
+		}
+		catch (Throwable ex) {
+			throw new BeanDefinitionStoreException(
+					"Failed to read candidate component class: " + resource, ex);
+		}
+	}
+
+	/**
+	 * Determine the ClassLoader that the given factory resolves annotation types
+	 * against when called from the current thread.
+	 */
+	@Nullable
+	private static ClassLoader getScanningClassLoader(MetadataReaderFactory metadataReaderFactory) {
+		ClassLoader classLoader = null;
+		if (metadataReaderFactory instanceof SimpleMetadataReaderFactory) {
+			classLoader = ((SimpleMetadataReaderFactory) metadataReaderFactory).getResourceLoader().getClassLoader();
+		}
+		return (classLoader != null ? classLoader : Thread.currentThread().getContextClassLoader());
+	}
+
 
 	/**
 	 * Resolve the specified base package into a pattern specification for
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.function.Function;
 
 import org.springframework.core.SerializableTypeWrapper.FieldTypeProvider;
 import org.springframework.core.SerializableTypeWrapper.MethodParameterTypeProvider;
@@ -38,6 +39,7 @@ import org.springframework.core.SerializableTypeWrapper.TypeProvider;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentCacheMap;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
@@ -118,6 +120,19 @@ public class ResolvableType implements Serializable {
 	// 20201207 ResolvableType缓存
 	private static final ConcurrentReferenceHashMap<ResolvableType, ResolvableType> cache = new ConcurrentReferenceHashMap<>(256);
 
+	/**
+	 * Shared {@code ResolvableType} instances for plain classes, so that their
+	 * lazily resolved super types, interfaces and generics are only built once.
+	 */
+	private static final Map<Class<?>, ResolvableType> classTypeCache =
+			new ConcurrentCacheMap<>(256, Function.identity());
+
+	/**
+	 * Results of {@link #isAssignableFrom(ResolvableType)} between canonical types.
+	 */
+	private static final ConcurrentReferenceHashMap<AssignabilityKey, Boolean> assignabilityCache =
+			new ConcurrentReferenceHashMap<>(256);
+
 	/**
 	 * The underlying Java type being managed.
 	 */
@@ -165,6 +180,13 @@ public class ResolvableType implements Serializable {
 	@Nullable
 	private volatile ResolvableType[] generics;
 
+	/**
+	 * The shared instance that is equal to this type, used as a key for
+	 * memoized assignability checks, or {@code null} if not available.
+	 */
+	@Nullable
+	private transient ResolvableType canonical;
+
 	/**
 	 * Private constructor used to create a new {@link ResolvableType} for cache key purposes,
 	 * with no upfront resolution.
@@ -316,7 +338,7 @@ public class ResolvableType implements Serializable {
 	 */
 	// 20201207 确定是否可以从指定的其他类型分配此{@code ResolvableType}。
 	public boolean isAssignableFrom(Class<?> other) {
-		return isAssignableFrom(forClass(other), null);
+		return isAssignableFrom(forClass(other));
 	}
 
 	/**
@@ -342,7 +364,20 @@ public class ResolvableType implements Serializable {
 	 */
 	// 20201207 判断当前实例是否为指定类型分配的
 	public boolean isAssignableFrom(ResolvableType other) {
-		return isAssignableFrom(other, null);
+		Assert.notNull(other, "ResolvableType must not be null");
+		ResolvableType ourCanonical = this.canonical;
+		ResolvableType otherCanonical = other.canonical;
+		if (ourCanonical == null || otherCanonical == null) {
+			return isAssignableFrom(other, null);
+		}
+		// Equal types yield the same result, so only the shared instances need comparing
+		AssignabilityKey key = new AssignabilityKey(ourCanonical, otherCanonical);
+		Boolean result = assignabilityCache.get(key);
+		if (result == null) {
+			result = isAssignableFrom(other, null);
+			assignabilityCache.put(key, result);
+		}
+		return result;
 	}
 
 	// 20201207 确定是否可以从指定的其他类型分配此{@code ResolvableType}。
@@ -1243,7 +1278,17 @@ public class ResolvableType implements Serializable {
 	 */
 	// 20201202 为指定的{@link Class}返回{@link ResolvableType}，使用完整的泛型类型信息进行可分配性检查。例如：{@code ResolvableType.forClass(MyArrayList.class)}.
 	public static ResolvableType forClass(@Nullable Class<?> clazz) {
-		return new ResolvableType(clazz);
+		Class<?> key = (clazz != null ? clazz : Object.class);
+		ResolvableType type = classTypeCache.get(key);
+		if (type == null) {
+			type = new ResolvableType(key);
+			type.canonical = type;
+			ResolvableType existing = classTypeCache.putIfAbsent(key, type);
+			if (existing != null) {
+				type = existing;
+			}
+		}
+		return type;
 	}
 
 	/**
@@ -1698,7 +1743,12 @@ public class ResolvableType implements Serializable {
 		// 20201207 对于简单的类引用，请立即构建包装器-无需昂贵的解析度，因此不值得缓存...
 		if (type instanceof Class) {
 			// 20201207 构造ResolvableType类型并返回
-			return new ResolvableType(type, typeProvider, variableResolver, (ResolvableType) null);
+			ResolvableType classType = new ResolvableType(type, typeProvider, variableResolver, (ResolvableType) null);
+			if (variableResolver == null) {
+				// Only the class matters for assignability, regardless of the provider
+				classType.canonical = forClass((Class<?>) type);
+			}
+			return classType;
 		}
 
 		// Purge empty entries on access since we don't have a clean-up thread or the like.
@@ -1711,9 +1761,11 @@ public class ResolvableType implements Serializable {
 		ResolvableType cachedType = cache.get(resultType);
 		if (cachedType == null) {
 			cachedType = new ResolvableType(type, typeProvider, variableResolver, resultType.hash);
+			cachedType.canonical = cachedType;
 			cache.put(cachedType, cachedType);
 		}
 		resultType.resolved = cachedType.resolved;
+		resultType.canonical = cachedType;
 		return resultType;
 	}
 
@@ -1725,6 +1777,8 @@ public class ResolvableType implements Serializable {
 	public static void clearCache() {
 		// 20201210 清除ResolvableType缓存
 		cache.clear();
+		classTypeCache.clear();
+		assignabilityCache.clear();
 
 		// 20201210 清除序列化包装器缓存
 		SerializableTypeWrapper.cache.clear();
@@ -1875,6 +1929,42 @@ public class ResolvableType implements Serializable {
 	}
 
 
+	/**
+	 * Key for the {@link #assignabilityCache}, comparing canonical types by identity.
+	 */
+	private static final class AssignabilityKey {
+
+		private final ResolvableType type;
+
+		private final ResolvableType other;
+
+		private final int hash;
+
+		AssignabilityKey(ResolvableType type, ResolvableType other) {
+			this.type = type;
+			this.other = other;
+			this.hash = 31 * System.identityHashCode(type) + System.identityHashCode(other);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof AssignabilityKey)) {
+				return false;
+			}
+			AssignabilityKey otherKey = (AssignabilityKey) other;
+			return (this.type == otherKey.type && this.other == otherKey.other);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+
 	/**
 	 * Internal helper to handle bounds from {@link WildcardType WildcardTypes}.
 	 */
@@ -527,6 +527,10 @@ public abstract class AnnotatedElementUtils {
 				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
 			return element.isAnnotationPresent(annotationType);
 		}
+		// Presence of merged annotations indexed on first lookup?
+		if (MergedAnnotationIndex.isIndexable(element)) {
+			return MergedAnnotationIndex.get(element).isPresent(annotationType);
+		}
 		// Exhaustive retrieval of merged annotations...
 		return findAnnotations(element).isPresent(annotationType);
 	}
@@ -562,6 +566,9 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			Class<? extends Annotation> annotationType, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
+		if (MergedAnnotationIndex.isIndexable(element) && !MergedAnnotationIndex.get(element).isPresent(annotationType)) {
+			return null;
+		}
 		MergedAnnotation<?> mergedAnnotation = findAnnotations(element)
 				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared());
 		return getAnnotationAttributes(mergedAnnotation, classValuesAsString, nestedAnnotationsAsMap);
@@ -628,9 +635,18 @@ public abstract class AnnotatedElementUtils {
 				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
 			return element.getDeclaredAnnotation(annotationType);
 		}
+		// Merged annotation indexed on first lookup?
+		if (MergedAnnotationIndex.isIndexable(element)) {
+			return MergedAnnotationIndex.get(element).getMergedAnnotation(annotationType,
+					type -> findMergedAnnotation(findAnnotations(element), type));
+		}
 		// Exhaustive retrieval of merged annotations...
-		return findAnnotations(element)
-				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared())
+		return findMergedAnnotation(findAnnotations(element), annotationType);
+	}
+
+	@Nullable
+	private static <A extends Annotation> A findMergedAnnotation(MergedAnnotations annotations, Class<A> annotationType) {
+		return annotations.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared())
 				.synthesize(MergedAnnotation::isPresent).orElse(null);
 	}
 
@@ -654,6 +670,9 @@ public abstract class AnnotatedElementUtils {
 	 * @see #getAllMergedAnnotations(AnnotatedElement, Class)
 	 */
 	public static <A extends Annotation> Set<A> findAllMergedAnnotations(AnnotatedElement element, Class<A> annotationType) {
+		if (MergedAnnotationIndex.isIndexable(element) && !MergedAnnotationIndex.get(element).isPresent(annotationType)) {
+			return new LinkedHashSet<>();
+		}
 		return findAnnotations(element).stream(annotationType)
 				.sorted(highAggregateIndexesFirst())
 				.collect(MergedAnnotationCollectors.toAnnotationSet());
@@ -678,6 +697,9 @@ public abstract class AnnotatedElementUtils {
 	 * @see #findAllMergedAnnotations(AnnotatedElement, Class)
 	 */
 	public static Set<Annotation> findAllMergedAnnotations(AnnotatedElement element, Set<Class<? extends Annotation>> annotationTypes) {
+		if (MergedAnnotationIndex.isIndexable(element) && !MergedAnnotationIndex.get(element).isAnyPresent(annotationTypes)) {
+			return new LinkedHashSet<>();
+		}
 		return findAnnotations(element).stream()
 				.filter(MergedAnnotationPredicates.typeIn(annotationTypes))
 				.sorted(highAggregateIndexesFirst())
@@ -22,9 +22,10 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.springframework.lang.Nullable;
-import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentCacheMap;
 
 /**
  * 20201210
@@ -57,9 +58,11 @@ final class AnnotationTypeMappings {
 
 	private static final IntrospectionFailureLogger failureLogger = IntrospectionFailureLogger.DEBUG;
 
-	private static final Map<AnnotationFilter, Cache> standardRepeatablesCache = new ConcurrentReferenceHashMap<>();
+	private static final Map<AnnotationFilter, Cache> standardRepeatablesCache =
+			new ConcurrentCacheMap<>(16, Object::getClass);
 
-	private static final Map<AnnotationFilter, Cache> noRepeatablesCache = new ConcurrentReferenceHashMap<>();
+	private static final Map<AnnotationFilter, Cache> noRepeatablesCache =
+			new ConcurrentCacheMap<>(16, Object::getClass);
 
 
 	private final RepeatableContainers repeatableContainers;
@@ -239,7 +242,7 @@ final class AnnotationTypeMappings {
 		Cache(RepeatableContainers repeatableContainers, AnnotationFilter filter) {
 			this.repeatableContainers = repeatableContainers;
 			this.filter = filter;
-			this.mappings = new ConcurrentReferenceHashMap<>();
+			this.mappings = new ConcurrentCacheMap<>(64, Function.identity());
 		}
 
 		/**
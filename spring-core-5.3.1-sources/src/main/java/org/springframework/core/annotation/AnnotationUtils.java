@@ -1302,6 +1302,7 @@ public abstract class AnnotationUtils {
 
 		// 20201210 清除注解扫描程序
 		AnnotationsScanner.clearCache();
+		MergedAnnotationIndex.clearCache();
 	}
 
 
@@ -23,13 +23,14 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.Ordered;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
 import org.springframework.lang.Nullable;
-import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentCacheMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 
@@ -50,10 +51,11 @@ abstract class AnnotationsScanner {
 	private static final Method[] NO_METHODS = {};
 
 	// 20201208 每个源本地的所有注解缓存列表
-	private static final Map<AnnotatedElement, Annotation[]> declaredAnnotationCache = new ConcurrentReferenceHashMap<>(256);
+	private static final Map<AnnotatedElement, Annotation[]> declaredAnnotationCache =
+			new ConcurrentCacheMap<>(256, AnnotationsScanner::getOwnerClass);
 
 	private static final Map<Class<?>, Method[]> baseTypeMethodsCache =
-			new ConcurrentReferenceHashMap<>(256);
+			new ConcurrentCacheMap<>(256, Function.identity());
 
 
 	private AnnotationsScanner() {
@@ -596,6 +598,17 @@ abstract class AnnotationsScanner {
 		return true;
 	}
 
+	@Nullable
+	static Class<?> getOwnerClass(AnnotatedElement element) {
+		if (element instanceof Class) {
+			return (Class<?>) element;
+		}
+		if (element instanceof Member) {
+			return ((Member) element).getDeclaringClass();
+		}
+		return null;
+	}
+
 	static void clearCache() {
 		declaredAnnotationCache.clear();
 		baseTypeMethodsCache.clear();
@@ -21,10 +21,11 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
-import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentCacheMap;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -40,7 +41,8 @@ final class AttributeMethods {
 	static final AttributeMethods NONE = new AttributeMethods(null, new Method[0]);
 
 	// 20201208 注解类-属性访问方法缓存
-	private static final Map<Class<? extends Annotation>, AttributeMethods> cache = new ConcurrentReferenceHashMap<>();
+	private static final Map<Class<? extends Annotation>, AttributeMethods> cache =
+			new ConcurrentCacheMap<>(64, Function.identity());
 
 	// 20201208 方法按名称排序器
 	private static final Comparator<Method> methodComparator = (m1, m2) -> {
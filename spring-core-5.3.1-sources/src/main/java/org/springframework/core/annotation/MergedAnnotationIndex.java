@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentCacheMap;
+
+/**
+ * Index of the annotation types that are present on a class or method with
+ * {@link SearchStrategy#TYPE_HIERARCHY find semantics}, including
+ * meta-annotations, built on first use for each element.
+ *
+ * <p>Allows {@link AnnotatedElementUtils} to answer presence checks without
+ * scanning the type hierarchy again and to return the merged annotation that
+ * was synthesized for a type by an earlier lookup, which makes repeated checks
+ * for the same element, as performed by annotation-driven bean post-processors,
+ * a matter of an array lookup.
+ *
+ * @since 5.3.2
+ * @see AnnotatedElementUtils#hasAnnotation
+ * @see AnnotatedElementUtils#findMergedAnnotation
+ */
+final class MergedAnnotationIndex {
+
+	private static final MergedAnnotationIndex NONE = new MergedAnnotationIndex(new Class<?>[0]);
+
+	private static final Map<AnnotatedElement, MergedAnnotationIndex> cache =
+			new ConcurrentCacheMap<>(256, AnnotationsScanner::getOwnerClass);
+
+
+	private final Class<?>[] annotationTypes;
+
+	private final AtomicReferenceArray<Annotation> mergedAnnotations;
+
+
+	private MergedAnnotationIndex(Class<?>[] annotationTypes) {
+		this.annotationTypes = annotationTypes;
+		this.mergedAnnotations = new AtomicReferenceArray<>(annotationTypes.length);
+	}
+
+
+	/**
+	 * Determine whether the given annotation type is present.
+	 */
+	boolean isPresent(Class<? extends Annotation> annotationType) {
+		return (indexOf(annotationType) >= 0);
+	}
+
+	/**
+	 * Determine whether any of the given annotation types is present.
+	 */
+	boolean isAnyPresent(Collection<Class<? extends Annotation>> annotationTypes) {
+		for (Class<? extends Annotation> annotationType : annotationTypes) {
+			if (isPresent(annotationType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the merged annotation of the given type, resolving it through the
+	 * given function on first access.
+	 * @param annotationType the annotation type to find
+	 * @param resolver the function that finds and synthesizes the annotation
+	 * @return the merged annotation, or {@code null} if not present
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<A extends Annotation> A getMergedAnnotation(Class<A> annotationType, Function<Class<A>, A> resolver) {
+		int index = indexOf(annotationType);
+		if (index < 0) {
+			return null;
+		}
+		Annotation merged = this.mergedAnnotations.get(index);
+		if (merged == null) {
+			merged = resolver.apply(annotationType);
+			if (merged == null) {
+				return null;
+			}
+			// Synthesized annotations are immutable: concurrent resolution is harmless
+			this.mergedAnnotations.lazySet(index, merged);
+		}
+		return (A) merged;
+	}
+
+	private int indexOf(Class<?> annotationType) {
+		Class<?>[] annotationTypes = this.annotationTypes;
+		for (int i = 0; i < annotationTypes.length; i++) {
+			if (annotationTypes[i] == annotationType) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Determine whether the given element can be indexed: classes and methods
+	 * have a stable identity and are looked up repeatedly.
+	 */
+	static boolean isIndexable(AnnotatedElement element) {
+		return (element instanceof Class || element instanceof Method);
+	}
+
+	/**
+	 * Return the index for the given class or method.
+	 * @see #isIndexable
+	 */
+	static MergedAnnotationIndex get(AnnotatedElement element) {
+		MergedAnnotationIndex index = cache.get(element);
+		if (index == null) {
+			index = build(element);
+			MergedAnnotationIndex existing = cache.putIfAbsent(element, index);
+			if (existing != null) {
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	private static MergedAnnotationIndex build(AnnotatedElement element) {
+		Class<?>[] annotationTypes = MergedAnnotations.from(
+				element, SearchStrategy.TYPE_HIERARCHY, RepeatableContainers.none()).stream()
+				.map(MergedAnnotation::getType)
+				.distinct()
+				.toArray(Class<?>[]::new);
+		return (annotationTypes.length > 0 ? new MergedAnnotationIndex(annotationTypes) : NONE);
+	}
+
+	static void clearCache() {
+		cache.clear();
+	}
+
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.springframework.core.DecoratingProxy;
 import org.springframework.core.ResolvableType;
@@ -46,6 +47,7 @@ import org.springframework.core.convert.converter.GenericConverter.ConvertiblePa
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentCacheMap;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.StringUtils;
 
@@ -78,7 +80,8 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	private final Converters converters = new Converters();
 
-	private final Map<ConverterCacheKey, GenericConverter> converterCache = new ConcurrentReferenceHashMap<>(64);
+	private final Map<TypeDescriptor, Map<TypeDescriptor, GenericConverter>> converterCache =
+			new ConcurrentReferenceHashMap<>(64);
 
 
 	// ConverterRegistry implementation
@@ -253,8 +256,8 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 */
 	@Nullable
 	protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
-		ConverterCacheKey key = new ConverterCacheKey(sourceType, targetType);
-		GenericConverter converter = this.converterCache.get(key);
+		Map<TypeDescriptor, GenericConverter> targetCache = this.converterCache.get(sourceType);
+		GenericConverter converter = (targetCache != null ? targetCache.get(targetType) : null);
 		if (converter != null) {
 			return (converter != NO_MATCH ? converter : null);
 		}
@@ -264,13 +267,12 @@ public class GenericConversionService implements ConfigurableConversionService {
 			converter = getDefaultConverter(sourceType, targetType);
 		}
 
-		if (converter != null) {
-			this.converterCache.put(key, converter);
-			return converter;
+		if (targetCache == null) {
+			targetCache = this.converterCache.computeIfAbsent(sourceType,
+					key -> new ConcurrentReferenceHashMap<>(4, 1));
 		}
-
-		this.converterCache.put(key, NO_MATCH);
-		return null;
+		targetCache.put(targetType, (converter != null ? converter : NO_MATCH));
+		return converter;
 	}
 
 	/**
@@ -445,57 +447,6 @@ public class GenericConversionService implements ConfigurableConversionService {
 	}
 
 
-	/**
-	 * Key for use with the converter cache.
-	 */
-	private static final class ConverterCacheKey implements Comparable<ConverterCacheKey> {
-
-		private final TypeDescriptor sourceType;
-
-		private final TypeDescriptor targetType;
-
-		public ConverterCacheKey(TypeDescriptor sourceType, TypeDescriptor targetType) {
-			this.sourceType = sourceType;
-			this.targetType = targetType;
-		}
-
-		@Override
-		public boolean equals(@Nullable Object other) {
-			if (this == other) {
-				return true;
-			}
-			if (!(other instanceof ConverterCacheKey)) {
-				return false;
-			}
-			ConverterCacheKey otherKey = (ConverterCacheKey) other;
-			return (this.sourceType.equals(otherKey.sourceType)) &&
-					this.targetType.equals(otherKey.targetType);
-		}
-
-		@Override
-		public int hashCode() {
-			return (this.sourceType.hashCode() * 29 + this.targetType.hashCode());
-		}
-
-		@Override
-		public String toString() {
-			return ("ConverterCacheKey [sourceType = " + this.sourceType +
-					", targetType = " + this.targetType + "]");
-		}
-
-		@Override
-		public int compareTo(ConverterCacheKey other) {
-			int result = this.sourceType.getResolvableType().toString().compareTo(
-					other.sourceType.getResolvableType().toString());
-			if (result == 0) {
-				result = this.targetType.getResolvableType().toString().compareTo(
-						other.targetType.getResolvableType().toString());
-			}
-			return result;
-		}
-	}
-
-
 	/**
 	 * Manages all converters registered with the service.
 	 */
@@ -505,6 +456,9 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 		private final Map<ConvertiblePair, ConvertersForPair> converters = new LinkedHashMap<>(36);
 
+		private final Map<Class<?>, Map<Class<?>, DispatchTable>> dispatchTables =
+				new ConcurrentCacheMap<>(64, Function.identity());
+
 		public void add(GenericConverter converter) {
 			Set<ConvertiblePair> convertibleTypes = converter.getConvertibleTypes();
 			if (convertibleTypes == null) {
@@ -518,6 +472,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 					convertersForPair.add(converter);
 				}
 			}
+			this.dispatchTables.clear();
 		}
 
 		private ConvertersForPair getMatchableConverters(ConvertiblePair convertiblePair) {
@@ -526,6 +481,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 		public void remove(Class<?> sourceType, Class<?> targetType) {
 			this.converters.remove(new ConvertiblePair(sourceType, targetType));
+			this.dispatchTables.clear();
 		}
 
 		/**
@@ -538,40 +494,55 @@ public class GenericConversionService implements ConfigurableConversionService {
 		 */
 		@Nullable
 		public GenericConverter find(TypeDescriptor sourceType, TypeDescriptor targetType) {
-			// Search the full type hierarchy
-			List<Class<?>> sourceCandidates = getClassHierarchy(sourceType.getType());
-			List<Class<?>> targetCandidates = getClassHierarchy(targetType.getType());
-			for (Class<?> sourceCandidate : sourceCandidates) {
-				for (Class<?> targetCandidate : targetCandidates) {
-					ConvertiblePair convertiblePair = new ConvertiblePair(sourceCandidate, targetCandidate);
-					GenericConverter converter = getRegisteredConverter(sourceType, targetType, convertiblePair);
-					if (converter != null) {
-						return converter;
-					}
-				}
-			}
-			return null;
+			return getDispatchTable(sourceType.getType(), targetType.getType()).find(sourceType, targetType);
 		}
 
-		@Nullable
-		private GenericConverter getRegisteredConverter(TypeDescriptor sourceType,
-				TypeDescriptor targetType, ConvertiblePair convertiblePair) {
-
-			// Check specifically registered converters
-			ConvertersForPair convertersForPair = this.converters.get(convertiblePair);
-			if (convertersForPair != null) {
-				GenericConverter converter = convertersForPair.getConverter(sourceType, targetType);
-				if (converter != null) {
-					return converter;
-				}
+		private DispatchTable getDispatchTable(Class<?> sourceType, Class<?> targetType) {
+			Map<Class<?>, DispatchTable> tables = this.dispatchTables.get(sourceType);
+			if (tables == null) {
+				tables = this.dispatchTables.computeIfAbsent(sourceType,
+						key -> new ConcurrentCacheMap<>(8, Function.identity()));
+			}
+			DispatchTable table = tables.get(targetType);
+			if (table == null) {
+				table = compileDispatchTable(sourceType, targetType);
+				tables.put(targetType, table);
 			}
-			// Check ConditionalConverters for a dynamic match
-			for (GenericConverter globalConverter : this.globalConverters) {
-				if (((ConditionalConverter) globalConverter).matches(sourceType, targetType)) {
-					return globalConverter;
+			return table;
+		}
+
+		/**
+		 * Compile the candidate converters for the given classes, in the order
+		 * in which they would be tried when working through the full type hierarchy.
+		 * <p>A converter that is reachable through several convertible pairs is
+		 * only included at its first position, since it is always asked to match
+		 * the same descriptors, and no candidates follow an unconditional converter.
+		 */
+		private DispatchTable compileDispatchTable(Class<?> sourceType, Class<?> targetType) {
+			List<Class<?>> sourceCandidates = getClassHierarchy(sourceType);
+			List<Class<?>> targetCandidates = getClassHierarchy(targetType);
+			Map<GenericConverter, Boolean> candidates = new LinkedHashMap<>();
+			for (Class<?> sourceCandidate : sourceCandidates) {
+				for (Class<?> targetCandidate : targetCandidates) {
+					// Check specifically registered converters
+					ConvertersForPair convertersForPair =
+							this.converters.get(new ConvertiblePair(sourceCandidate, targetCandidate));
+					if (convertersForPair != null) {
+						for (GenericConverter converter : convertersForPair.converters) {
+							boolean conditional = (converter instanceof ConditionalGenericConverter);
+							candidates.putIfAbsent(converter, conditional);
+							if (!conditional) {
+								return new DispatchTable(candidates);
+							}
+						}
+					}
+					// Check ConditionalConverters for a dynamic match
+					for (GenericConverter globalConverter : this.globalConverters) {
+						candidates.putIfAbsent(globalConverter, Boolean.TRUE);
+					}
 				}
 			}
-			return null;
+			return new DispatchTable(candidates);
 		}
 
 		/**
@@ -649,26 +620,49 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 
 	/**
-	 * Manages converters registered with a specific {@link ConvertiblePair}.
+	 * Immutable list of the candidate converters for a pair of classes.
 	 */
-	private static class ConvertersForPair {
+	private static final class DispatchTable {
 
-		private final Deque<GenericConverter> converters = new ArrayDeque<>(1);
+		private final GenericConverter[] converters;
 
-		public void add(GenericConverter converter) {
-			this.converters.addFirst(converter);
+		private final boolean[] conditional;
+
+		DispatchTable(Map<GenericConverter, Boolean> candidates) {
+			this.converters = new GenericConverter[candidates.size()];
+			this.conditional = new boolean[candidates.size()];
+			int i = 0;
+			for (Map.Entry<GenericConverter, Boolean> candidate : candidates.entrySet()) {
+				this.converters[i] = candidate.getKey();
+				this.conditional[i] = candidate.getValue();
+				i++;
+			}
 		}
 
 		@Nullable
-		public GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
-			for (GenericConverter converter : this.converters) {
-				if (!(converter instanceof ConditionalGenericConverter) ||
-						((ConditionalGenericConverter) converter).matches(sourceType, targetType)) {
+		GenericConverter find(TypeDescriptor sourceType, TypeDescriptor targetType) {
+			GenericConverter[] converters = this.converters;
+			for (int i = 0; i < converters.length; i++) {
+				GenericConverter converter = converters[i];
+				if (!this.conditional[i] || ((ConditionalConverter) converter).matches(sourceType, targetType)) {
 					return converter;
 				}
 			}
 			return null;
 		}
+	}
+
+
+	/**
+	 * Manages converters registered with a specific {@link ConvertiblePair}.
+	 */
+	private static class ConvertersForPair {
+
+		private final Deque<GenericConverter> converters = new ArrayDeque<>(1);
+
+		public void add(GenericConverter converter) {
+			this.converters.addFirst(converter);
+		}
 
 		@Override
 		public String toString() {
@@ -25,6 +25,7 @@ import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
@@ -48,9 +49,11 @@ import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SynchronousSink;
 
+import org.springframework.core.SpringProperties;
 import org.springframework.core.io.Resource;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 /**
  * Utility class for working with {@link DataBuffer DataBuffers}.
@@ -61,10 +64,29 @@ import org.springframework.util.Assert;
  */
 public abstract class DataBufferUtils {
 
+	/**
+	 * System property that specifies the file size, in bytes, from which
+	 * {@link #read(Resource, long, DataBufferFactory, int)} memory-maps file
+	 * resources rather than reading them into allocated buffers:
+	 * {@code "spring.buffer.map-threshold"}. Not set by default, which
+	 * disables memory-mapping.
+	 * <p>Note that a mapped file cannot be deleted on some operating systems
+	 * until its buffers have been garbage collected.
+	 * @since 5.3.2
+	 * @see #readMapped(Path, long, DataBufferFactory, int)
+	 */
+	public static final String MAP_THRESHOLD_PROPERTY_NAME = "spring.buffer.map-threshold";
+
 	private final static Log logger = LogFactory.getLog(DataBufferUtils.class);
 
 	private static final Consumer<DataBuffer> RELEASE_CONSUMER = DataBufferUtils::release;
 
+	private static final long mapThreshold = getMapThreshold();
+
+	private static final long MAX_MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+	private static final int TRANSFER_BUFFER_SIZE = 8192;
+
 
 	//---------------------------------------------------------------------
 	// Reading
@@ -184,11 +206,42 @@ public abstract class DataBufferUtils {
 				bufferFactory, bufferSize);
 	}
 
+	/**
+	 * Memory-map the given file and expose it as a {@code Flux} of read-only
+	 * {@code DataBuffer}s, starting at the given position. The buffers are
+	 * {@linkplain DataBufferFactory#wrap(ByteBuffer) wrapped} slices of the
+	 * mapped file, so no file content is copied into allocated buffers.
+	 * Closes the channel when the flux is terminated; the mapped memory is
+	 * released once the buffers have been garbage collected.
+	 * @param path the path of the file to map
+	 * @param position the position to start reading from
+	 * @param bufferFactory the factory to wrap the mapped slices with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @return a Flux of data buffers backed by the mapped file
+	 * @since 5.3.2
+	 */
+	public static Flux<DataBuffer> readMapped(
+			Path path, long position, DataBufferFactory bufferFactory, int bufferSize) {
+
+		Assert.notNull(path, "Path must not be null");
+		Assert.notNull(bufferFactory, "'dataBufferFactory' must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be > 0");
+
+		return Flux.using(() -> FileChannel.open(path, StandardOpenOption.READ),
+				channel -> Flux.generate(new MappedFileGenerator(channel, position, bufferFactory, bufferSize)),
+				DataBufferUtils::closeChannel);
+
+		// No doOnDiscard as operators used do not cache
+	}
+
 	/**
 	 * Read the given {@code Resource} into a {@code Flux} of {@code DataBuffer}s.
 	 * <p>If the resource is a file, it is read into an
 	 * {@code AsynchronousFileChannel} and turned to {@code Flux} via
-	 * {@link #readAsynchronousFileChannel(Callable, DataBufferFactory, int)} or else
+	 * {@link #readAsynchronousFileChannel(Callable, DataBufferFactory, int)},
+	 * or memory-mapped via {@link #readMapped} if it is at least as large as the
+	 * {@value #MAP_THRESHOLD_PROPERTY_NAME} property, or else
 	 * fall back to {@link #readByteChannel(Callable, DataBufferFactory, int)}.
 	 * Closes the channel when the flux is terminated.
 	 * @param resource the resource to read from
@@ -205,7 +258,9 @@ public abstract class DataBufferUtils {
 	 * starting at the given position.
 	 * <p>If the resource is a file, it is read into an
 	 * {@code AsynchronousFileChannel} and turned to {@code Flux} via
-	 * {@link #readAsynchronousFileChannel(Callable, DataBufferFactory, int)} or else
+	 * {@link #readAsynchronousFileChannel(Callable, DataBufferFactory, int)},
+	 * or memory-mapped via {@link #readMapped} if it is at least as large as the
+	 * {@value #MAP_THRESHOLD_PROPERTY_NAME} property, or else
 	 * fall back on {@link #readByteChannel(Callable, DataBufferFactory, int)}.
 	 * Closes the channel when the flux is terminated.
 	 * @param resource the resource to read from
@@ -220,6 +275,9 @@ public abstract class DataBufferUtils {
 		try {
 			if (resource.isFile()) {
 				File file = resource.getFile();
+				if (mapThreshold >= 0 && file.length() >= mapThreshold) {
+					return readMapped(file.toPath(), position, bufferFactory, bufferSize);
+				}
 				return readAsynchronousFileChannel(
 						() -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ),
 						position, bufferFactory, bufferSize);
@@ -232,6 +290,20 @@ public abstract class DataBufferUtils {
 		return position == 0 ? result : skipUntilByteCount(result, position);
 	}
 
+	private static long getMapThreshold() {
+		String threshold = SpringProperties.getProperty(MAP_THRESHOLD_PROPERTY_NAME);
+		if (!StringUtils.hasText(threshold)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(threshold.trim());
+		}
+		catch (NumberFormatException ex) {
+			logger.warn("Ignoring invalid value for " + MAP_THRESHOLD_PROPERTY_NAME + ": " + threshold);
+			return -1;
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Writing
@@ -373,6 +445,78 @@ public abstract class DataBufferUtils {
 		});
 	}
 
+	/**
+	 * Write the content of the given {@code Resource} to the given
+	 * {@code WritableByteChannel}. Does <strong>not</strong> close the channel.
+	 * @param resource the resource to write
+	 * @param channel the blocking channel to write to
+	 * @return a {@link Mono} that starts writing when subscribed to, and that
+	 * indicates completion or error
+	 * @since 5.3.2
+	 * @see #write(Resource, long, long, WritableByteChannel)
+	 */
+	public static Mono<Void> write(Resource resource, WritableByteChannel channel) {
+		return write(resource, 0, Long.MAX_VALUE, channel);
+	}
+
+	/**
+	 * Write a region of the given {@code Resource} to the given
+	 * {@code WritableByteChannel}. Does <strong>not</strong> close the channel.
+	 * <p>If the resource is a file, its content is transferred with
+	 * {@link FileChannel#transferTo}, which allows the operating system to copy
+	 * it into the target channel without passing it through buffers in the
+	 * JVM. Otherwise the resource is read and written buffer by buffer.
+	 * @param resource the resource to write
+	 * @param position the position in the resource to start writing from
+	 * @param count the maximum number of bytes to write
+	 * @param channel the blocking channel to write to
+	 * @return a {@link Mono} that starts writing when subscribed to, and that
+	 * indicates completion or error
+	 * @since 5.3.2
+	 */
+	public static Mono<Void> write(Resource resource, long position, long count, WritableByteChannel channel) {
+		Assert.notNull(resource, "Resource must not be null");
+		Assert.notNull(channel, "'channel' must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(count >= 0, "'count' must be >= 0");
+
+		return Mono.defer(() -> {
+			try {
+				if (resource.isFile()) {
+					File file = resource.getFile();
+					return Mono.fromCallable(() -> {
+						transferTo(file, position, count, channel);
+						return null;
+					});
+				}
+			}
+			catch (IOException ignore) {
+				// fallback to resource.readableChannel(), below
+			}
+			Flux<DataBuffer> in = readByteChannel(
+					resource::readableChannel, DefaultDataBufferFactory.sharedInstance, TRANSFER_BUFFER_SIZE);
+			in = takeUntilByteCount(position == 0 ? in : skipUntilByteCount(in, position), count);
+			return write(in, channel).doOnNext(DataBufferUtils::release).then();
+		});
+	}
+
+	private static void transferTo(File file, long position, long count, WritableByteChannel channel)
+			throws IOException {
+
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long remaining = Math.min(count, fileChannel.size() - position);
+			long current = position;
+			while (remaining > 0) {
+				long transferred = fileChannel.transferTo(current, remaining, channel);
+				if (transferred <= 0) {
+					break;
+				}
+				current += transferred;
+				remaining -= transferred;
+			}
+		}
+	}
+
 	private static Set<OpenOption> checkWriteOptions(OpenOption[] options) {
 		int length = options.length;
 		Set<OpenOption> result = new HashSet<>(length + 3);
@@ -895,6 +1039,57 @@ public abstract class DataBufferUtils {
 	}
 
 
+	private static class MappedFileGenerator implements Consumer<SynchronousSink<DataBuffer>> {
+
+		private final FileChannel channel;
+
+		private final DataBufferFactory dataBufferFactory;
+
+		private final int bufferSize;
+
+		private long position;
+
+		@Nullable
+		private ByteBuffer region;
+
+		public MappedFileGenerator(
+				FileChannel channel, long position, DataBufferFactory dataBufferFactory, int bufferSize) {
+
+			this.channel = channel;
+			this.position = position;
+			this.dataBufferFactory = dataBufferFactory;
+			this.bufferSize = bufferSize;
+		}
+
+		@Override
+		public void accept(SynchronousSink<DataBuffer> sink) {
+			try {
+				ByteBuffer region = this.region;
+				if (region == null || !region.hasRemaining()) {
+					long remaining = this.channel.size() - this.position;
+					if (remaining <= 0) {
+						sink.complete();
+						return;
+					}
+					// Map a bounded region at a time, rather than the remainder of a huge file
+					long size = Math.min(remaining, MAX_MAPPED_REGION_SIZE);
+					region = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+					this.region = region;
+					this.position += size;
+				}
+				int length = Math.min(region.remaining(), this.bufferSize);
+				ByteBuffer slice = region.slice();
+				slice.limit(length);
+				region.position(region.position() + length);
+				sink.next(this.dataBufferFactory.wrap(slice));
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		}
+	}
+
+
 	private static class ReadCompletionHandler implements CompletionHandler<Integer, DataBuffer> {
 
 		private final AsynchronousFileChannel channel;
@@ -61,7 +61,7 @@ public class DefaultDataBuffer implements DataBuffer {
 	private int writePosition;
 
 
-	private DefaultDataBuffer(DefaultDataBufferFactory dataBufferFactory, ByteBuffer byteBuffer) {
+	DefaultDataBuffer(DefaultDataBufferFactory dataBufferFactory, ByteBuffer byteBuffer) {
 		Assert.notNull(dataBufferFactory, "DefaultDataBufferFactory must not be null");
 		Assert.notNull(byteBuffer, "ByteBuffer must not be null");
 		this.dataBufferFactory = dataBufferFactory;
@@ -93,7 +93,7 @@ public class DefaultDataBuffer implements DataBuffer {
 		return this.byteBuffer;
 	}
 
-	private void setNativeBuffer(ByteBuffer byteBuffer) {
+	void setNativeBuffer(ByteBuffer byteBuffer) {
 		this.byteBuffer = byteBuffer;
 		this.capacity = byteBuffer.remaining();
 	}
@@ -190,7 +190,7 @@ public class DefaultDataBuffer implements DataBuffer {
 
 		if (newCapacity > oldCapacity) {
 			ByteBuffer oldBuffer = this.byteBuffer;
-			ByteBuffer newBuffer = allocate(newCapacity, oldBuffer.isDirect());
+			ByteBuffer newBuffer = allocateNativeBuffer(newCapacity, oldBuffer.isDirect());
 			oldBuffer.position(0).limit(oldBuffer.capacity());
 			newBuffer.position(0).limit(oldBuffer.capacity());
 			newBuffer.put(oldBuffer);
@@ -199,7 +199,7 @@ public class DefaultDataBuffer implements DataBuffer {
 		}
 		else if (newCapacity < oldCapacity) {
 			ByteBuffer oldBuffer = this.byteBuffer;
-			ByteBuffer newBuffer = allocate(newCapacity, oldBuffer.isDirect());
+			ByteBuffer newBuffer = allocateNativeBuffer(newCapacity, oldBuffer.isDirect());
 			if (readPosition < newCapacity) {
 				if (writePosition > newCapacity) {
 					writePosition = newCapacity;
@@ -228,7 +228,13 @@ public class DefaultDataBuffer implements DataBuffer {
 		return this;
 	}
 
-	private static ByteBuffer allocate(int capacity, boolean direct) {
+	/**
+	 * Allocate the native buffer to grow or shrink this buffer into.
+	 * @param capacity the capacity of the new buffer
+	 * @param direct whether the current buffer is direct
+	 * @since 5.3.2
+	 */
+	ByteBuffer allocateNativeBuffer(int capacity, boolean direct) {
 		return (direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
 	}
 
@@ -341,13 +347,23 @@ public class DefaultDataBuffer implements DataBuffer {
 			ByteBuffer slice = this.byteBuffer.slice();
 			// Explicit cast for compatibility with covariant return type on JDK 9's ByteBuffer
 			slice.limit(length);
-			return new SlicedDefaultDataBuffer(slice, this.dataBufferFactory, length);
+			return createSlice(slice, length);
 		}
 		finally {
 			buffer.position(oldPosition);
 		}
 	}
 
+	/**
+	 * Create a buffer for a slice of the native buffer of this buffer.
+	 * @param slice the native buffer slice
+	 * @param length the length of the slice
+	 * @since 5.3.2
+	 */
+	DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+		return new SlicedDefaultDataBuffer(slice, this.dataBufferFactory, length);
+	}
+
 	@Override
 	public ByteBuffer asByteBuffer() {
 		return asByteBuffer(this.readPosition, readableByteCount());
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Reference-counted {@link DefaultDataBuffer} whose heap memory is returned to
+ * its {@link PooledHeapDataBufferFactory} once the reference count drops to
+ * zero. Constructed using the {@link PooledHeapDataBufferFactory}.
+ *
+ * <p>Changing the {@linkplain #capacity(int) capacity} takes the new memory
+ * from the pool but leaves the previous memory to the garbage collector, since
+ * slices and {@link ByteBuffer} views may still refer to it.
+ *
+ * <p>{@linkplain #slice Slices} share the reference count of the buffer they
+ * were created from, in line with {@link NettyDataBuffer}.
+ *
+ * @since 5.3.2
+ * @see PooledHeapDataBufferFactory
+ */
+public class PooledHeapDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+
+	private final PooledHeapDataBufferFactory dataBufferFactory;
+
+	private final AtomicInteger refCount = new AtomicInteger(1);
+
+	@Nullable
+	private volatile PooledHeapDataBufferFactory.LeakTracker leakTracker;
+
+
+	PooledHeapDataBuffer(PooledHeapDataBufferFactory dataBufferFactory, ByteBuffer byteBuffer) {
+		super(dataBufferFactory, byteBuffer);
+		this.dataBufferFactory = dataBufferFactory;
+	}
+
+
+	void setLeakTracker(PooledHeapDataBufferFactory.LeakTracker leakTracker) {
+		this.leakTracker = leakTracker;
+	}
+
+	@Override
+	public PooledHeapDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.refCount.get() > 0);
+	}
+
+	@Override
+	public PooledHeapDataBuffer retain() {
+		while (true) {
+			int count = this.refCount.get();
+			if (count <= 0) {
+				throw new IllegalStateException("Cannot retain a released buffer: " + this);
+			}
+			if (this.refCount.compareAndSet(count, count + 1)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public boolean release() {
+		while (true) {
+			int count = this.refCount.get();
+			if (count <= 0) {
+				throw new IllegalStateException("Buffer has already been released: " + this);
+			}
+			if (this.refCount.compareAndSet(count, count - 1)) {
+				if (count == 1) {
+					deallocate();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	private void deallocate() {
+		PooledHeapDataBufferFactory.LeakTracker leakTracker = this.leakTracker;
+		if (leakTracker != null) {
+			leakTracker.close();
+			this.leakTracker = null;
+		}
+		ByteBuffer byteBuffer = getNativeBuffer();
+		// Make sure that the recycled memory is not accessed through this buffer anymore
+		readPosition(0);
+		writePosition(0);
+		setNativeBuffer(EMPTY_BUFFER);
+		this.dataBufferFactory.recycle(byteBuffer);
+	}
+
+	@Override
+	ByteBuffer allocateNativeBuffer(int capacity, boolean direct) {
+		if (!isAllocated()) {
+			throw new IllegalStateException("Cannot change the capacity of a released buffer: " + this);
+		}
+		return this.dataBufferFactory.allocateNativeBuffer(capacity);
+	}
+
+	@Override
+	DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+		return new SlicedPooledHeapDataBuffer(slice, this, length);
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("PooledHeapDataBuffer (r: %d, w: %d, c: %d, refCnt: %d)",
+				readPosition(), writePosition(), capacity(), this.refCount.get());
+	}
+
+
+	/**
+	 * Slice of a {@link PooledHeapDataBuffer} that shares its reference count.
+	 */
+	private static final class SlicedPooledHeapDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledHeapDataBuffer parent;
+
+		SlicedPooledHeapDataBuffer(ByteBuffer byteBuffer, PooledHeapDataBuffer parent, int length) {
+			super(parent.factory(), byteBuffer);
+			this.parent = parent;
+			writePosition(length);
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+			return new SlicedPooledHeapDataBuffer(slice, this.parent, length);
+		}
+	}
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link DataBufferFactory} that creates {@link PooledHeapDataBuffer PooledHeapDataBuffers}
+ * whose heap memory is recycled once they have been released, without
+ * requiring Netty. Can be used wherever a {@link DefaultDataBufferFactory} is
+ * accepted, e.g. through {@code ServletHttpHandlerAdapter.setDataBufferFactory}
+ * for reactive web applications on Tomcat or another Servlet container.
+ *
+ * <p>Memory is pooled in power-of-two size classes, from 256 bytes up to a
+ * configurable maximum; larger buffers are allocated and discarded as usual.
+ * Released memory of up to 16 KB is first kept in a small cache of the
+ * releasing thread, which is shared by all factories, and otherwise in one of
+ * several arenas of this factory that threads are spread across, each of which
+ * holds a bounded amount of memory per size class.
+ *
+ * <p>Buffers must be {@linkplain DataBufferUtils#release released} exactly
+ * once, after which they must not be used anymore. With
+ * {@linkplain #setLeakDetection leak detection} enabled, buffers that are
+ * garbage collected without having been released are logged along with the
+ * stack trace of their allocation.
+ *
+ * @since 5.3.2
+ * @see PooledHeapDataBuffer
+ */
+public class PooledHeapDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	private static final int MIN_SIZE_CLASS_SHIFT = 8;
+
+	private static final int ARENA_BYTES_PER_SIZE_CLASS = 1024 * 1024;
+
+	private static final int THREAD_CACHE_BYTES_PER_SIZE_CLASS = 16 * 1024;
+
+	private static final int THREAD_CACHE_SIZE_CLASSES = sizeClassIndex(THREAD_CACHE_BYTES_PER_SIZE_CLASS) + 1;
+
+	/**
+	 * Shared by all factories, so that the number of thread-local entries does
+	 * not grow with the number of factories.
+	 */
+	private static final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(ThreadCache::new);
+
+	private static final Log logger = LogFactory.getLog(PooledHeapDataBufferFactory.class);
+
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private volatile boolean leakDetection;
+
+	private final ReferenceQueue<PooledHeapDataBuffer> leakQueue = new ReferenceQueue<>();
+
+	private final Set<LeakTracker> leakTrackers = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Create a new {@code PooledHeapDataBufferFactory} with default settings.
+	 */
+	public PooledHeapDataBufferFactory() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_POOLED_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code PooledHeapDataBufferFactory}.
+	 * @param defaultInitialCapacity the capacity to use for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the capacity up to which buffer memory is pooled,
+	 * rounded up to the next power of two
+	 */
+	public PooledHeapDataBufferFactory(int defaultInitialCapacity, int maxPooledCapacity) {
+		super(false, defaultInitialCapacity);
+		Assert.isTrue(maxPooledCapacity >= (1 << MIN_SIZE_CLASS_SHIFT),
+				"'maxPooledCapacity' should be at least " + (1 << MIN_SIZE_CLASS_SHIFT));
+		Assert.isTrue(maxPooledCapacity <= (1 << 30), "'maxPooledCapacity' should be at most 2^30");
+		int sizeClasses = sizeClassIndex(maxPooledCapacity) + 1;
+		this.maxPooledCapacity = sizeClassCapacity(sizeClasses - 1);
+		this.arenas = new Arena[Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < this.arenas.length; i++) {
+			this.arenas[i] = new Arena(sizeClasses);
+		}
+	}
+
+
+	/**
+	 * Set whether to track allocated buffers so that buffers that have never
+	 * been released are logged at error level once they are garbage collected.
+	 * <p>Default is "false". Recording the allocation stack trace adds
+	 * considerable overhead, so this is meant for tests and troubleshooting.
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Return whether leak detection is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the capacity up to which buffer memory is pooled.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+
+	@Override
+	public PooledHeapDataBuffer allocateBuffer() {
+		return (PooledHeapDataBuffer) super.allocateBuffer();
+	}
+
+	@Override
+	public PooledHeapDataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' must not be negative");
+		PooledHeapDataBuffer dataBuffer = new PooledHeapDataBuffer(this, allocateNativeBuffer(initialCapacity));
+		if (this.leakDetection) {
+			reportLeaks();
+			dataBuffer.setLeakTracker(new LeakTracker(dataBuffer, this.leakQueue, this.leakTrackers));
+		}
+		return dataBuffer;
+	}
+
+
+	/**
+	 * Allocate a heap buffer of the given capacity, from pooled memory if possible.
+	 */
+	ByteBuffer allocateNativeBuffer(int capacity) {
+		if (capacity == 0 || capacity > this.maxPooledCapacity) {
+			return ByteBuffer.allocate(capacity);
+		}
+		int sizeClass = sizeClassIndex(capacity);
+		byte[] array = (sizeClass < THREAD_CACHE_SIZE_CLASSES ? threadCache.get().poll(sizeClass) : null);
+		if (array == null) {
+			array = getArena().poll(sizeClass);
+			if (array == null) {
+				array = new byte[sizeClassCapacity(sizeClass)];
+			}
+		}
+		// Expose the requested capacity only, like an unpooled buffer
+		return ByteBuffer.wrap(array, 0, capacity).slice();
+	}
+
+	/**
+	 * Return the memory of the given buffer to the pool, if it has been
+	 * allocated from pooled memory.
+	 */
+	void recycle(ByteBuffer byteBuffer) {
+		if (!byteBuffer.hasArray()) {
+			return;
+		}
+		byte[] array = byteBuffer.array();
+		int capacity = array.length;
+		if (capacity < (1 << MIN_SIZE_CLASS_SHIFT) || capacity > this.maxPooledCapacity ||
+				Integer.bitCount(capacity) != 1) {
+			return;
+		}
+		int sizeClass = sizeClassIndex(capacity);
+		if (sizeClass >= THREAD_CACHE_SIZE_CLASSES || !threadCache.get().offer(sizeClass, array)) {
+			getArena().offer(sizeClass, array);
+		}
+	}
+
+	private Arena getArena() {
+		Arena[] arenas = this.arenas;
+		return arenas[(int) (Thread.currentThread().getId() % arenas.length)];
+	}
+
+	private void reportLeaks() {
+		LeakTracker tracker;
+		while ((tracker = (LeakTracker) this.leakQueue.poll()) != null) {
+			if (this.leakTrackers.remove(tracker) && logger.isErrorEnabled()) {
+				logger.error("PooledHeapDataBuffer was garbage collected without having been released; " +
+						"see DataBufferUtils.release(DataBuffer). Allocated at:", tracker.allocationSite);
+			}
+		}
+	}
+
+	private static int sizeClassIndex(int capacity) {
+		int shift = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+		return Math.max(shift - MIN_SIZE_CLASS_SHIFT, 0);
+	}
+
+	private static int sizeClassCapacity(int sizeClass) {
+		return 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledHeapDataBufferFactory (maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Bounded stack of pooled arrays per size class, shared by the threads
+	 * that are mapped to it.
+	 */
+	private static final class Arena {
+
+		private final byte[][][] pools;
+
+		private final int[] counts;
+
+		Arena(int sizeClasses) {
+			this.pools = new byte[sizeClasses][][];
+			this.counts = new int[sizeClasses];
+			for (int i = 0; i < sizeClasses; i++) {
+				this.pools[i] = new byte[Math.max(ARENA_BYTES_PER_SIZE_CLASS / sizeClassCapacity(i), 4)][];
+			}
+		}
+
+		@Nullable
+		synchronized byte[] poll(int sizeClass) {
+			int count = this.counts[sizeClass];
+			if (count == 0) {
+				return null;
+			}
+			byte[][] pool = this.pools[sizeClass];
+			byte[] array = pool[--count];
+			pool[count] = null;
+			this.counts[sizeClass] = count;
+			return array;
+		}
+
+		synchronized void offer(int sizeClass, byte[] array) {
+			byte[][] pool = this.pools[sizeClass];
+			int count = this.counts[sizeClass];
+			if (count < pool.length) {
+				pool[count] = array;
+				this.counts[sizeClass] = count + 1;
+			}
+		}
+	}
+
+
+	/**
+	 * Small unsynchronized stack of pooled arrays per size class for the
+	 * current thread, avoiding contention for the most recently released memory.
+	 * Only holds the smaller size classes, so that its memory stays bounded.
+	 */
+	private static final class ThreadCache {
+
+		private final byte[][][] pools = new byte[THREAD_CACHE_SIZE_CLASSES][][];
+
+		private final int[] counts = new int[THREAD_CACHE_SIZE_CLASSES];
+
+		@Nullable
+		byte[] poll(int sizeClass) {
+			int count = this.counts[sizeClass];
+			if (count == 0) {
+				return null;
+			}
+			byte[][] pool = this.pools[sizeClass];
+			byte[] array = pool[--count];
+			pool[count] = null;
+			this.counts[sizeClass] = count;
+			return array;
+		}
+
+		boolean offer(int sizeClass, byte[] array) {
+			byte[][] pool = this.pools[sizeClass];
+			if (pool == null) {
+				// Allocated on first release only: most threads never release pooled buffers
+				pool = new byte[THREAD_CACHE_BYTES_PER_SIZE_CLASS / sizeClassCapacity(sizeClass)][];
+				this.pools[sizeClass] = pool;
+			}
+			int count = this.counts[sizeClass];
+			if (count == pool.length) {
+				return false;
+			}
+			pool[count] = array;
+			this.counts[sizeClass] = count + 1;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Weak reference to an allocated buffer that is enqueued if the buffer
+	 * becomes unreachable before it has been released.
+	 */
+	static final class LeakTracker extends WeakReference<PooledHeapDataBuffer> {
+
+		private final Throwable allocationSite = new Throwable("PooledHeapDataBuffer allocation");
+
+		private final Set<LeakTracker> trackers;
+
+		LeakTracker(PooledHeapDataBuffer dataBuffer, ReferenceQueue<PooledHeapDataBuffer> queue,
+				Set<LeakTracker> trackers) {
+
+			super(dataBuffer, queue);
+			this.trackers = trackers;
+			trackers.add(this);
+		}
+
+		void close() {
+			this.trackers.remove(this);
+			clear();
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.core.io.support;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
@@ -27,12 +28,15 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipException;
@@ -40,6 +44,7 @@ import java.util.zip.ZipException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.SpringProperties;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -233,6 +238,18 @@ import org.springframework.util.StringUtils;
 // 20201205 {@link ResourcePatternResolver}实现，能够将指定的资源位置路径解析为一个或多个匹配的资源。
 public class PathMatchingResourcePatternResolver implements ResourcePatternResolver {
 
+	/**
+	 * System property that instructs Spring to match resources in several root
+	 * directories and jar files, and in the subdirectories of a root directory,
+	 * concurrently: {@code "spring.scanning.parallel"}. Also applies to the
+	 * evaluation of type filters during component scanning.
+	 * <p>The default is "false", matching resources in the calling thread.
+	 * @since 5.3.2
+	 * @see #setParallelScanning
+	 */
+	public static final String PARALLEL_SCANNING_PROPERTY_NAME = "spring.scanning.parallel";
+
+
 	private static final Log logger = LogFactory.getLog(PathMatchingResourcePatternResolver.class);
 
 	@Nullable
@@ -256,6 +273,8 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	private boolean parallelScanning = SpringProperties.getFlag(PARALLEL_SCANNING_PROPERTY_NAME);
+
 	/**
 	 * 20201205
 	 * A. 使用DefaultResourceLoader创建一个新的PathMatchingResourcePatternResolver。
@@ -344,6 +363,28 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Set whether to match resources in different root directories and jar
+	 * files, and in different subdirectories of a root directory, concurrently
+	 * in the common {@link java.util.concurrent.ForkJoinPool}. The order of the
+	 * matching resources is the same as for sequential matching.
+	 * <p>Default is "false", unless the {@value #PARALLEL_SCANNING_PROPERTY_NAME}
+	 * property has been set to "true".
+	 * @since 5.3.2
+	 * @see #PARALLEL_SCANNING_PROPERTY_NAME
+	 */
+	public void setParallelScanning(boolean parallelScanning) {
+		this.parallelScanning = parallelScanning;
+	}
+
+	/**
+	 * Return whether resources are matched concurrently.
+	 * @since 5.3.2
+	 */
+	public boolean isParallelScanning() {
+		return this.parallelScanning;
+	}
+
 
 	@Override
 	public Resource getResource(String location) {
@@ -588,24 +629,26 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		String subPattern = locationPattern.substring(rootDirPath.length());
 		Resource[] rootDirResources = getResources(rootDirPath);
 		Set<Resource> result = new LinkedHashSet<>(16);
-		for (Resource rootDirResource : rootDirResources) {
-			rootDirResource = resolveRootDirResource(rootDirResource);
-			URL rootDirUrl = rootDirResource.getURL();
-			if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
-				URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
-				if (resolvedUrl != null) {
-					rootDirUrl = resolvedUrl;
-				}
-				rootDirResource = new UrlResource(rootDirUrl);
-			}
-			if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
-				result.addAll(VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher()));
+		if (this.parallelScanning && rootDirResources.length > 1) {
+			List<ForkJoinTask<Set<Resource>>> tasks = new ArrayList<>(rootDirResources.length);
+			for (Resource rootDirResource : rootDirResources) {
+				tasks.add(ForkJoinTask.adapt(() -> {
+					try {
+						return findRootDirMatchingResources(rootDirResource, subPattern);
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				}));
 			}
-			else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
-				result.addAll(doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern));
+			// Fork all root directories but collect their resources in the original order
+			for (ForkJoinTask<Set<Resource>> task : ForkJoinTask.invokeAll(tasks)) {
+				result.addAll(join(task));
 			}
-			else {
-				result.addAll(doFindPathMatchingFileResources(rootDirResource, subPattern));
+		}
+		else {
+			for (Resource rootDirResource : rootDirResources) {
+				result.addAll(findRootDirMatchingResources(rootDirResource, subPattern));
 			}
 		}
 		if (logger.isTraceEnabled()) {
@@ -614,6 +657,29 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return result.toArray(new Resource[0]);
 	}
 
+	private Set<Resource> findRootDirMatchingResources(Resource rootDirResource, String subPattern)
+			throws IOException {
+
+		rootDirResource = resolveRootDirResource(rootDirResource);
+		URL rootDirUrl = rootDirResource.getURL();
+		if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
+			URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
+			if (resolvedUrl != null) {
+				rootDirUrl = resolvedUrl;
+			}
+			rootDirResource = new UrlResource(rootDirUrl);
+		}
+		if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
+			return VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher());
+		}
+		else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
+			return doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern);
+		}
+		else {
+			return doFindPathMatchingFileResources(rootDirResource, subPattern);
+		}
+	}
+
 	/**
 	 * Determine the root directory for the given location.
 	 * <p>Used for determining the starting point for file matching,
@@ -876,6 +942,9 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 	/**
 	 * Recursively retrieve files that match the given pattern,
 	 * adding them to the given result list.
+	 * <p>In {@linkplain #setParallelScanning parallel} mode, the subdirectories
+	 * of the given directory are searched concurrently, each with a recursive
+	 * call of this method.
 	 * @param fullPattern the pattern to match against,
 	 * with prepended root directory path
 	 * @param dir the current directory
@@ -887,9 +956,17 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			logger.trace("Searching directory [" + dir.getAbsolutePath() +
 					"] for files matching pattern [" + fullPattern + "]");
 		}
-		for (File content : listDirectory(dir)) {
+		File[] contents = listDirectory(dir);
+		ForkJoinTask<Set<File>>[] subdirTasks = (this.parallelScanning ? forkSubdirectories(fullPattern, contents) : null);
+		for (int i = 0; i < contents.length; i++) {
+			File content = contents[i];
 			String currPath = StringUtils.replace(content.getAbsolutePath(), File.separator, "/");
-			if (content.isDirectory() && getPathMatcher().matchStart(fullPattern, currPath + "/")) {
+			if (this.parallelScanning) {
+				if (subdirTasks != null && subdirTasks[i] != null) {
+					result.addAll(join(subdirTasks[i]));
+				}
+			}
+			else if (content.isDirectory() && getPathMatcher().matchStart(fullPattern, currPath + "/")) {
 				if (!content.canRead()) {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Skipping subdirectory [" + dir.getAbsolutePath() +
@@ -906,6 +983,58 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Fork a search for matching files in each readable subdirectory that the
+	 * given pattern may match files in.
+	 * @return the tasks, indexed like the given directory contents, or
+	 * {@code null} if there is no subdirectory to search
+	 */
+	@Nullable
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private ForkJoinTask<Set<File>>[] forkSubdirectories(String fullPattern, File[] contents) {
+		ForkJoinTask<Set<File>>[] tasks = null;
+		for (int i = 0; i < contents.length; i++) {
+			File content = contents[i];
+			if (content.isDirectory() && getPathMatcher().matchStart(fullPattern,
+					StringUtils.replace(content.getAbsolutePath(), File.separator, "/") + "/")) {
+				if (!content.canRead()) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Skipping subdirectory [" + content.getAbsolutePath() +
+								"] because the application is not allowed to read the directory");
+					}
+					continue;
+				}
+				if (tasks == null) {
+					tasks = new ForkJoinTask[contents.length];
+				}
+				tasks[i] = ForkJoinTask.adapt(() -> {
+					Set<File> subdirResult = new LinkedHashSet<>(8);
+					try {
+						doRetrieveMatchingFiles(fullPattern, content, subdirResult);
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+					return subdirResult;
+				}).fork();
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Wait for the given task to complete and return its result, rethrowing
+	 * any {@link IOException} that it failed with.
+	 */
+	private static <T> T join(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.join();
+		}
+		catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
 	/**
 	 * Determine a sorted list of files in the given directory.
 	 * @param dir the directory to introspect
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that records ended steps in a
+ * fixed-size ring buffer, overwriting the oldest steps once it is full.
+ *
+ * <p>This variant is designed to be left enabled in production: steps are
+ * stored as primitive values with interned step names rather than as step
+ * objects, recording takes no locks, and memory usage is bounded by the
+ * configured capacity regardless of the number of steps.
+ *
+ * <p>The recorded steps can be obtained at any time as a {@link StartupRecording},
+ * which can be written as a JSON timeline or {@linkplain StartupRecording#getSummaries()
+ * summarized} to find the steps that contribute most to the startup time.
+ *
+ * <p>The parent of a step is the step that was most recently started and not
+ * yet ended on the same thread.
+ *
+ * @since 5.3.2
+ * @see StartupRecording
+ */
+public class RingBufferApplicationStartup implements ApplicationStartup {
+
+	/**
+	 * The default number of steps kept by the ring buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	private static final int ID = 0;
+
+	private static final int PARENT_ID = 1;
+
+	private static final int NAME = 2;
+
+	private static final int START_TIME = 3;
+
+	private static final int END_TIME = 4;
+
+	private static final int STRIDE = 5;
+
+	private static final String[] NO_TAGS = new String[0];
+
+
+	private final Instant startTime;
+
+	private final long startNanoTime;
+
+	private final int mask;
+
+	private final AtomicLongArray steps;
+
+	private final AtomicReferenceArray<String[]> tags;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicLong stepIds = new AtomicLong();
+
+	private final ThreadLocal<RingBufferStartupStep> currentStep = new ThreadLocal<>();
+
+	private final Map<String, Integer> nameIndices = new ConcurrentHashMap<>(32);
+
+	private volatile String[] names = new String[0];
+
+
+	/**
+	 * Create a new {@code RingBufferApplicationStartup} with the
+	 * {@linkplain #DEFAULT_CAPACITY default capacity}.
+	 */
+	public RingBufferApplicationStartup() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code RingBufferApplicationStartup}.
+	 * @param capacity the number of steps to keep, rounded up to the next power of two
+	 */
+	public RingBufferApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be positive");
+		Assert.isTrue(capacity <= (1 << 24), "Capacity must not exceed 2^24");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.startTime = Instant.now();
+		this.startNanoTime = System.nanoTime();
+		this.mask = size - 1;
+		this.steps = new AtomicLongArray(size * STRIDE);
+		this.tags = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+	}
+
+
+	/**
+	 * Return the number of steps that the ring buffer keeps.
+	 */
+	public int getCapacity() {
+		return this.mask + 1;
+	}
+
+	@Override
+	public StartupStep start(String name) {
+		Assert.notNull(name, "Name must not be null");
+		RingBufferStartupStep parent = this.currentStep.get();
+		RingBufferStartupStep step = new RingBufferStartupStep(
+				this.stepIds.incrementAndGet(), parent, internName(name), System.nanoTime());
+		this.currentStep.set(step);
+		return step;
+	}
+
+	/**
+	 * Return a snapshot of the steps that are currently held by the ring buffer,
+	 * in the order in which they ended. Steps that are concurrently overwritten
+	 * while the snapshot is taken are left out.
+	 */
+	public StartupRecording getRecording() {
+		long end = this.sequence.get();
+		long begin = Math.max(end - getCapacity(), 0);
+		// Names are interned when steps start, so all names up to 'end' are known
+		String[] names = this.names;
+		List<StartupRecording.RecordedStep> recorded = new ArrayList<>((int) (end - begin));
+		for (long seq = begin; seq < end; seq++) {
+			int slot = (int) (seq & this.mask);
+			long published = this.sequences.get(slot);
+			if (published != seq + 1) {
+				continue;
+			}
+			int offset = slot * STRIDE;
+			long id = this.steps.get(offset + ID);
+			long parentId = this.steps.get(offset + PARENT_ID);
+			int nameIndex = (int) this.steps.get(offset + NAME);
+			long startTime = this.steps.get(offset + START_TIME);
+			long endTime = this.steps.get(offset + END_TIME);
+			String[] tags = this.tags.get(slot);
+			if (this.sequences.get(slot) != published) {
+				// Overwritten while reading
+				continue;
+			}
+			recorded.add(new StartupRecording.RecordedStep(id, (parentId != 0 ? parentId : null),
+					names[nameIndex], startTime - this.startNanoTime, endTime - startTime, tags));
+		}
+		return new StartupRecording(this.startTime, recorded, begin);
+	}
+
+	private int internName(String name) {
+		Integer index = this.nameIndices.get(name);
+		if (index != null) {
+			return index;
+		}
+		synchronized (this.nameIndices) {
+			index = this.nameIndices.get(name);
+			if (index == null) {
+				String[] names = Arrays.copyOf(this.names, this.names.length + 1);
+				index = names.length - 1;
+				names[index] = name;
+				this.names = names;
+				this.nameIndices.put(name, index);
+			}
+			return index;
+		}
+	}
+
+	private void record(RingBufferStartupStep step, long endTime) {
+		if (this.currentStep.get() == step) {
+			this.currentStep.set(step.parent);
+		}
+		long seq = this.sequence.getAndIncrement();
+		int slot = (int) (seq & this.mask);
+		int offset = slot * STRIDE;
+		// Mark the slot as being written so that concurrent readers skip it
+		this.sequences.set(slot, -1);
+		this.steps.lazySet(offset + ID, step.id);
+		this.steps.lazySet(offset + PARENT_ID, step.parentId);
+		this.steps.lazySet(offset + NAME, step.nameIndex);
+		this.steps.lazySet(offset + START_TIME, step.startTime);
+		this.steps.lazySet(offset + END_TIME, endTime);
+		this.tags.lazySet(slot, step.getTagArray());
+		this.sequences.set(slot, seq + 1);
+	}
+
+
+	/**
+	 * {@link StartupStep} that is written to the ring buffer once it ends.
+	 */
+	private final class RingBufferStartupStep implements StartupStep, StartupStep.Tags {
+
+		private final long id;
+
+		@Nullable
+		private final RingBufferStartupStep parent;
+
+		private final long parentId;
+
+		private final int nameIndex;
+
+		private final long startTime;
+
+		private String[] tags = NO_TAGS;
+
+		private int tagCount;
+
+		private boolean ended;
+
+		RingBufferStartupStep(long id, @Nullable RingBufferStartupStep parent, int nameIndex, long startTime) {
+			this.id = id;
+			this.parent = parent;
+			this.parentId = (parent != null ? parent.id : 0);
+			this.nameIndex = nameIndex;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public String getName() {
+			return names[this.nameIndex];
+		}
+
+		@Override
+		public long getId() {
+			return this.id;
+		}
+
+		@Override
+		@Nullable
+		public Long getParentId() {
+			return (this.parentId != 0 ? this.parentId : null);
+		}
+
+		@Override
+		public StartupStep tag(String key, String value) {
+			Assert.state(!this.ended, "StartupStep has already ended");
+			if (this.tagCount == this.tags.length) {
+				this.tags = Arrays.copyOf(this.tags, Math.max(this.tags.length * 2, 4));
+			}
+			this.tags[this.tagCount++] = key;
+			this.tags[this.tagCount++] = value;
+			return this;
+		}
+
+		@Override
+		public StartupStep tag(String key, Supplier<String> value) {
+			return tag(key, value.get());
+		}
+
+		@Override
+		public Tags getTags() {
+			return this;
+		}
+
+		@Override
+		public Iterator<Tag> iterator() {
+			return new TagIterator(getTagArray());
+		}
+
+		String[] getTagArray() {
+			return (this.tagCount == this.tags.length ? this.tags : Arrays.copyOf(this.tags, this.tagCount));
+		}
+
+		@Override
+		public void end() {
+			if (!this.ended) {
+				this.ended = true;
+				record(this, System.nanoTime());
+			}
+		}
+	}
+
+
+	/**
+	 * Iterator over tags stored as alternating keys and values.
+	 */
+	static final class TagIterator implements Iterator<StartupStep.Tag> {
+
+		private final String[] tags;
+
+		private int index;
+
+		TagIterator(String[] tags) {
+			this.tags = tags;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (this.index < this.tags.length);
+		}
+
+		@Override
+		public StartupStep.Tag next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String key = this.tags[this.index++];
+			String value = this.tags[this.index++];
+			return new StartupStep.Tag() {
+				@Override
+				public String getKey() {
+					return key;
+				}
+				@Override
+				public String getValue() {
+					return value;
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Snapshot of the {@link StartupStep steps} recorded by a
+ * {@link RingBufferApplicationStartup}, in the order in which they ended.
+ *
+ * <p>Can be {@linkplain #writeJson written} as a JSON timeline, or
+ * {@linkplain #getSummaries() summarized} per step name and subject, such as
+ * the bean or post-processor that a step was recorded for.
+ *
+ * @since 5.3.2
+ * @see RingBufferApplicationStartup#getRecording()
+ */
+public final class StartupRecording {
+
+	private final Instant startTime;
+
+	private final List<RecordedStep> steps;
+
+	private final long droppedStepCount;
+
+
+	StartupRecording(Instant startTime, List<RecordedStep> steps, long droppedStepCount) {
+		this.startTime = startTime;
+		this.steps = Collections.unmodifiableList(steps);
+		this.droppedStepCount = droppedStepCount;
+	}
+
+
+	/**
+	 * Return the time at which the recording started.
+	 */
+	public Instant getStartTime() {
+		return this.startTime;
+	}
+
+	/**
+	 * Return the recorded steps, in the order in which they ended.
+	 */
+	public List<RecordedStep> getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * Return the number of steps that have been overwritten by more recent
+	 * steps since the recording started.
+	 */
+	public long getDroppedStepCount() {
+		return this.droppedStepCount;
+	}
+
+	/**
+	 * Aggregate the recorded steps per step name and subject, the subject being
+	 * the value of the first tag of a step, e.g. the name of the bean that a
+	 * {@code "spring.beans.instantiate"} step was recorded for.
+	 * <p>Since steps are nested, the summaries are ordered by the time spent
+	 * in the steps themselves rather than in their recorded child steps,
+	 * most expensive first.
+	 * @return the step summaries
+	 */
+	public List<StepSummary> getSummaries() {
+		Map<Long, Long> childTimes = new HashMap<>();
+		for (RecordedStep step : this.steps) {
+			if (step.parentId != null) {
+				childTimes.merge(step.parentId, step.duration, Long::sum);
+			}
+		}
+		Map<List<String>, StepSummary> summaries = new LinkedHashMap<>();
+		for (RecordedStep step : this.steps) {
+			String subject = (step.tags.length > 0 ? step.tags[1] : null);
+			StepSummary summary = summaries.computeIfAbsent(
+					Arrays.asList(step.name, subject), key -> new StepSummary(step.name, subject));
+			long selfTime = step.duration - childTimes.getOrDefault(step.id, 0L);
+			summary.add(step.duration, Math.max(selfTime, 0));
+		}
+		List<StepSummary> result = new ArrayList<>(summaries.values());
+		result.sort(Comparator.comparingLong((StepSummary summary) -> summary.selfTime).reversed());
+		return result;
+	}
+
+	/**
+	 * Write the recorded steps as a JSON document with the start time of the
+	 * recording and, per step, its start time relative to the recording start
+	 * and its duration in nanoseconds.
+	 * @param writer the writer to write to, which is not closed
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\"startTime\":\"");
+		writer.write(this.startTime.toString());
+		writer.write("\",\"droppedSteps\":");
+		writer.write(Long.toString(this.droppedStepCount));
+		writer.write(",\"steps\":[");
+		for (int i = 0; i < this.steps.size(); i++) {
+			RecordedStep step = this.steps.get(i);
+			writer.write(i > 0 ? ",{\"id\":" : "{\"id\":");
+			writer.write(Long.toString(step.id));
+			if (step.parentId != null) {
+				writer.write(",\"parentId\":");
+				writer.write(Long.toString(step.parentId));
+			}
+			writer.write(",\"name\":");
+			writeJsonString(writer, step.name);
+			writer.write(",\"start\":");
+			writer.write(Long.toString(step.startOffset));
+			writer.write(",\"duration\":");
+			writer.write(Long.toString(step.duration));
+			if (step.tags.length > 0) {
+				writer.write(",\"tags\":{");
+				for (int t = 0; t < step.tags.length; t += 2) {
+					if (t > 0) {
+						writer.write(',');
+					}
+					writeJsonString(writer, step.tags[t]);
+					writer.write(':');
+					writeJsonString(writer, step.tags[t + 1]);
+				}
+				writer.write('}');
+			}
+			writer.write('}');
+		}
+		writer.write("]}");
+	}
+
+	private static void writeJsonString(Writer writer, @Nullable String value) throws IOException {
+		if (value == null) {
+			writer.write("null");
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				writer.write('\\');
+				writer.write(ch);
+			}
+			else if (ch < 0x20) {
+				writer.write(String.format("\\u%04x", (int) ch));
+			}
+			else {
+				writer.write(ch);
+			}
+		}
+		writer.write('"');
+	}
+
+
+	/**
+	 * A step held by a {@link StartupRecording}.
+	 */
+	public static final class RecordedStep {
+
+		private final long id;
+
+		@Nullable
+		private final Long parentId;
+
+		private final String name;
+
+		private final long startOffset;
+
+		private final long duration;
+
+		private final String[] tags;
+
+		RecordedStep(long id, @Nullable Long parentId, String name, long startOffset, long duration, String[] tags) {
+			this.id = id;
+			this.parentId = parentId;
+			this.name = name;
+			this.startOffset = startOffset;
+			this.duration = duration;
+			this.tags = tags;
+		}
+
+		/**
+		 * Return the unique id of the step.
+		 */
+		public long getId() {
+			return this.id;
+		}
+
+		/**
+		 * Return the id of the parent step, if any.
+		 */
+		@Nullable
+		public Long getParentId() {
+			return this.parentId;
+		}
+
+		/**
+		 * Return the name of the step.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the time at which the step started, relative to the start of
+		 * the recording.
+		 */
+		public Duration getStartOffset() {
+			return Duration.ofNanos(this.startOffset);
+		}
+
+		/**
+		 * Return the processing time of the step.
+		 */
+		public Duration getDuration() {
+			return Duration.ofNanos(this.duration);
+		}
+
+		/**
+		 * Return the tags of the step.
+		 */
+		public StartupStep.Tags getTags() {
+			return () -> new RingBufferApplicationStartup.TagIterator(this.tags);
+		}
+
+		@Override
+		public String toString() {
+			return this.name + " (id=" + this.id + ", duration=" + getDuration() + ")";
+		}
+	}
+
+
+	/**
+	 * Aggregated processing time of the recorded steps with the same name and subject.
+	 */
+	public static final class StepSummary {
+
+		private final String name;
+
+		@Nullable
+		private final String subject;
+
+		private int count;
+
+		private long totalTime;
+
+		private long selfTime;
+
+		StepSummary(String name, @Nullable String subject) {
+			this.name = name;
+			this.subject = subject;
+		}
+
+		void add(long totalTime, long selfTime) {
+			this.count++;
+			this.totalTime += totalTime;
+			this.selfTime += selfTime;
+		}
+
+		/**
+		 * Return the name of the summarized steps.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the value of the first tag of the summarized steps, if any.
+		 */
+		@Nullable
+		public String getSubject() {
+			return this.subject;
+		}
+
+		/**
+		 * Return the number of summarized steps.
+		 */
+		public int getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Return the total processing time of the summarized steps,
+		 * including the time spent in their child steps.
+		 */
+		public Duration getTotalTime() {
+			return Duration.ofNanos(this.totalTime);
+		}
+
+		/**
+		 * Return the processing time of the summarized steps excluding
+		 * the time spent in their recorded child steps.
+		 */
+		public Duration getSelfTime() {
+			return Duration.ofNanos(this.selfTime);
+		}
+
+		@Override
+		public String toString() {
+			return this.name + (this.subject != null ? " [" + this.subject + "]" : "") +
+					": count=" + this.count + ", self=" + getSelfTime() + ", total=" + getTotalTime();
+		}
+	}
+
+}
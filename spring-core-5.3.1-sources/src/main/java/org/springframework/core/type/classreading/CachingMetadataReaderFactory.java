@@ -148,11 +148,15 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 		else if (this.metadataReaderCache != null) {
 			synchronized (this.metadataReaderCache) {
 				MetadataReader metadataReader = this.metadataReaderCache.get(resource);
-				if (metadataReader == null) {
-					metadataReader = super.getMetadataReader(resource);
-					this.metadataReaderCache.put(resource, metadataReader);
+				if (metadataReader != null) {
+					return metadataReader;
 				}
-				return metadataReader;
+			}
+			// Read outside of the lock so that concurrent scanning threads don't wait for each other
+			MetadataReader metadataReader = super.getMetadataReader(resource);
+			synchronized (this.metadataReaderCache) {
+				MetadataReader existing = this.metadataReaderCache.putIfAbsent(resource, metadataReader);
+				return (existing != null ? existing : metadataReader);
 			}
 		}
 		else {
@@ -162,6 +166,8 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 
 	/**
 	 * Clear the local MetadataReader cache, if any, removing all cached class metadata.
+	 * <p>Class metadata read so far is saved to the persistent cache, if any.
+	 * @see #savePersistentCache()
 	 */
 	public void clearCache() {
 		if (this.metadataReaderCache instanceof LocalResourceCache) {
@@ -173,6 +179,7 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 			// Shared resource cache -> reset to local cache.
 			setCacheLimit(DEFAULT_CACHE_LIMIT);
 		}
+		savePersistentCache();
 	}
 
 	// 20201205 本地MetadataReader缓存
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+
+/**
+ * ASM class visitor that records the parts of a class file that are relevant
+ * for class metadata in a compact binary form, while passing them on to a
+ * delegate visitor. The recording can later be replayed onto another visitor
+ * without reading the class file again.
+ *
+ * <p>All visible annotations are recorded, regardless of whether the delegate
+ * is interested in them, so that a replay is independent of the annotation
+ * types that happened to be resolvable when the recording was made.
+ *
+ * @since 5.3.2
+ * @see PersistentMetadataCache
+ */
+final class ClassMetadataRecorder extends ClassVisitor {
+
+	private static final byte END = 0;
+
+	private static final byte OUTER_CLASS = 1;
+
+	private static final byte INNER_CLASS = 2;
+
+	private static final byte ANNOTATION = 3;
+
+	private static final byte METHOD = 4;
+
+	private static final byte VALUE = 1;
+
+	private static final byte ENUM = 2;
+
+	private static final byte ARRAY = 4;
+
+	private static final String[] NO_STRINGS = {};
+
+
+	private byte[] buffer = new byte[256];
+
+	private int count;
+
+
+	ClassMetadataRecorder(ClassVisitor delegate) {
+		super(SpringAsmInfo.ASM_VERSION, delegate);
+	}
+
+
+	/**
+	 * Return the recording made so far.
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(this.buffer, this.count);
+	}
+
+	@Override
+	public void visit(int version, int access, String name, @Nullable String signature,
+			@Nullable String superName, @Nullable String[] interfaces) {
+
+		writeInt(version);
+		writeInt(access);
+		writeString(name);
+		writeString(superName);
+		String[] names = (interfaces != null ? interfaces : NO_STRINGS);
+		writeInt(names.length);
+		for (String interfaceName : names) {
+			writeString(interfaceName);
+		}
+		super.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public void visitOuterClass(String owner, @Nullable String name, @Nullable String descriptor) {
+		writeByte(OUTER_CLASS);
+		writeString(owner);
+		writeString(name);
+		writeString(descriptor);
+		super.visitOuterClass(owner, name, descriptor);
+	}
+
+	@Override
+	public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int access) {
+		writeByte(INNER_CLASS);
+		writeString(name);
+		writeString(outerName);
+		writeString(innerName);
+		writeInt(access);
+		super.visitInnerClass(name, outerName, innerName, access);
+	}
+
+	@Override
+	@Nullable
+	public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+		AnnotationVisitor delegate = super.visitAnnotation(descriptor, visible);
+		if (!visible) {
+			return delegate;
+		}
+		writeByte(ANNOTATION);
+		writeString(descriptor);
+		return new AnnotationRecorder(delegate);
+	}
+
+	@Override
+	@Nullable
+	public MethodVisitor visitMethod(int access, String name, String descriptor,
+			@Nullable String signature, @Nullable String[] exceptions) {
+
+		MethodVisitor delegate = super.visitMethod(access, name, descriptor, signature, exceptions);
+		return new MethodRecorder(delegate, access, name, descriptor);
+	}
+
+	@Override
+	public void visitEnd() {
+		writeByte(END);
+		super.visitEnd();
+	}
+
+
+	private void writeByte(int value) {
+		ensureCapacity(1);
+		this.buffer[this.count++] = (byte) value;
+	}
+
+	private void writeInt(int value) {
+		ensureCapacity(4);
+		this.buffer[this.count++] = (byte) (value >>> 24);
+		this.buffer[this.count++] = (byte) (value >>> 16);
+		this.buffer[this.count++] = (byte) (value >>> 8);
+		this.buffer[this.count++] = (byte) value;
+	}
+
+	private void writeLong(long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+	/**
+	 * Write a string as single bytes if it is ASCII, as chars otherwise.
+	 * The length is negative for strings written as chars and -1 for
+	 * {@code null}.
+	 */
+	private void writeString(@Nullable String value) {
+		if (value == null) {
+			writeInt(-1);
+			return;
+		}
+		int length = value.length();
+		boolean ascii = true;
+		for (int i = 0; i < length && ascii; i++) {
+			ascii = (value.charAt(i) < 0x80);
+		}
+		if (ascii) {
+			writeInt(length);
+			ensureCapacity(length);
+			for (int i = 0; i < length; i++) {
+				this.buffer[this.count++] = (byte) value.charAt(i);
+			}
+		}
+		else {
+			writeInt(-length - 2);
+			ensureCapacity(length * 2);
+			for (int i = 0; i < length; i++) {
+				char ch = value.charAt(i);
+				this.buffer[this.count++] = (byte) (ch >>> 8);
+				this.buffer[this.count++] = (byte) ch;
+			}
+		}
+	}
+
+	private void writeValue(Object value) {
+		if (value instanceof String) {
+			writeByte('s');
+			writeString((String) value);
+		}
+		else if (value instanceof Type) {
+			writeByte('T');
+			writeString(((Type) value).getDescriptor());
+		}
+		else if (value instanceof Integer) {
+			writeByte('I');
+			writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			writeByte('J');
+			writeLong((Long) value);
+		}
+		else if (value instanceof Boolean) {
+			writeByte('Z');
+			writeByte((Boolean) value ? 1 : 0);
+		}
+		else if (value instanceof Byte) {
+			writeByte('B');
+			writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			writeByte('C');
+			writeInt((Character) value);
+		}
+		else if (value instanceof Short) {
+			writeByte('S');
+			writeInt((Short) value);
+		}
+		else if (value instanceof Float) {
+			writeByte('F');
+			writeInt(Float.floatToRawIntBits((Float) value));
+		}
+		else if (value instanceof Double) {
+			writeByte('D');
+			writeLong(Double.doubleToRawLongBits((Double) value));
+		}
+		else if (value instanceof byte[]) {
+			byte[] array = (byte[]) value;
+			writeByte('b');
+			writeInt(array.length);
+			for (byte element : array) {
+				writeByte(element);
+			}
+		}
+		else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			writeByte('z');
+			writeInt(array.length);
+			for (boolean element : array) {
+				writeByte(element ? 1 : 0);
+			}
+		}
+		else if (value instanceof char[]) {
+			char[] array = (char[]) value;
+			writeByte('c');
+			writeInt(array.length);
+			for (char element : array) {
+				writeInt(element);
+			}
+		}
+		else if (value instanceof short[]) {
+			short[] array = (short[]) value;
+			writeByte('t');
+			writeInt(array.length);
+			for (short element : array) {
+				writeInt(element);
+			}
+		}
+		else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			writeByte('i');
+			writeInt(array.length);
+			for (int element : array) {
+				writeInt(element);
+			}
+		}
+		else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			writeByte('j');
+			writeInt(array.length);
+			for (long element : array) {
+				writeLong(element);
+			}
+		}
+		else if (value instanceof float[]) {
+			float[] array = (float[]) value;
+			writeByte('f');
+			writeInt(array.length);
+			for (float element : array) {
+				writeInt(Float.floatToRawIntBits(element));
+			}
+		}
+		else if (value instanceof double[]) {
+			double[] array = (double[]) value;
+			writeByte('d');
+			writeInt(array.length);
+			for (double element : array) {
+				writeLong(Double.doubleToRawLongBits(element));
+			}
+		}
+		else {
+			throw new IllegalArgumentException("Unsupported annotation value: " + value);
+		}
+	}
+
+	private void ensureCapacity(int length) {
+		if (this.count + length > this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.count + length));
+		}
+	}
+
+
+	/**
+	 * Replay a recording onto the given visitor.
+	 * @param recording the recording, from its current position
+	 * @param visitor the visitor to replay onto
+	 */
+	static void replay(ByteBuffer recording, ClassVisitor visitor) {
+		int version = recording.getInt();
+		int access = recording.getInt();
+		String name = readString(recording);
+		String superName = readString(recording);
+		String[] interfaces = new String[recording.getInt()];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = readString(recording);
+		}
+		visitor.visit(version, access, name, null, superName, interfaces);
+		byte tag;
+		while ((tag = recording.get()) != END) {
+			switch (tag) {
+				case OUTER_CLASS:
+					visitor.visitOuterClass(readString(recording), readString(recording), readString(recording));
+					break;
+				case INNER_CLASS:
+					visitor.visitInnerClass(readString(recording), readString(recording),
+							readString(recording), recording.getInt());
+					break;
+				case ANNOTATION:
+					replayAnnotation(recording, visitor.visitAnnotation(readString(recording), true));
+					break;
+				case METHOD:
+					MethodVisitor methodVisitor = visitor.visitMethod(recording.getInt(),
+							readString(recording), readString(recording), null, null);
+					while (recording.get() != END) {
+						String descriptor = readString(recording);
+						replayAnnotation(recording, (methodVisitor != null ?
+								methodVisitor.visitAnnotation(descriptor, true) : null));
+					}
+					if (methodVisitor != null) {
+						methodVisitor.visitEnd();
+					}
+					break;
+				default:
+					throw new IllegalStateException("Corrupt class metadata recording");
+			}
+		}
+		visitor.visitEnd();
+	}
+
+	private static void replayAnnotation(ByteBuffer recording, @Nullable AnnotationVisitor visitor) {
+		byte tag;
+		while ((tag = recording.get()) != END) {
+			String name = readString(recording);
+			switch (tag) {
+				case VALUE:
+					Object value = readValue(recording);
+					if (visitor != null) {
+						visitor.visit(name, value);
+					}
+					break;
+				case ENUM:
+					String descriptor = readString(recording);
+					String enumValue = readString(recording);
+					if (visitor != null) {
+						visitor.visitEnum(name, descriptor, enumValue);
+					}
+					break;
+				case ANNOTATION:
+					String annotationDescriptor = readString(recording);
+					replayAnnotation(recording, (visitor != null ?
+							visitor.visitAnnotation(name, annotationDescriptor) : null));
+					break;
+				case ARRAY:
+					replayAnnotation(recording, (visitor != null ? visitor.visitArray(name) : null));
+					break;
+				default:
+					throw new IllegalStateException("Corrupt class metadata recording");
+			}
+		}
+		if (visitor != null) {
+			visitor.visitEnd();
+		}
+	}
+
+	@Nullable
+	private static String readString(ByteBuffer recording) {
+		int length = recording.getInt();
+		if (length == -1) {
+			return null;
+		}
+		char[] chars;
+		if (length >= 0) {
+			chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = (char) recording.get();
+			}
+		}
+		else {
+			chars = new char[-length - 2];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = recording.getChar();
+			}
+		}
+		return new String(chars);
+	}
+
+	private static Object readValue(ByteBuffer recording) {
+		byte type = recording.get();
+		switch (type) {
+			case 's':
+				return readString(recording);
+			case 'T':
+				return Type.getType(readString(recording));
+			case 'I':
+				return recording.getInt();
+			case 'J':
+				return recording.getLong();
+			case 'Z':
+				return (recording.get() != 0);
+			case 'B':
+				return recording.get();
+			case 'C':
+				return (char) recording.getInt();
+			case 'S':
+				return (short) recording.getInt();
+			case 'F':
+				return Float.intBitsToFloat(recording.getInt());
+			case 'D':
+				return Double.longBitsToDouble(recording.getLong());
+		}
+		int length = recording.getInt();
+		switch (type) {
+			case 'b': {
+				byte[] array = new byte[length];
+				recording.get(array);
+				return array;
+			}
+			case 'z': {
+				boolean[] array = new boolean[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = (recording.get() != 0);
+				}
+				return array;
+			}
+			case 'c': {
+				char[] array = new char[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = (char) recording.getInt();
+				}
+				return array;
+			}
+			case 't': {
+				short[] array = new short[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = (short) recording.getInt();
+				}
+				return array;
+			}
+			case 'i': {
+				int[] array = new int[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = recording.getInt();
+				}
+				return array;
+			}
+			case 'j': {
+				long[] array = new long[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = recording.getLong();
+				}
+				return array;
+			}
+			case 'f': {
+				float[] array = new float[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = Float.intBitsToFloat(recording.getInt());
+				}
+				return array;
+			}
+			case 'd': {
+				double[] array = new double[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = Double.longBitsToDouble(recording.getLong());
+				}
+				return array;
+			}
+			default:
+				throw new IllegalStateException("Corrupt class metadata recording");
+		}
+	}
+
+
+	/**
+	 * Records annotation values, including those of nested annotations and arrays.
+	 */
+	private class AnnotationRecorder extends AnnotationVisitor {
+
+		AnnotationRecorder(@Nullable AnnotationVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+		}
+
+		@Override
+		public void visit(String name, Object value) {
+			writeByte(VALUE);
+			writeString(name);
+			writeValue(value);
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(String name, String descriptor, String value) {
+			writeByte(ENUM);
+			writeString(name);
+			writeString(descriptor);
+			writeString(value);
+			super.visitEnum(name, descriptor, value);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String name, String descriptor) {
+			writeByte(ANNOTATION);
+			writeString(name);
+			writeString(descriptor);
+			return new AnnotationRecorder(super.visitAnnotation(name, descriptor));
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(String name) {
+			writeByte(ARRAY);
+			writeString(name);
+			return new AnnotationRecorder(super.visitArray(name));
+		}
+
+		@Override
+		public void visitEnd() {
+			writeByte(END);
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * Records the visible annotations of a method, dropping the method from
+	 * the recording again if it turns out not to have any.
+	 */
+	private class MethodRecorder extends MethodVisitor {
+
+		private final int start;
+
+		private boolean annotated;
+
+		MethodRecorder(@Nullable MethodVisitor delegate, int access, String name, String descriptor) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.start = count;
+			writeByte(METHOD);
+			writeInt(access);
+			writeString(name);
+			writeString(descriptor);
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			AnnotationVisitor delegate = super.visitAnnotation(descriptor, visible);
+			if (!visible) {
+				return delegate;
+			}
+			this.annotated = true;
+			writeByte(ANNOTATION);
+			writeString(descriptor);
+			return new AnnotationRecorder(delegate);
+		}
+
+		@Override
+		public void visitEnd() {
+			if (this.annotated) {
+				writeByte(END);
+			}
+			else {
+				count = this.start;
+			}
+			super.visitEnd();
+		}
+	}
+
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Cache of class metadata that is persisted in a file, so that the class files
+ * that were read by an earlier run do not need to be parsed again. The file
+ * is read when the cache is first used and is rewritten by {@link #save()}
+ * once the metadata of further classes has been recorded. Entries are merged
+ * with those in the file, so that the file can be shared by several
+ * applications, and entries of class files or jars that have since changed or
+ * been removed are dropped.
+ *
+ * <p>Entries are validated against the size and last-modified timestamp of the
+ * jar file that contains a class, or of the class file itself for classes in a
+ * directory. Classes that are loaded from anywhere else are not cached.
+ *
+ * <p>The cache is enabled for all {@link SimpleMetadataReaderFactory} instances
+ * through the {@value #CACHE_FILE_PROPERTY_NAME} property, either as a JVM
+ * system property or in a {@code spring.properties} file, or individually via
+ * {@link SimpleMetadataReaderFactory#setPersistentCache}.
+ *
+ * @since 5.3.2
+ * @see SimpleMetadataReaderFactory#setPersistentCache
+ */
+public final class PersistentMetadataCache {
+
+	/**
+	 * System property that specifies the location of the file in which class
+	 * metadata is cached across runs. Not set by default.
+	 * @see SpringProperties
+	 */
+	public static final String CACHE_FILE_PROPERTY_NAME = "spring.metadata.cache";
+
+	private static final int MAGIC = 0x53504d43;
+
+	private static final int VERSION = 1;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataCache.class);
+
+	private static final Map<File, PersistentMetadataCache> instances = new ConcurrentHashMap<>(4);
+
+
+	private final File file;
+
+	private final Map<String, Entry> entries;
+
+	private final Map<File, Stamp> archiveStamps = new ConcurrentHashMap<>(64);
+
+	private volatile boolean modified;
+
+
+	private PersistentMetadataCache(File file) {
+		this.file = file;
+		this.entries = new ConcurrentHashMap<>(load(file));
+	}
+
+
+	/**
+	 * Return the cache for the given file, which is shared for the lifetime
+	 * of the class loader of this class.
+	 * @param file the file to load the cache from and to save it to
+	 * @return the cache for the file
+	 */
+	public static PersistentMetadataCache forFile(File file) {
+		Assert.notNull(file, "File must not be null");
+		return instances.computeIfAbsent(file.getAbsoluteFile(), PersistentMetadataCache::new);
+	}
+
+	/**
+	 * Return the cache configured through the {@value #CACHE_FILE_PROPERTY_NAME}
+	 * property, if any.
+	 */
+	@Nullable
+	static PersistentMetadataCache getDefault() {
+		String location = SpringProperties.getProperty(CACHE_FILE_PROPERTY_NAME);
+		return (StringUtils.hasText(location) ? forFile(new File(location.trim())) : null);
+	}
+
+
+	/**
+	 * Return the file that backs this cache.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Obtain a {@link MetadataReader} for the given resource, from the cache
+	 * if it holds current metadata for it or by reading the class file otherwise.
+	 * @param resource the class file resource
+	 * @param classLoader the ClassLoader to resolve annotation types with
+	 * @return the MetadataReader for the resource
+	 * @throws IOException in case of I/O failure
+	 */
+	MetadataReader getMetadataReader(Resource resource, @Nullable ClassLoader classLoader) throws IOException {
+		String key = null;
+		Stamp stamp = null;
+		try {
+			URL url = resource.getURL();
+			stamp = getStamp(url);
+			key = url.toString();
+		}
+		catch (IOException ex) {
+			// Not a resource in a file or jar file
+		}
+		if (stamp == null) {
+			return new SimpleMetadataReader(resource, classLoader);
+		}
+		String entryKey = key;
+		Stamp entryStamp = stamp;
+		Entry entry = this.entries.get(key);
+		if (entry != null && entry.stamp.equals(stamp)) {
+			try {
+				return new SimpleMetadataReader(resource, classLoader, entry.data.duplicate());
+			}
+			catch (RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring unreadable cached class metadata for " + resource, ex);
+				}
+			}
+		}
+		return new SimpleMetadataReader(resource, classLoader, recording -> {
+			this.entries.put(entryKey, new Entry(entryStamp, ByteBuffer.wrap(recording)));
+			this.modified = true;
+		});
+	}
+
+	/**
+	 * Write the metadata of the classes that have been recorded through this
+	 * cache to its file, if any have been recorded since the last save. The
+	 * file is otherwise left untouched. Failures are logged rather than thrown
+	 * since the cache is an optimization only.
+	 * <p>Entries that have been written to the file by others in the meantime
+	 * are kept, unless the class file or jar that they were recorded for has
+	 * changed or been removed since.
+	 */
+	public void save() {
+		if (!this.modified) {
+			return;
+		}
+		synchronized (this) {
+			if (!this.modified) {
+				return;
+			}
+			this.modified = false;
+			Path target = this.file.toPath();
+			Path tempFile = null;
+			try {
+				Path directory = target.toAbsolutePath().getParent();
+				if (directory != null) {
+					Files.createDirectories(directory);
+				}
+				tempFile = Files.createTempFile(directory, this.file.getName(), ".tmp");
+				Map<String, Entry> currentEntries = new TreeMap<>(load(this.file));
+				currentEntries.putAll(this.entries);
+				currentEntries.entrySet().removeIf(entry -> !isCurrent(entry.getKey(), entry.getValue()));
+				write(tempFile, currentEntries);
+				Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Saved metadata of " + currentEntries.size() + " classes to " + this.file);
+				}
+			}
+			catch (IOException | RuntimeException ex) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Could not save class metadata cache to " + this.file, ex);
+				}
+				if (tempFile != null) {
+					try {
+						Files.deleteIfExists(tempFile);
+					}
+					catch (IOException ignored) {
+						// ignore
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Determine whether the given entry matches the class file or jar that
+	 * it was recorded for, dropping it from this cache otherwise.
+	 */
+	private boolean isCurrent(String key, Entry entry) {
+		Stamp stamp;
+		try {
+			stamp = getStamp(new URL(key));
+		}
+		catch (IOException ex) {
+			stamp = null;
+		}
+		if (entry.stamp.equals(stamp)) {
+			return true;
+		}
+		this.entries.remove(key, entry);
+		return false;
+	}
+
+	@Nullable
+	private Stamp getStamp(URL url) throws IOException {
+		if (ResourceUtils.isJarURL(url)) {
+			URL archiveUrl = ResourceUtils.extractArchiveURL(url);
+			if (!ResourceUtils.isFileURL(archiveUrl)) {
+				return null;
+			}
+			// Archives don't change while they are in use
+			return this.archiveStamps.computeIfAbsent(ResourceUtils.getFile(archiveUrl), Stamp::of);
+		}
+		if (ResourceUtils.isFileURL(url)) {
+			return Stamp.of(ResourceUtils.getFile(url));
+		}
+		return null;
+	}
+
+	private static Map<String, Entry> load(File file) {
+		if (!file.isFile()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Entry> entries = new TreeMap<>();
+		try {
+			// Read rather than mapped so that the file can be replaced while in use
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring class metadata cache in unsupported format: " + file);
+				}
+				return Collections.emptyMap();
+			}
+			int count = buffer.getInt();
+			for (int i = 0; i < count; i++) {
+				byte[] key = new byte[buffer.getInt()];
+				buffer.get(key);
+				Stamp stamp = new Stamp(buffer.getLong(), buffer.getLong());
+				int length = buffer.getInt();
+				ByteBuffer data = buffer.duplicate();
+				data.limit(data.position() + length);
+				buffer.position(buffer.position() + length);
+				entries.put(new String(key, StandardCharsets.UTF_8), new Entry(stamp, data.slice()));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded metadata of " + count + " classes from " + file);
+			}
+			return entries;
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring unreadable class metadata cache " + file, ex);
+			}
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void write(Path path, Map<String, Entry> entries) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(key.length);
+				out.write(key);
+				out.writeLong(entry.getValue().stamp.length);
+				out.writeLong(entry.getValue().stamp.lastModified);
+				ByteBuffer data = entry.getValue().data.duplicate();
+				out.writeInt(data.remaining());
+				if (data.hasArray()) {
+					out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+				}
+				else {
+					byte[] bytes = new byte[data.remaining()];
+					data.get(bytes);
+					out.write(bytes);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The size and last-modified timestamp of a file.
+	 */
+	private static final class Stamp {
+
+		private final long length;
+
+		private final long lastModified;
+
+		Stamp(long length, long lastModified) {
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		@Nullable
+		static Stamp of(File file) {
+			long lastModified = file.lastModified();
+			return (lastModified != 0 ? new Stamp(file.length(), lastModified) : null);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Stamp)) {
+				return false;
+			}
+			Stamp otherStamp = (Stamp) other;
+			return (this.length == otherStamp.length && this.lastModified == otherStamp.lastModified);
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(this.length) * 31 + Long.hashCode(this.lastModified);
+		}
+	}
+
+
+	/**
+	 * The recorded metadata of a single class.
+	 */
+	private static final class Entry {
+
+		private final Stamp stamp;
+
+		private final ByteBuffer data;
+
+		Entry(Stamp stamp, ByteBuffer data) {
+			this.stamp = stamp;
+			this.data = data;
+		}
+	}
+
+}
@@ -18,6 +18,8 @@ package org.springframework.core.type.classreading;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 import org.springframework.asm.ClassReader;
 import org.springframework.core.NestedIOException;
@@ -51,6 +53,35 @@ final class SimpleMetadataReader implements MetadataReader {
 		this.annotationMetadata = visitor.getMetadata();
 	}
 
+	/**
+	 * Read the class file and pass a recording of its metadata to the given
+	 * consumer, for replaying it later on.
+	 * @since 5.3.2
+	 * @see ClassMetadataRecorder
+	 */
+	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader,
+			Consumer<byte[]> recordingConsumer) throws IOException {
+
+		SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+		ClassMetadataRecorder recorder = new ClassMetadataRecorder(visitor);
+		getClassReader(resource).accept(recorder, PARSING_OPTIONS);
+		this.resource = resource;
+		this.annotationMetadata = visitor.getMetadata();
+		recordingConsumer.accept(recorder.toByteArray());
+	}
+
+	/**
+	 * Replay a recording of the metadata of the class file instead of reading it.
+	 * @since 5.3.2
+	 * @see ClassMetadataRecorder
+	 */
+	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader, ByteBuffer recording) {
+		SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+		ClassMetadataRecorder.replay(recording, visitor);
+		this.resource = resource;
+		this.annotationMetadata = visitor.getMetadata();
+	}
+
 	private static ClassReader getClassReader(Resource resource) throws IOException {
 		try (InputStream is = resource.getInputStream()) {
 			try {
@@ -38,6 +38,9 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 	// 20201205 资源加载器
 	private final ResourceLoader resourceLoader;
 
+	@Nullable
+	private PersistentMetadataCache persistentCache = PersistentMetadataCache.getDefault();
+
 	/**
 	 * Create a new SimpleMetadataReaderFactory for the default class loader.
 	 */
@@ -74,6 +77,41 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 		return this.resourceLoader;
 	}
 
+	/**
+	 * Specify a cache that keeps class metadata across runs, avoiding
+	 * the parsing of class files that have been read before.
+	 * <p>Default is the cache configured through the
+	 * {@value PersistentMetadataCache#CACHE_FILE_PROPERTY_NAME} property, if any.
+	 * @since 5.3.2
+	 * @see #savePersistentCache()
+	 */
+	public void setPersistentCache(@Nullable PersistentMetadataCache persistentCache) {
+		this.persistentCache = persistentCache;
+	}
+
+	/**
+	 * Return the cache that keeps class metadata across runs, if any.
+	 * @since 5.3.2
+	 */
+	@Nullable
+	public PersistentMetadataCache getPersistentCache() {
+		return this.persistentCache;
+	}
+
+	/**
+	 * Save the class metadata read so far to the persistent cache, if any.
+	 * Caching subclasses call this when their cache is cleared, which
+	 * typically happens once class path scanning has completed.
+	 * @since 5.3.2
+	 * @see PersistentMetadataCache#save()
+	 */
+	public void savePersistentCache() {
+		PersistentMetadataCache persistentCache = this.persistentCache;
+		if (persistentCache != null) {
+			persistentCache.save();
+		}
+	}
+
 	// 20201212 获取给定类名称的MetadataReader: SimpleMetadataReader
 	@Override
 	public MetadataReader getMetadataReader(String className) throws IOException {
@@ -104,6 +142,10 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 	// 20201212 获取给定类名称的MetadataReader: SimpleMetadataReader
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		PersistentMetadataCache persistentCache = this.persistentCache;
+		if (persistentCache != null) {
+			return persistentCache.getMetadataReader(resource, this.resourceLoader.getClassLoader());
+		}
 		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader());
 	}
 
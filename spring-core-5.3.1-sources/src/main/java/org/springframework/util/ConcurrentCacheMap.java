@@ -0,0 +1,305 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A {@link ConcurrentMap} for read-mostly framework metadata caches, such as
+ * caches keyed by {@link Class}, {@link java.lang.reflect.Method} or annotation type.
+ *
+ * <p>Entries whose key is owned by a class that is {@linkplain ClassUtils#isCacheSafe
+ * cache-safe} for the class loader that loaded this class are held with strong
+ * references in a plain {@link ConcurrentHashMap}, so that reads are lock-free
+ * and never have to purge garbage collected references. All other entries, which
+ * could otherwise keep an application class loader from being garbage collected,
+ * are held in a {@link ConcurrentReferenceHashMap} with soft references, much
+ * like {@code CachedIntrospectionResults} separates its strong and soft caches.
+ *
+ * <p>The strongly held entries are not bounded in number: like the classes
+ * that own their keys, they are retained for the lifetime of the framework
+ * class loader.
+ *
+ * <p>Unlike {@link ConcurrentReferenceHashMap}, {@code null} keys and values
+ * are not supported.
+ *
+ * @since 5.3.2
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ClassUtils#isCacheSafe
+ */
+public class ConcurrentCacheMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	@Nullable
+	private static final ClassLoader frameworkClassLoader = ConcurrentCacheMap.class.getClassLoader();
+
+
+	private final ConcurrentHashMap<K, V> strongMap;
+
+	private final Function<? super K, Class<?>> ownerResolver;
+
+	@Nullable
+	private volatile ConcurrentReferenceHashMap<K, V> softMap;
+
+	@Nullable
+	private volatile Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new {@code ConcurrentCacheMap}.
+	 * @param initialCapacity the initial capacity of the map
+	 * @param ownerResolver a function returning the class that owns a given key,
+	 * deciding whether it can be held strongly (may return {@code null} to hold
+	 * the entry softly)
+	 */
+	public ConcurrentCacheMap(int initialCapacity, Function<? super K, Class<?>> ownerResolver) {
+		Assert.isTrue(initialCapacity >= 0, "Initial capacity must not be negative");
+		Assert.notNull(ownerResolver, "Owner resolver must not be null");
+		this.strongMap = new ConcurrentHashMap<>(initialCapacity);
+		this.ownerResolver = ownerResolver;
+	}
+
+
+	@Override
+	@Nullable
+	public V get(@Nullable Object key) {
+		if (key == null) {
+			return null;
+		}
+		V value = this.strongMap.get(key);
+		if (value == null) {
+			ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+			if (softMap != null) {
+				value = softMap.get(key);
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key) {
+		return (get(key) != null);
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		Assert.notNull(key, "Key must not be null");
+		Assert.notNull(value, "Value must not be null");
+		if (isStrong(key)) {
+			return this.strongMap.put(key, value);
+		}
+		return getSoftMap().put(key, value);
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		Assert.notNull(key, "Key must not be null");
+		Assert.notNull(value, "Value must not be null");
+		if (isStrong(key)) {
+			return this.strongMap.putIfAbsent(key, value);
+		}
+		return getSoftMap().putIfAbsent(key, value);
+	}
+
+	/**
+	 * Return the value for the given key, computing and adding it if absent.
+	 * <p>In contrast to {@link ConcurrentHashMap#computeIfAbsent}, no lock is
+	 * held while the value is being computed, so the mapping function may access
+	 * this map recursively. As a consequence, the function may be invoked more
+	 * than once for the same key, with only the first value being retained.
+	 */
+	@Override
+	@Nullable
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+		V newValue = mappingFunction.apply(key);
+		if (newValue == null) {
+			return null;
+		}
+		V existing = putIfAbsent(key, newValue);
+		return (existing != null ? existing : newValue);
+	}
+
+	@Override
+	@Nullable
+	public V remove(@Nullable Object key) {
+		if (key == null) {
+			return null;
+		}
+		V value = this.strongMap.remove(key);
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		if (value == null && softMap != null) {
+			value = softMap.remove(key);
+		}
+		return value;
+	}
+
+	@Override
+	public boolean remove(@Nullable Object key, @Nullable Object value) {
+		if (key == null || value == null) {
+			return false;
+		}
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		return (this.strongMap.remove(key, value) || (softMap != null && softMap.remove(key, value)));
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Assert.notNull(newValue, "Value must not be null");
+		if (isStrong(key)) {
+			return this.strongMap.replace(key, oldValue, newValue);
+		}
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		return (softMap != null && softMap.replace(key, oldValue, newValue));
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		Assert.notNull(value, "Value must not be null");
+		if (isStrong(key)) {
+			return this.strongMap.replace(key, value);
+		}
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		return (softMap != null ? softMap.replace(key, value) : null);
+	}
+
+	@Override
+	public void clear() {
+		this.strongMap.clear();
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		if (softMap != null) {
+			softMap.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		return this.strongMap.size() + (softMap != null ? softMap.size() : 0);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+
+	private boolean isStrong(K key) {
+		Class<?> owner = this.ownerResolver.apply(key);
+		return (owner != null && ClassUtils.isCacheSafe(owner, frameworkClassLoader));
+	}
+
+	private ConcurrentReferenceHashMap<K, V> getSoftMap() {
+		ConcurrentReferenceHashMap<K, V> softMap = this.softMap;
+		if (softMap == null) {
+			synchronized (this) {
+				softMap = this.softMap;
+				if (softMap == null) {
+					softMap = new ConcurrentReferenceHashMap<>();
+					this.softMap = softMap;
+				}
+			}
+		}
+		return softMap;
+	}
+
+
+	/**
+	 * Entry set view over both the strongly and the softly held entries.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return ConcurrentCacheMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			ConcurrentCacheMap.this.clear();
+		}
+	}
+
+
+	/**
+	 * Iterator over the strongly held entries followed by the softly held ones.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private Iterator<Map.Entry<K, V>> current = ConcurrentCacheMap.this.strongMap.entrySet().iterator();
+
+		private boolean strong = true;
+
+		@Nullable
+		private Iterator<Map.Entry<K, V>> last;
+
+		@Override
+		public boolean hasNext() {
+			if (!this.current.hasNext() && this.strong) {
+				this.strong = false;
+				ConcurrentReferenceHashMap<K, V> softMap = ConcurrentCacheMap.this.softMap;
+				if (softMap != null) {
+					this.current = softMap.entrySet().iterator();
+				}
+			}
+			return this.current.hasNext();
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.current;
+			return this.current.next();
+		}
+
+		@Override
+		public void remove() {
+			Assert.state(this.last != null, "No element to remove");
+			this.last.remove();
+			this.last = null;
+		}
+	}
+
+}
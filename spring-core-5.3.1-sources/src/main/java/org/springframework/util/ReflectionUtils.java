@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.springframework.lang.Nullable;
 
@@ -88,13 +89,15 @@ public abstract class ReflectionUtils {
 	 * from Java 8 based interfaces, allowing for fast iteration.
 	 */
 	// 20021210 {@link Class＃getDeclaredMethods（）}的缓存以及来自基于Java 8的接口的等效默认方法，可实现快速迭代。
-	private static final Map<Class<?>, Method[]> declaredMethodsCache = new ConcurrentReferenceHashMap<>(256);
+	private static final Map<Class<?>, Method[]> declaredMethodsCache =
+			new ConcurrentCacheMap<>(256, Function.identity());
 
 	/**
 	 * Cache for {@link Class#getDeclaredFields()}, allowing for fast iteration.
 	 */
 	// 20201210 {@link Class＃getDeclaredFields（）}的缓存，可实现快速迭代。
-	private static final Map<Class<?>, Field[]> declaredFieldsCache = new ConcurrentReferenceHashMap<>(256);
+	private static final Map<Class<?>, Field[]> declaredFieldsCache =
+			new ConcurrentCacheMap<>(256, Function.identity());
 
 	// Exception handling
 
@@ -124,6 +124,12 @@ public class Connector extends LifecycleMBeanBase  {
     protected boolean allowTrace = false;
 
 
+    /**
+     * Is the heap allocated while processing each request tracked?
+     */
+    protected boolean allocationTracking = false;
+
+
     /**
      * Default timeout for asynchronous requests (ms).
      */
@@ -378,6 +384,32 @@ public class Connector extends LifecycleMBeanBase  {
     }
 
 
+    /**
+     * @return <code>true</code> if the heap allocated by the container threads
+     *         while processing requests is added to the statistics of the
+     *         request processors. Default value is <code>false</code>.
+     */
+    public boolean getAllocationTracking() {
+        return this.allocationTracking;
+    }
+
+
+    /**
+     * Enable or disable the tracking of the heap allocated while processing
+     * requests. Tracking requires a JVM that can report the bytes allocated
+     * by a thread and is ignored otherwise.
+     *
+     * @param allocationTracking The new allocation tracking flag
+     */
+    public void setAllocationTracking(boolean allocationTracking) {
+        if (allocationTracking && !ThreadAllocation.isAvailable()) {
+            log.warn(sm.getString("coyoteConnector.allocationTrackingUnavailable"));
+            allocationTracking = false;
+        }
+        this.allocationTracking = allocationTracking;
+    }
+
+
     /**
      * @return the default timeout for async requests in ms.
      */
@@ -139,6 +139,8 @@ public class CoyoteAdapter implements Adapter {
         boolean success = true;
         AsyncContextImpl asyncConImpl = request.getAsyncContextInternal();
 
+        long allocationStart = connector.getAllocationTracking() ? ThreadAllocation.get() : -1;
+
         req.getRequestProcessor().setWorkerThreadName(THREAD_NAME.get());
 
         try {
@@ -247,7 +249,8 @@ public class CoyoteAdapter implements Adapter {
 
             // Check to see if the processor is in an error state. If it is,
             // bail out now.
-            AtomicBoolean error = new AtomicBoolean(false);
+            AtomicBoolean error = request.adapterFlag;
+            error.set(false);
             res.action(ActionCode.IS_ERROR, error);
             if (error.get()) {
                 if (request.isAsyncCompleting()) {
@@ -291,6 +294,8 @@ public class CoyoteAdapter implements Adapter {
                 request.recycle();
                 response.recycle();
             }
+
+            recordAllocation(req, allocationStart);
         }
         return success;
     }
@@ -329,6 +334,8 @@ public class CoyoteAdapter implements Adapter {
         boolean async = false;
         boolean postParseSuccess = false;
 
+        long allocationStart = connector.getAllocationTracking() ? ThreadAllocation.get() : -1;
+
         req.getRequestProcessor().setWorkerThreadName(THREAD_NAME.get());
 
         try {
@@ -377,7 +384,8 @@ public class CoyoteAdapter implements Adapter {
         } catch (IOException e) {
             // Ignore
         } finally {
-            AtomicBoolean error = new AtomicBoolean(false);
+            AtomicBoolean error = request.adapterFlag;
+            error.set(false);
             res.action(ActionCode.IS_ERROR, error);
 
             if (request.isAsyncCompleting() && error.get()) {
@@ -423,6 +431,22 @@ public class CoyoteAdapter implements Adapter {
                 request.recycle();
                 response.recycle();
             }
+
+            recordAllocation(req, allocationStart);
+        }
+    }
+
+
+    /*
+     * Only the allocations made by the current thread are recorded so any
+     * work handed off to other threads is not included.
+     */
+    private void recordAllocation(org.apache.coyote.Request req, long allocationStart) {
+        if (allocationStart >= 0) {
+            long allocated = ThreadAllocation.since(allocationStart);
+            if (allocated > 0) {
+                req.getRequestProcessor().addAllocatedBytes(allocated);
+            }
         }
     }
 
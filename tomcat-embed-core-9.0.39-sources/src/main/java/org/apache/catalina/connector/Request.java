@@ -342,6 +342,14 @@ public class Request implements HttpServletRequest {
     protected ParameterMap<String, String[]> parameterMap = new ParameterMap<>();
 
 
+    /**
+     * Flag reused by the adapter to query the state of the processor so that
+     * it does not need to allocate one for every request. Only used by the
+     * container thread processing the request.
+     */
+    final AtomicBoolean adapterFlag = new AtomicBoolean();
+
+
     /**
      * The parts, if any, uploaded with this request.
      */
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.connector;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.tomcat.util.ExceptionUtils;
+
+/**
+ * Access to the number of bytes allocated on the heap by the current thread,
+ * used to track the allocations made while processing requests. This relies
+ * on the <code>com.sun.management.ThreadMXBean</code> extension which is
+ * looked up reflectively so that JVMs without it simply report that tracking
+ * is unavailable.
+ */
+final class ThreadAllocation {
+
+    private static final ThreadMXBean THREAD_BEAN;
+    private static final MethodHandle ALLOCATED_BYTES;
+    private static final long OVERHEAD;
+
+    static {
+        ThreadMXBean bean = null;
+        MethodHandle handle = null;
+        try {
+            ThreadMXBean candidate = ManagementFactory.getThreadMXBean();
+            Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+            if (extension.isInstance(candidate)) {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                boolean supported = (boolean) lookup.findVirtual(extension,
+                        "isThreadAllocatedMemorySupported",
+                        MethodType.methodType(boolean.class)).invoke(candidate);
+                boolean enabled = supported && (boolean) lookup.findVirtual(extension,
+                        "isThreadAllocatedMemoryEnabled",
+                        MethodType.methodType(boolean.class)).invoke(candidate);
+                if (enabled) {
+                    handle = lookup.findVirtual(extension, "getThreadAllocatedBytes",
+                            MethodType.methodType(long.class, long.class)).asType(
+                            MethodType.methodType(long.class, ThreadMXBean.class, long.class));
+                    bean = candidate;
+                }
+            }
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            // Tracking is not available
+            bean = null;
+            handle = null;
+        }
+        THREAD_BEAN = bean;
+        ALLOCATED_BYTES = handle;
+
+        // Some JVMs allocate when asked for the allocated bytes. Measure that
+        // once so it isn't attributed to the requests.
+        long overhead = 0;
+        if (ALLOCATED_BYTES != null) {
+            overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 16; i++) {
+                long start = get();
+                overhead = Math.min(overhead, get() - start);
+            }
+            overhead = Math.max(overhead, 0);
+        }
+        OVERHEAD = overhead;
+    }
+
+
+    private ThreadAllocation() {
+        // Utility class
+    }
+
+
+    /**
+     * @return <code>true</code> if the running JVM can report the bytes
+     *         allocated by a thread
+     */
+    static boolean isAvailable() {
+        return ALLOCATED_BYTES != null;
+    }
+
+
+    /**
+     * @return the total number of bytes allocated by the current thread so
+     *         far or <code>-1</code> if that isn't available
+     */
+    static long get() {
+        if (ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (long) ALLOCATED_BYTES.invokeExact(THREAD_BEAN,
+                    Thread.currentThread().getId());
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            return -1;
+        }
+    }
+
+
+    /**
+     * Calculate the bytes allocated by the current thread since an earlier
+     * call to {@link #get()}.
+     *
+     * @param start The value returned by the earlier call
+     *
+     * @return the allocated bytes or <code>-1</code> if that isn't available
+     */
+    static long since(long start) {
+        if (start < 0) {
+            return -1;
+        }
+        long end = get();
+        if (end < 0) {
+            return -1;
+        }
+        return Math.max(end - start - OVERHEAD, 0);
+    }
+}
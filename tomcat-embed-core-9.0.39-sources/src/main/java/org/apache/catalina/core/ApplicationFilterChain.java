@@ -19,6 +19,7 @@ package org.apache.catalina.core;
 import java.io.IOException;
 import java.security.Principal;
 import java.security.PrivilegedActionException;
+import java.util.Arrays;
 import java.util.Set;
 
 import javax.servlet.Filter;
@@ -66,12 +67,21 @@ public final class ApplicationFilterChain implements FilterChain {
     public static final int INCREMENT = 10;
 
 
+    private static final ApplicationFilterConfig[] NO_FILTERS = new ApplicationFilterConfig[0];
+
+
     // ----------------------------------------------------- Instance Variables
 
     /**
      * Filters.
      */
-    private ApplicationFilterConfig[] filters = new ApplicationFilterConfig[0];
+    private ApplicationFilterConfig[] filters = NO_FILTERS;
+
+
+    /**
+     * Is the filters array shared with other chains?
+     */
+    private boolean sharedFilters = false;
 
 
     /**
@@ -276,6 +286,11 @@ public final class ApplicationFilterChain implements FilterChain {
      */
     void addFilter(ApplicationFilterConfig filterConfig) {
 
+        if (sharedFilters) {
+            filters = Arrays.copyOf(filters, n + INCREMENT);
+            sharedFilters = false;
+        }
+
         // Prevent the same filter being added multiple times
         for(ApplicationFilterConfig filter:filters)
             if(filter==filterConfig)
@@ -292,12 +307,36 @@ public final class ApplicationFilterChain implements FilterChain {
     }
 
 
+    /**
+     * Use the given filters for this chain, replacing any added previously.
+     * The array is shared and is never modified by the chain.
+     *
+     * @param filters The filters to execute, in order
+     */
+    void setFilters(ApplicationFilterConfig[] filters) {
+        if (!sharedFilters) {
+            for (int i = 0; i < n; i++) {
+                this.filters[i] = null;
+            }
+        }
+        this.filters = filters;
+        this.n = filters.length;
+        this.pos = 0;
+        this.sharedFilters = true;
+    }
+
+
     /**
      * Release references to the filters and wrapper executed by this chain.
      */
     void release() {
-        for (int i = 0; i < n; i++) {
-            filters[i] = null;
+        if (sharedFilters) {
+            filters = NO_FILTERS;
+            sharedFilters = false;
+        } else {
+            for (int i = 0; i < n; i++) {
+                filters[i] = null;
+            }
         }
         n = 0;
         pos = 0;
@@ -16,6 +16,9 @@
  */
 package org.apache.catalina.core;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.servlet.DispatcherType;
 import javax.servlet.Servlet;
 import javax.servlet.ServletRequest;
@@ -81,10 +84,10 @@ public final class ApplicationFilterFactory {
 
         // Acquire the filter mappings for this Context
         StandardContext context = (StandardContext) wrapper.getParent();
-        FilterMap filterMaps[] = context.findFilterMaps();
+        FilterChainCache filterChainCache = context.getFilterChainCache();
 
         // If there are no filter mappings, we are done
-        if ((filterMaps == null) || (filterMaps.length == 0))
+        if (filterChainCache.isEmpty())
             return filterChain;
 
         // Acquire the information we will need to match filter mappings
@@ -99,6 +102,33 @@ public final class ApplicationFilterFactory {
 
         String servletName = wrapper.getName();
 
+        // The matching filters are resolved once per kind of request
+        filterChain.setFilters(
+                filterChainCache.findFilters(dispatcher, requestPath, servletName));
+
+        // Return the completed filter chain
+        return filterChain;
+    }
+
+
+    /**
+     * Find the filters matching a request, path-mapped filters first and
+     * filters matching on servlet name second.
+     *
+     * @param context The context the filter mappings belong to
+     * @param filterMaps The filter mappings of the context
+     * @param dispatcher The dispatcher type of the request
+     * @param requestPath Context-relative request path of the request
+     * @param servletName The name of the servlet the request is mapped to
+     *
+     * @return the matching filters, in execution order
+     */
+    static ApplicationFilterConfig[] matchFilters(StandardContext context,
+            FilterMap[] filterMaps, DispatcherType dispatcher, String requestPath,
+            String servletName) {
+
+        List<ApplicationFilterConfig> filters = new ArrayList<>();
+
         // Add the relevant path-mapped filters to this filter chain
         for (FilterMap filterMap : filterMaps) {
             if (!matchDispatcher(filterMap, dispatcher)) {
@@ -112,7 +142,7 @@ public final class ApplicationFilterFactory {
                 // FIXME - log configuration problem
                 continue;
             }
-            filterChain.addFilter(filterConfig);
+            addFilter(filters, filterConfig);
         }
 
         // Add filters that match on servlet name second
@@ -128,17 +158,29 @@ public final class ApplicationFilterFactory {
                 // FIXME - log configuration problem
                 continue;
             }
-            filterChain.addFilter(filterConfig);
+            addFilter(filters, filterConfig);
         }
 
-        // Return the completed filter chain
-        return filterChain;
+        return filters.toArray(new ApplicationFilterConfig[0]);
     }
 
 
     // -------------------------------------------------------- Private Methods
 
 
+    private static void addFilter(List<ApplicationFilterConfig> filters,
+            ApplicationFilterConfig filterConfig) {
+        // Prevent the same filter being added multiple times
+        for (ApplicationFilterConfig filter : filters) {
+            if (filter == filterConfig) {
+                return;
+            }
+        }
+        filters.add(filterConfig);
+    }
+
+
+
     /**
      * Return <code>true</code> if the context-relative request path
      * matches the requirements of the specified filter mapping;
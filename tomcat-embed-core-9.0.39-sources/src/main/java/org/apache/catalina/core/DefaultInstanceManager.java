@@ -19,9 +19,14 @@ package org.apache.catalina.core;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
@@ -34,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -107,6 +113,26 @@ public class DefaultInstanceManager implements InstanceManager {
     private final Set<String> restrictedClasses;
     private final ManagedConcurrentWeakHashMap<Class<?>, AnnotationCacheEntry[]> annotationCache =
             new ManagedConcurrentWeakHashMap<>();
+    /*
+     * The plans hold method handles that reference the class they were
+     * created for so they are held in a ClassValue rather than a weak map
+     * which would prevent the class from ever being unloaded.
+     */
+    private final ClassValue<InjectionPlanHolder> injectionPlans =
+            new ClassValue<InjectionPlanHolder>() {
+        @Override
+        protected InjectionPlanHolder computeValue(Class<?> type) {
+            return new InjectionPlanHolder();
+        }
+    };
+    private final LongAdder injectionPlanHits = new LongAdder();
+    private final LongAdder injectionPlanMisses = new LongAdder();
+    private final LongAdder emptyInjectionPlans = new LongAdder();
+    /*
+     * Sub-classes that override processAnnotations(), postConstruct() or
+     * preDestroy() have every instance go through those methods.
+     */
+    private final boolean useInjectionPlans;
     private final Map<String, String> postConstructMethods;
     private final Map<String, String> preDestroyMethods;
 
@@ -134,6 +160,7 @@ public class DefaultInstanceManager implements InstanceManager {
         this.injectionMap = injectionMap;
         this.postConstructMethods = catalinaContext.findPostConstructMethods();
         this.preDestroyMethods = catalinaContext.findPreDestroyMethods();
+        this.useInjectionPlans = !overridesAnnotationProcessing(getClass());
     }
 
     @Override
@@ -169,14 +196,156 @@ public class DefaultInstanceManager implements InstanceManager {
     private Object newInstance(Object instance, Class<?> clazz)
             throws IllegalAccessException, InvocationTargetException, NamingException {
         if (!ignoreAnnotations) {
-            Map<String, String> injections = assembleInjectionsFromClassHierarchy(clazz);
-            populateAnnotationsCache(clazz, injections);
-            processAnnotations(instance, injections);
-            postConstruct(instance, clazz);
+            if (useInjectionPlans) {
+                InjectionPlan plan = getInjectionPlan(clazz);
+                if (plan != InjectionPlan.EMPTY) {
+                    plan.inject(context, instance);
+                    plan.postConstruct(instance);
+                }
+            } else {
+                Map<String, String> injections = assembleInjectionsFromClassHierarchy(clazz);
+                populateAnnotationsCache(clazz, injections);
+                processAnnotations(instance, injections);
+                postConstruct(instance, clazz);
+            }
         }
         return instance;
     }
 
+
+    /*
+     * Obtain the injections and lifecycle callbacks for the whole class
+     * hierarchy, resolved to method handles the first time the class is used.
+     */
+    private InjectionPlan getInjectionPlan(Class<?> clazz)
+            throws IllegalAccessException, InvocationTargetException, NamingException {
+        InjectionPlanHolder holder = injectionPlans.get(clazz);
+        InjectionPlan plan = holder.plan;
+        if (plan != null) {
+            injectionPlanHits.increment();
+            return plan;
+        }
+        injectionPlanMisses.increment();
+        Map<String, String> injections = assembleInjectionsFromClassHierarchy(clazz);
+        populateAnnotationsCache(clazz, injections);
+        plan = createInjectionPlan(clazz);
+        if (plan == InjectionPlan.EMPTY) {
+            emptyInjectionPlans.increment();
+        }
+        holder.plan = plan;
+        return plan;
+    }
+
+
+    private InjectionPlan createInjectionPlan(Class<?> clazz) throws IllegalAccessException {
+        List<Injection> injections = new ArrayList<>();
+        List<MethodHandle> postConstructs = new ArrayList<>();
+        List<MethodHandle> preDestroys = new ArrayList<>();
+
+        // Same order as processAnnotations(), postConstruct() and preDestroy()
+        Class<?> current = clazz;
+        while (context != null && current != null) {
+            for (AnnotationCacheEntry entry : annotationCache.get(current)) {
+                if (entry.getType() == AnnotationCacheEntryType.SETTER) {
+                    Method method = getMethod(current, entry);
+                    if (!Introspection.isValidSetter(method)) {
+                        throw new IllegalArgumentException(
+                                sm.getString("defaultInstanceManager.invalidInjection"));
+                    }
+                    String name = normalize(entry.getName());
+                    if (name == null || name.length() == 0) {
+                        name = current.getName() + "/" + Introspection.getPropertyName(method);
+                    }
+                    injections.add(new Injection(name, method, method.getParameterTypes()[0]));
+                } else if (entry.getType() == AnnotationCacheEntryType.FIELD) {
+                    Field field = getField(current, entry);
+                    String name = normalize(entry.getName());
+                    if (name == null || name.length() == 0) {
+                        name = current.getName() + "/" + field.getName();
+                    }
+                    injections.add(new Injection(name, field, field.getType()));
+                }
+            }
+            current = current.getSuperclass();
+        }
+
+        current = clazz;
+        do {
+            for (AnnotationCacheEntry entry : annotationCache.get(current)) {
+                if (entry.getType() == AnnotationCacheEntryType.POST_CONSTRUCT) {
+                    if (context != null) {
+                        postConstructs.add(0, callbackHandle(getMethod(current, entry)));
+                    }
+                } else if (entry.getType() == AnnotationCacheEntryType.PRE_DESTROY) {
+                    preDestroys.add(0, callbackHandle(getMethod(current, entry)));
+                }
+            }
+            current = current.getSuperclass();
+        } while (current != null && current != Object.class);
+
+        if (injections.isEmpty() && postConstructs.isEmpty() && preDestroys.isEmpty()) {
+            return InjectionPlan.EMPTY;
+        }
+        return new InjectionPlan(injections.toArray(new Injection[0]),
+                postConstructs.toArray(new MethodHandle[0]),
+                preDestroys.toArray(new MethodHandle[0]));
+    }
+
+
+    private static boolean overridesAnnotationProcessing(Class<?> clazz) {
+        for (Class<?> current = clazz; current != DefaultInstanceManager.class;
+                current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                if (parameterTypes.length != 2 || parameterTypes[0] != Object.class) {
+                    continue;
+                }
+                String name = method.getName();
+                if (name.equals("processAnnotations") && parameterTypes[1] == Map.class ||
+                        (name.equals("postConstruct") || name.equals("preDestroy")) &&
+                        parameterTypes[1] == Class.class) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private static MethodHandle callbackHandle(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method).asType(CALLBACK_TYPE);
+    }
+
+
+    /**
+     * @return the number of instances created or injected for which the
+     *         injections and lifecycle callbacks of the class had already been
+     *         resolved
+     */
+    public long getInjectionPlanHitCount() {
+        return injectionPlanHits.sum();
+    }
+
+
+    /**
+     * @return the number of times the injections and lifecycle callbacks of a
+     *         class had to be resolved, normally once per class
+     */
+    public long getInjectionPlanMissCount() {
+        return injectionPlanMisses.sum();
+    }
+
+
+    /**
+     * @return the number of classes resolved that have no injections or
+     *         lifecycle callbacks and so need no further processing when an
+     *         instance is created
+     */
+    public long getEmptyInjectionPlanCount() {
+        return emptyInjectionPlans.sum();
+    }
+
     private Map<String, String> assembleInjectionsFromClassHierarchy(Class<?> clazz) {
         Map<String, String> injections = new HashMap<>();
         Map<String, String> currentInjections = null;
@@ -194,7 +363,15 @@ public class DefaultInstanceManager implements InstanceManager {
     public void destroyInstance(Object instance) throws IllegalAccessException,
             InvocationTargetException {
         if (!ignoreAnnotations) {
-            preDestroy(instance, instance.getClass());
+            Class<?> clazz = instance.getClass();
+            InjectionPlan plan = useInjectionPlans ? injectionPlans.get(clazz).plan : null;
+            if (plan != null) {
+                plan.preDestroy(instance);
+            } else {
+                // instance not created through the instance manager or
+                // annotation processing is overridden
+                preDestroy(instance, clazz);
+            }
         }
     }
 
@@ -772,6 +949,138 @@ public class DefaultInstanceManager implements InstanceManager {
     }
 
 
+    private static final MethodType CALLBACK_TYPE =
+            MethodType.methodType(void.class, Object.class);
+
+    private static final MethodType INJECTION_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+
+    private static final class InjectionPlanHolder {
+        private volatile InjectionPlan plan;
+    }
+
+
+    /**
+     * The resolved injections and lifecycle callbacks for a class and its
+     * super classes.
+     */
+    private static final class InjectionPlan {
+
+        private static final InjectionPlan EMPTY = new InjectionPlan(
+                new Injection[0], new MethodHandle[0], new MethodHandle[0]);
+
+        private final Injection[] injections;
+        private final MethodHandle[] postConstructs;
+        private final MethodHandle[] preDestroys;
+
+        private InjectionPlan(Injection[] injections, MethodHandle[] postConstructs,
+                MethodHandle[] preDestroys) {
+            this.injections = injections;
+            this.postConstructs = postConstructs;
+            this.preDestroys = preDestroys;
+        }
+
+        private void inject(Context context, Object instance)
+                throws NamingException, IllegalAccessException, InvocationTargetException {
+            for (Injection injection : injections) {
+                injection.inject(instance, context.lookup(injection.lookupName));
+            }
+        }
+
+        private void postConstruct(Object instance) throws InvocationTargetException {
+            invoke(postConstructs, instance);
+        }
+
+        private void preDestroy(Object instance) throws InvocationTargetException {
+            invoke(preDestroys, instance);
+        }
+
+        private static void invoke(MethodHandle[] callbacks, Object instance)
+                throws InvocationTargetException {
+            for (MethodHandle callback : callbacks) {
+                try {
+                    callback.invokeExact(instance);
+                } catch (Throwable t) {
+                    throw new InvocationTargetException(t);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A field or setter to inject with the result of a JNDI lookup.
+     */
+    private static final class Injection {
+
+        private final String lookupName;
+        private final AccessibleObject target;
+        private final Class<?> valueType;
+        private final boolean primitive;
+        private final MethodHandle handle;
+
+        private Injection(String lookupName, AccessibleObject target, Class<?> type) {
+            this.lookupName = lookupName;
+            this.target = target;
+            this.valueType = box(type);
+            this.primitive = type.isPrimitive();
+            target.setAccessible(true);
+            MethodHandle handle;
+            try {
+                if (target instanceof Field) {
+                    Field field = (Field) target;
+                    handle = MethodHandles.lookup().unreflectSetter(field);
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                    }
+                } else {
+                    Method method = (Method) target;
+                    handle = MethodHandles.lookup().unreflect(method);
+                    if (Modifier.isStatic(method.getModifiers())) {
+                        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                    }
+                }
+                handle = handle.asType(INJECTION_TYPE);
+            } catch (IllegalAccessException e) {
+                // Final fields. Reflection will report the error.
+                handle = null;
+            }
+            this.handle = handle;
+        }
+
+        private void inject(Object instance, Object value)
+                throws IllegalAccessException, InvocationTargetException {
+            if (handle == null || !(value == null ? !primitive : valueType.isInstance(value))) {
+                // Let reflection handle (or reject) anything that needs
+                // more than a cast
+                if (target instanceof Field) {
+                    ((Field) target).set(instance, value);
+                } else {
+                    ((Method) target).invoke(instance, value);
+                }
+                return;
+            }
+            try {
+                handle.invokeExact(instance, value);
+            } catch (Throwable t) {
+                if (target instanceof Field) {
+                    ExceptionUtils.handleThrowable(t);
+                    throw new IllegalArgumentException(t);
+                }
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private static Class<?> box(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            }
+            return MethodType.methodType(type).wrap().returnType();
+        }
+    }
+
+
     private static class PrivilegedGetField implements PrivilegedAction<Field> {
 
         private final Class<?> clazz;
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.core;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.DispatcherType;
+
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+/**
+ * Cache of the filters to execute for a request, built from a snapshot of the
+ * filter mappings of a {@link StandardContext}.
+ * <p>
+ * Which filter mappings match a request only depends on the dispatcher type,
+ * the servlet name and, for the URL patterns, on which exact pattern, which
+ * deepest path pattern and which extension pattern match the request path.
+ * These form the key of the cache so the number of entries is bounded by the
+ * configuration rather than by the number of distinct request paths. The
+ * context replaces the cache whenever its filter mappings or filter
+ * configurations change.
+ */
+final class FilterChainCache {
+
+    /**
+     * Upper bound on the number of cached filter lists. Only reached with
+     * very large numbers of servlets and filter mappings, in which case the
+     * remaining combinations are resolved on every request.
+     */
+    private static final int MAX_SIZE = 4096;
+
+    private static final ApplicationFilterConfig[] NO_FILTERS = new ApplicationFilterConfig[0];
+
+    private final StandardContext context;
+    private final FilterMap[] filterMaps;
+    private final int version;
+
+    private final Set<String> exactPatterns = new HashSet<>();
+    private final Set<String> pathPatterns = new HashSet<>();
+    private final Set<String> extensionPatterns = new HashSet<>();
+    private int maxPathPatternLength = -1;
+
+    private final ConcurrentMap<Key, ApplicationFilterConfig[]> filters =
+            new ConcurrentHashMap<>();
+
+
+    FilterChainCache(StandardContext context, FilterMap[] filterMaps, int version) {
+        this.context = context;
+        this.filterMaps = filterMaps;
+        this.version = version;
+        for (FilterMap filterMap : filterMaps) {
+            for (String urlPattern : filterMap.getURLPatterns()) {
+                if (urlPattern == null) {
+                    continue;
+                }
+                exactPatterns.add(urlPattern);
+                if (urlPattern.endsWith("/*") && !urlPattern.equals("/*")) {
+                    String path = urlPattern.substring(0, urlPattern.length() - 2);
+                    pathPatterns.add(path);
+                    maxPathPatternLength = Math.max(maxPathPatternLength, path.length());
+                } else if (urlPattern.startsWith("*.")) {
+                    extensionPatterns.add(urlPattern.substring(2));
+                }
+            }
+        }
+    }
+
+
+    int getVersion() {
+        return version;
+    }
+
+
+    boolean isEmpty() {
+        return filterMaps.length == 0;
+    }
+
+
+    /**
+     * Find the filters to execute for a request.
+     *
+     * @param dispatcher The dispatcher type of the request
+     * @param requestPath The context relative request path, if any
+     * @param servletName The name of the target servlet
+     *
+     * @return the filters, in the order they have to be executed. The returned
+     *         array is shared and must not be modified.
+     */
+    ApplicationFilterConfig[] findFilters(DispatcherType dispatcher,
+            String requestPath, String servletName) {
+        if (filterMaps.length == 0) {
+            return NO_FILTERS;
+        }
+        Key key = new Key(dispatcher, servletName, requestPath != null,
+                matchExact(requestPath), matchPath(requestPath),
+                matchExtension(requestPath));
+        ApplicationFilterConfig[] result = filters.get(key);
+        if (result == null) {
+            result = ApplicationFilterFactory.matchFilters(
+                    context, filterMaps, dispatcher, requestPath, servletName);
+            if (filters.size() < MAX_SIZE) {
+                filters.putIfAbsent(key, result);
+            }
+        }
+        return result;
+    }
+
+
+    private String matchExact(String requestPath) {
+        if (requestPath == null || !exactPatterns.contains(requestPath)) {
+            return null;
+        }
+        return requestPath;
+    }
+
+
+    /*
+     * A request path matching a path pattern also matches every path pattern
+     * that is a shorter prefix of it, so the deepest match identifies all of
+     * them.
+     */
+    private String matchPath(String requestPath) {
+        if (requestPath == null || pathPatterns.isEmpty()) {
+            return null;
+        }
+        int end = requestPath.length();
+        while (end >= 0) {
+            if (end <= maxPathPatternLength) {
+                String path = requestPath.substring(0, end);
+                if (pathPatterns.contains(path)) {
+                    return path;
+                }
+            }
+            end = requestPath.lastIndexOf('/', end - 1);
+        }
+        return null;
+    }
+
+
+    private String matchExtension(String requestPath) {
+        if (requestPath == null || extensionPatterns.isEmpty()) {
+            return null;
+        }
+        int slash = requestPath.lastIndexOf('/');
+        int period = requestPath.lastIndexOf('.');
+        if (slash >= 0 && period > slash && period != requestPath.length() - 1) {
+            String extension = requestPath.substring(period + 1);
+            if (extensionPatterns.contains(extension)) {
+                return extension;
+            }
+        }
+        return null;
+    }
+
+
+    private static final class Key {
+
+        private final DispatcherType dispatcher;
+        private final String servletName;
+        private final boolean hasRequestPath;
+        private final String exact;
+        private final String path;
+        private final String extension;
+        private final int hashCode;
+
+        Key(DispatcherType dispatcher, String servletName, boolean hasRequestPath,
+                String exact, String path, String extension) {
+            this.dispatcher = dispatcher;
+            this.servletName = servletName;
+            this.hasRequestPath = hasRequestPath;
+            this.exact = exact;
+            this.path = path;
+            this.extension = extension;
+            this.hashCode = Objects.hash(dispatcher, servletName,
+                    Boolean.valueOf(hasRequestPath), exact, path, extension);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return dispatcher == other.dispatcher &&
+                    hasRequestPath == other.hasRequestPath &&
+                    Objects.equals(servletName, other.servletName) &&
+                    Objects.equals(exact, other.exact) &&
+                    Objects.equals(path, other.path) &&
+                    Objects.equals(extension, other.extension);
+        }
+    }
+}
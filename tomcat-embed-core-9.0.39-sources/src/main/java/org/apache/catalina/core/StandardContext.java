@@ -40,7 +40,12 @@ import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -93,6 +98,8 @@ import org.apache.catalina.Loader;
 import org.apache.catalina.Manager;
 import org.apache.catalina.Pipeline;
 import org.apache.catalina.Realm;
+import org.apache.catalina.Server;
+import org.apache.catalina.Service;
 import org.apache.catalina.ThreadBindingListener;
 import org.apache.catalina.Valve;
 import org.apache.catalina.WebResource;
@@ -398,6 +405,18 @@ public class StandardContext extends ContainerBase implements Context, Notificat
      */
     private final ContextFilterMaps filterMaps = new ContextFilterMaps();
 
+
+    /**
+     * The filters resolved for each kind of request from the current filter
+     * mappings and filter configurations.
+     */
+    private volatile FilterChainCache filterChainCache = null;
+
+    /**
+     * Incremented whenever the filter mappings or filter configurations change.
+     */
+    private final AtomicInteger filterChainCacheVersion = new AtomicInteger();
+
     /**
      * Ignore annotations.
      */
@@ -835,6 +854,8 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
     private boolean parallelAnnotationScanning = false;
 
+    private boolean phasedStartup = false;
+
     private boolean useBloomFilterForArchives = false;
 
     // ----------------------------------------------------- Context Properties
@@ -1447,6 +1468,36 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    /**
+     * Set whether the phases of the start of this context that do not depend
+     * on each other are run concurrently on the utility executor of the
+     * Server. When enabled, the JARs in /WEB-INF/lib are opened concurrently,
+     * the required extensions are validated while the loader starts,
+     * annotations are scanned in parallel and the Manager starts (loading any
+     * persisted sessions) while the filters are initialized.
+     *
+     * @param phasedStartup <code>true</code> to run independent startup
+     *                      phases concurrently
+     */
+    public void setPhasedStartup(boolean phasedStartup) {
+
+        boolean oldPhasedStartup = this.phasedStartup;
+        this.phasedStartup = phasedStartup;
+        support.firePropertyChange("phasedStartup", oldPhasedStartup,
+                this.phasedStartup);
+
+    }
+
+
+    /**
+     * @return <code>true</code> if independent phases of the start of this
+     *         context are run concurrently
+     */
+    public boolean getPhasedStartup() {
+        return this.phasedStartup;
+    }
+
+
     /**
      * @return the Locale to character set mapper for this Context.
      */
@@ -3018,6 +3069,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         validateFilterMap(filterMap);
         // Add this filter mapping to our registered set
         filterMaps.add(filterMap);
+        invalidateFilterChainCache();
         fireContainerEvent("addFilterMap", filterMap);
     }
 
@@ -3037,6 +3089,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         validateFilterMap(filterMap);
         // Add this filter mapping to our registered set
         filterMaps.addBefore(filterMap);
+        invalidateFilterChainCache();
         fireContainerEvent("addFilterMap", filterMap);
     }
 
@@ -3987,6 +4040,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     @Override
     public void removeFilterMap(FilterMap filterMap) {
         filterMaps.remove(filterMap);
+        invalidateFilterChainCache();
         // Inform interested listeners
         fireContainerEvent("removeFilterMap", filterMap);
     }
@@ -4579,6 +4633,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
             }
         }
+        invalidateFilterChainCache();
 
         return ok;
     }
@@ -4604,11 +4659,33 @@ public class StandardContext extends ContainerBase implements Context, Notificat
             }
             filterConfigs.clear();
         }
+        invalidateFilterChainCache();
         return true;
 
     }
 
 
+    /**
+     * @return the cache of the filters to execute for each kind of request,
+     *         built from the current filter mappings if necessary
+     */
+    FilterChainCache getFilterChainCache() {
+        int version = filterChainCacheVersion.get();
+        FilterChainCache cache = filterChainCache;
+        if (cache == null || cache.getVersion() != version) {
+            cache = new FilterChainCache(this, findFilterMaps(), version);
+            filterChainCache = cache;
+        }
+        return cache;
+    }
+
+
+    private void invalidateFilterChainCache() {
+        filterChainCacheVersion.incrementAndGet();
+        filterChainCache = null;
+    }
+
+
     /**
      * Find and return the initialized <code>FilterConfig</code> for the
      * specified filter name, if any; otherwise return <code>null</code>.
@@ -4832,7 +4909,17 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         // Check current status in case resources were added that had already
         // been started
         if (!resources.getState().isAvailable()) {
-            resources.start();
+            if (resources instanceof StandardRoot) {
+                StandardRoot root = (StandardRoot) resources;
+                root.setStartExecutor(getStartupPhaseExecutor());
+                try {
+                    resources.start();
+                } finally {
+                    root.setStartExecutor(null);
+                }
+            } else {
+                resources.start();
+            }
         }
 
         if (effectiveMajorVersion >=3 && addWebinfClassesResources) {
@@ -4973,7 +5060,13 @@ public class StandardContext extends ContainerBase implements Context, Notificat
             }
         }
         if (ok) {
-            resourcesStart();
+            startupPhaseStarted("resources");
+            long phaseStart = System.nanoTime();
+            try {
+                resourcesStart();
+            } finally {
+                startupPhaseCompleted("resources", System.nanoTime() - phaseStart);
+            }
         }
 
         if (getLoader() == null) {
@@ -4990,19 +5083,17 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         // Initialize character set mapper
         getCharsetMapper();
 
-        // Validate required extensions
-        boolean dependencyCheck = true;
-        try {
-            dependencyCheck = ExtensionValidator.validateApplication
-                (getResources(), this);
-        } catch (IOException ioe) {
-            log.error(sm.getString("standardContext.extensionValidationError"), ioe);
-            dependencyCheck = false;
-        }
+        // Validate required extensions. For a phased startup this runs while
+        // the loader starts and the result is checked once it has started.
+        StartupPhase<Boolean> extensionValidation = forkStartupPhase(
+                "extensionValidation",
+                () -> Boolean.valueOf(ExtensionValidator.validateApplication(getResources(), this)),
+                false);
 
-        if (!dependencyCheck) {
+        if (!phasedStartup) {
             // do not make application available if dependency check fails
-            ok = false;
+            ok = joinStartupPhase(extensionValidation, IOException.class,
+                    "standardContext.extensionValidationError") && ok;
         }
 
         // Reading the "catalina.useNaming" environment variable
@@ -5030,14 +5121,29 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         // Binding thread
         ClassLoader oldCCL = bindThread();
 
+        StartupPhase<Boolean> managerStart = null;
         try {
             if (ok) {
                 // Start our subordinate components, if any
-                Loader loader = getLoader();
-                if (loader instanceof Lifecycle) {
-                    ((Lifecycle) loader).start();
+                startupPhaseStarted("loader");
+                long phaseStart = System.nanoTime();
+                try {
+                    Loader loader = getLoader();
+                    if (loader instanceof Lifecycle) {
+                        ((Lifecycle) loader).start();
+                    }
+                } finally {
+                    startupPhaseCompleted("loader", System.nanoTime() - phaseStart);
                 }
+            }
+
+            if (phasedStartup) {
+                // do not make application available if dependency check fails
+                ok = joinStartupPhase(extensionValidation, IOException.class,
+                        "standardContext.extensionValidationError") && ok;
+            }
 
+            if (ok) {
                 // since the loader just started, the webapp classloader is now
                 // created.
                 setClassLoaderProperty("clearReferencesRmiTargets",
@@ -5089,7 +5195,13 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
 
                 // Notify our interested LifecycleListeners
-                fireLifecycleEvent(Lifecycle.CONFIGURE_START_EVENT, null);
+                startupPhaseStarted("configure");
+                long phaseStart = System.nanoTime();
+                try {
+                    fireLifecycleEvent(Lifecycle.CONFIGURE_START_EVENT, null);
+                } finally {
+                    startupPhaseCompleted("configure", System.nanoTime() - phaseStart);
+                }
 
                 // Start our child containers, if not already started
                 for (Container child : findChildren()) {
@@ -5186,9 +5298,15 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
             // Configure and call application event listeners
             if (ok) {
-                if (!listenerStart()) {
-                    log.error(sm.getString("standardContext.listenerFail"));
-                    ok = false;
+                startupPhaseStarted("listeners");
+                long phaseStart = System.nanoTime();
+                try {
+                    if (!listenerStart()) {
+                        log.error(sm.getString("standardContext.listenerFail"));
+                        ok = false;
+                    }
+                } finally {
+                    startupPhaseCompleted("listeners", System.nanoTime() - phaseStart);
                 }
             }
 
@@ -5199,36 +5317,62 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 checkConstraintsForUncoveredMethods(findConstraints());
             }
 
-            try {
-                // Start manager
+            // Start manager. For a phased startup this runs while the filters
+            // are initialized.
+            managerStart = forkStartupPhase("manager", () -> {
                 Manager manager = getManager();
                 if (manager instanceof Lifecycle) {
                     ((Lifecycle) manager).start();
                 }
-            } catch(Exception e) {
-                log.error(sm.getString("standardContext.managerFail"), e);
-                ok = false;
+                return Boolean.TRUE;
+            }, true);
+
+            if (!phasedStartup) {
+                ok = joinStartupPhase(managerStart, Exception.class,
+                        "standardContext.managerFail") && ok;
             }
 
             // Configure and call application filters
             if (ok) {
-                if (!filterStart()) {
-                    log.error(sm.getString("standardContext.filterFail"));
-                    ok = false;
+                startupPhaseStarted("filters");
+                long phaseStart = System.nanoTime();
+                try {
+                    if (!filterStart()) {
+                        log.error(sm.getString("standardContext.filterFail"));
+                        ok = false;
+                    }
+                } finally {
+                    startupPhaseCompleted("filters", System.nanoTime() - phaseStart);
                 }
             }
 
+            if (phasedStartup) {
+                ok = joinStartupPhase(managerStart, Exception.class,
+                        "standardContext.managerFail") && ok;
+            }
+
             // Load and initialize all "load on startup" servlets
             if (ok) {
-                if (!loadOnStartup(findChildren())){
-                    log.error(sm.getString("standardContext.servletFail"));
-                    ok = false;
+                startupPhaseStarted("loadOnStartup");
+                long phaseStart = System.nanoTime();
+                try {
+                    if (!loadOnStartup(findChildren())){
+                        log.error(sm.getString("standardContext.servletFail"));
+                        ok = false;
+                    }
+                } finally {
+                    startupPhaseCompleted("loadOnStartup", System.nanoTime() - phaseStart);
                 }
             }
 
             // Start ContainerBackgroundProcessor thread
             super.threadStart();
         } finally {
+            // Don't leave a phase running if startup ended with an exception
+            if (managerStart != null) {
+                abortStartupPhase(managerStart);
+            }
+            abortStartupPhase(extensionValidation);
             // Unbinding thread
             unbindThread(oldCCL);
         }
@@ -5272,6 +5416,108 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    /**
+     * Called on the thread starting this context each time a phase of the
+     * start begins. Phases that run concurrently begin when they are forked,
+     * so the phases of a context always begin and complete in nested order.
+     * Sub-classes may override this together with
+     * {@link #startupPhaseCompleted(String, long)} to record the timings.
+     *
+     * @param phase The name of the phase
+     */
+    protected void startupPhaseStarted(String phase) {
+        // NO-OP
+    }
+
+
+    /**
+     * Called on the thread starting this context each time a phase of the
+     * start completes. Phases that run concurrently complete when they are
+     * joined. Sub-classes may override this to record the timings.
+     *
+     * @param phase         The name of the phase
+     * @param durationNanos The time taken by the phase in nanoseconds
+     */
+    protected void startupPhaseCompleted(String phase, long durationNanos) {
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("standardContext.startupPhase", getName(), phase,
+                    Long.valueOf(TimeUnit.NANOSECONDS.toMillis(durationNanos))));
+        }
+    }
+
+
+    private Executor getStartupPhaseExecutor() {
+        if (!phasedStartup) {
+            return null;
+        }
+        Service service = Container.getService(this);
+        Server server = (service == null) ? null : service.getServer();
+        return (server == null) ? null : server.getUtilityExecutor();
+    }
+
+
+    private StartupPhase<Boolean> forkStartupPhase(String name, Callable<Boolean> callable,
+            boolean bind) {
+        startupPhaseStarted(name);
+        Executor executor = getStartupPhaseExecutor();
+        if (executor == null || !bind) {
+            return new StartupPhase<>(name, callable).fork(executor);
+        }
+        // The phase may end up running on the starting thread if it is joined
+        // before the executor picks it up and that thread is already bound
+        Thread startingThread = Thread.currentThread();
+        return new StartupPhase<>(name, () -> {
+            if (Thread.currentThread() == startingThread) {
+                return callable.call();
+            }
+            ClassLoader oldCCL = bindThread();
+            try {
+                return callable.call();
+            } finally {
+                unbindThread(oldCCL);
+            }
+        }).fork(executor);
+    }
+
+
+    private boolean joinStartupPhase(StartupPhase<Boolean> phase,
+            Class<? extends Exception> handledType, String errorKey) {
+        try {
+            return phase.join().booleanValue();
+        } catch (ExecutionException e) {
+            // Only the exceptions that the phase handled when run inline are
+            // logged. Anything else is thrown to the caller as before.
+            Throwable cause = e.getCause();
+            if (!handledType.isInstance(cause)) {
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+            }
+            log.error(sm.getString(errorKey), cause);
+            return false;
+        } finally {
+            phase.setCompleted();
+            startupPhaseCompleted(phase.getName(), phase.getDurationNanos());
+        }
+    }
+
+
+    /*
+     * Waits for a phase that startup may have failed to join, and completes
+     * it if it has not been joined.
+     */
+    private void abortStartupPhase(StartupPhase<Boolean> phase) {
+        phase.await();
+        if (!phase.isCompleted()) {
+            phase.setCompleted();
+            startupPhaseCompleted(phase.getName(), phase.getDurationNanos());
+        }
+    }
+
+
     private void checkConstraintsForUncoveredMethods(
             SecurityConstraint[] constraints) {
         SecurityConstraint[] newConstraints =
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A step of {@link StandardContext} startup that may run concurrently with
+ * the steps that do not depend on it. A phase is forked onto an executor and
+ * later joined by the thread starting the context. Joining a phase that no
+ * executor thread has picked up yet runs it on the joining thread, so a busy
+ * or saturated executor can delay startup but never deadlock it.
+ *
+ * @param <V> The type of the result of the phase
+ */
+final class StartupPhase<V> {
+
+    private final String name;
+    private final FutureTask<V> task;
+    private volatile long durationNanos;
+    private boolean completed;
+
+
+    StartupPhase(String name, Callable<V> callable) {
+        this.name = name;
+        this.task = new FutureTask<>(() -> {
+            long start = System.nanoTime();
+            try {
+                return callable.call();
+            } finally {
+                durationNanos = System.nanoTime() - start;
+            }
+        });
+    }
+
+
+    String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return the time taken to run the phase in nanoseconds, only valid
+     *         once the phase has been joined
+     */
+    long getDurationNanos() {
+        return durationNanos;
+    }
+
+
+    /**
+     * @return <code>true</code> if the completion of the phase has been
+     *         reported by the thread that forked it
+     */
+    boolean isCompleted() {
+        return completed;
+    }
+
+
+    /**
+     * Record that the thread that forked the phase has reported its
+     * completion.
+     */
+    void setCompleted() {
+        completed = true;
+    }
+
+
+    /**
+     * Start the phase on the given executor.
+     *
+     * @param executor The executor to use or <code>null</code> to run the
+     *                 phase on the calling thread
+     *
+     * @return this phase
+     */
+    StartupPhase<V> fork(Executor executor) {
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The phase will run when it is joined
+            }
+        }
+        return this;
+    }
+
+
+    /**
+     * Wait for the phase to complete, running it on the calling thread if it
+     * has not been started yet.
+     *
+     * @return the result of the phase
+     *
+     * @throws ExecutionException if the phase failed
+     */
+    V join() throws ExecutionException {
+        // A no-op if the phase is running or has completed
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Wait for the phase to complete, ignoring any failure.
+     */
+    void await() {
+        try {
+            join();
+        } catch (ExecutionException e) {
+            // Ignore
+        }
+    }
+}
@@ -318,7 +318,7 @@ public class DataSourceRealm extends RealmBase {
         }
 
         // Validate the user's credentials
-        boolean validated = getCredentialHandler().matches(credentials, dbCredentials);
+        boolean validated = credentialsMatch(credentials, dbCredentials);
 
         if (validated) {
             if (containerLog.isTraceEnabled())
@@ -392,7 +392,7 @@ public class JDBCRealm
         }
 
         // Validate the user's credentials
-        boolean validated = getCredentialHandler().matches(credentials, dbCredentials);
+        boolean validated = credentialsMatch(credentials, dbCredentials);
 
         if (validated) {
             if (containerLog.isTraceEnabled())
@@ -1791,7 +1791,7 @@ public class JNDIRealm extends RealmBase {
 
         String password = info.getPassword();
 
-        return getCredentialHandler().matches(credentials, password);
+        return credentialsMatch(credentials, password);
     }
 
 
@@ -19,8 +19,11 @@ package org.apache.catalina.realm;
 
 import java.security.Principal;
 import java.security.cert.X509Certificate;
-import java.util.LinkedHashMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.catalina.LifecycleException;
@@ -34,14 +37,19 @@ import org.ietf.jgss.GSSName;
 /**
  * This class extends the CombinedRealm (hence it can wrap other Realms) to
  * provide a user lock out mechanism if there are too many failed
- * authentication attempts in a given period of time. To ensure correct
- * operation, there is a reasonable degree of synchronisation in this Realm.
+ * authentication attempts in a given period of time. Failed authentications
+ * are tracked in a concurrent map so concurrent authentication attempts do not
+ * contend on a single lock.
  * This Realm does not require modification to the underlying Realms or the
  * associated user storage mechanisms. It achieves this by recording all failed
  * logins, including those for users that do not exist. To prevent a DOS by
  * deliberating making requests with invalid users (and hence causing this cache
  * to grow) the size of the list of users that have failed authentication is
- * limited.
+ * limited. Once the limit is reached, users are removed in approximately
+ * least recently used order: the user that failed authentication first is
+ * removed unless it has been looked up or has failed again since it was last
+ * considered, in which case it is given a second chance and the next user is
+ * considered instead.
  */
 public class LockOutRealm extends CombinedRealm {
 
@@ -74,11 +82,21 @@ public class LockOutRealm extends CombinedRealm {
     protected int cacheRemovalWarningTime = 3600;
 
     /**
-     * Users whose last authentication attempt failed. Entries will be ordered
-     * in access order from least recent to most recent.
+     * Users whose last authentication attempt failed. Once more than
+     * {@link #cacheSize} users have been added the least recently used users
+     * are removed.
      */
     protected Map<String,LockRecord> failedUsers = null;
 
+    /*
+     * The records in failedUsers, in the order in which they are considered
+     * for removal. Records are removed from the queue along with the user
+     * after a successful authentication. Records that are nevertheless no
+     * longer in failedUsers when they reach the head of the queue are skipped.
+     */
+    private final Queue<Map.Entry<String,LockRecord>> failureOrder =
+            new ConcurrentLinkedQueue<>();
+
 
     /**
      * Prepare for the beginning of active use of the public methods of this
@@ -90,28 +108,8 @@ public class LockOutRealm extends CombinedRealm {
      */
     @Override
     protected synchronized void startInternal() throws LifecycleException {
-        // Configure the list of failed users to delete the oldest entry once it
-        // exceeds the specified size
-        failedUsers = new LinkedHashMap<String, LockRecord>(cacheSize, 0.75f,
-                true) {
-            private static final long serialVersionUID = 1L;
-            @Override
-            protected boolean removeEldestEntry(
-                    Map.Entry<String, LockRecord> eldest) {
-                if (size() > cacheSize) {
-                    // Check to see if this element has been removed too quickly
-                    long timeInCache = (System.currentTimeMillis() -
-                            eldest.getValue().getLastFailureTime())/1000;
-
-                    if (timeInCache < cacheRemovalWarningTime) {
-                        log.warn(sm.getString("lockOutRealm.removeWarning",
-                                eldest.getKey(), Long.valueOf(timeInCache)));
-                    }
-                    return true;
-                }
-                return false;
-            }
-        };
+        failedUsers = new ConcurrentHashMap<>(Math.min(cacheSize, 1024));
+        failureOrder.clear();
 
         super.startInternal();
     }
@@ -255,15 +253,17 @@ public class LockOutRealm extends CombinedRealm {
      * attempt to authenticated a locked user will log a warning.
      */
     public boolean isLocked(String username) {
-        LockRecord lockRecord = null;
-        synchronized (this) {
-            lockRecord = failedUsers.get(username);
+        if (username == null) {
+            return false;
         }
 
+        LockRecord lockRecord = failedUsers.get(username);
+
         // No lock record means user can't be locked
         if (lockRecord == null) {
             return false;
         }
+        lockRecord.markUsed();
 
         // Check to see if user is locked
         if (lockRecord.getFailures() >= failureCount &&
@@ -281,9 +281,15 @@ public class LockOutRealm extends CombinedRealm {
      * After successful authentication, any record of previous authentication
      * failure is removed.
      */
-    private synchronized void registerAuthSuccess(String username) {
+    private void registerAuthSuccess(String username) {
+        if (username == null) {
+            return;
+        }
         // Successful authentication means removal from the list of failed users
-        failedUsers.remove(username);
+        LockRecord lockRecord = failedUsers.remove(username);
+        if (lockRecord != null) {
+            failureOrder.remove(new SimpleImmutableEntry<>(username, lockRecord));
+        }
     }
 
 
@@ -292,27 +298,71 @@ public class LockOutRealm extends CombinedRealm {
      * authentication.
      */
     private void registerAuthFailure(String username) {
-        LockRecord lockRecord = null;
-        synchronized (this) {
-            if (!failedUsers.containsKey(username)) {
-                lockRecord = new LockRecord();
-                failedUsers.put(username, lockRecord);
-            } else {
-                lockRecord = failedUsers.get(username);
-                if (lockRecord.getFailures() >= failureCount &&
-                        ((System.currentTimeMillis() -
-                                lockRecord.getLastFailureTime())/1000)
-                                > lockOutTime) {
-                    // User was previously locked out but lockout has now
-                    // expired so reset failure count
-                    lockRecord.setFailures(0);
+        if (username == null) {
+            return;
+        }
+
+        LockRecord lockRecord = failedUsers.get(username);
+        if (lockRecord == null) {
+            LockRecord newRecord = new LockRecord();
+            lockRecord = failedUsers.putIfAbsent(username, newRecord);
+            if (lockRecord == null) {
+                lockRecord = newRecord;
+                failureOrder.offer(new SimpleImmutableEntry<>(username, newRecord));
+                if (failedUsers.size() > cacheSize) {
+                    removeOldestFailures();
                 }
             }
+        } else if (lockRecord.getFailures() >= failureCount &&
+                ((System.currentTimeMillis() -
+                        lockRecord.getLastFailureTime())/1000)
+                        > lockOutTime) {
+            // User was previously locked out but lockout has now
+            // expired so reset failure count
+            lockRecord.setFailures(0);
         }
         lockRecord.registerFailure();
     }
 
 
+    /*
+     * Removes the least recently used users to keep the number of tracked
+     * users within cacheSize. Users that have been used since they were last
+     * considered are moved to the back of the queue once instead, so the cost
+     * is bounded by the number of tracked users.
+     */
+    private void removeOldestFailures() {
+        int secondChances = cacheSize;
+        while (failedUsers.size() > cacheSize) {
+            Map.Entry<String,LockRecord> eldest = failureOrder.poll();
+            if (eldest == null) {
+                return;
+            }
+
+            String eldestUser = eldest.getKey();
+            LockRecord eldestRecord = eldest.getValue();
+            if (failedUsers.get(eldestUser) != eldestRecord) {
+                // Stale entry, not counted against the cache size
+                continue;
+            }
+            if (eldestRecord.clearUsed() && secondChances-- > 0) {
+                failureOrder.offer(eldest);
+                continue;
+            }
+            if (failedUsers.remove(eldestUser, eldestRecord)) {
+                // Check to see if this element has been removed too quickly
+                long timeInCache = (System.currentTimeMillis() -
+                        eldestRecord.getLastFailureTime())/1000;
+
+                if (timeInCache < cacheRemovalWarningTime) {
+                    log.warn(sm.getString("lockOutRealm.removeWarning",
+                            eldestUser, Long.valueOf(timeInCache)));
+                }
+            }
+        }
+    }
+
+
     /**
      * Get the number of failed authentication attempts required to lock the
      * user account.
@@ -395,7 +445,8 @@ public class LockOutRealm extends CombinedRealm {
 
     protected static class LockRecord {
         private final AtomicInteger failures = new AtomicInteger(0);
-        private long lastFailureTime = 0;
+        private volatile long lastFailureTime = 0;
+        private volatile boolean used = false;
 
         public int getFailures() {
             return failures.get();
@@ -412,6 +463,22 @@ public class LockOutRealm extends CombinedRealm {
         public void registerFailure() {
             failures.incrementAndGet();
             lastFailureTime = System.currentTimeMillis();
+            markUsed();
+        }
+
+        private void markUsed() {
+            // Avoid writing the shared field on every look up
+            if (!used) {
+                used = true;
+            }
+        }
+
+        private boolean clearUsed() {
+            if (used) {
+                used = false;
+                return true;
+            }
+            return false;
         }
     }
 }
@@ -129,7 +129,7 @@ public class MemoryRealm  extends RealmBase {
             return null;
         }
 
-        boolean validated = getCredentialHandler().matches(credentials, principal.getPassword());
+        boolean validated = credentialsMatch(credentials, principal.getPassword());
 
         if (validated) {
             if (log.isDebugEnabled())
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.security.cert.X509Certificate;
@@ -146,6 +147,24 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
     private int transportGuaranteeRedirectStatus = HttpServletResponse.SC_FOUND;
 
 
+    /**
+     * The maximum number of successfully verified credentials to remember so
+     * that repeated authentication with the same credentials does not have to
+     * run the credential handler again. Zero disables the cache.
+     */
+    private int verifiedCredentialCacheSize = 0;
+
+
+    /**
+     * The time (in seconds) for which a successful credential verification is
+     * remembered.
+     */
+    private int verifiedCredentialCacheTimeout = 60;
+
+
+    private volatile VerifiedCredentialCache verifiedCredentialCache = null;
+
+
     // ------------------------------------------------------------- Properties
 
     /**
@@ -179,6 +198,54 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
     @Override
     public void setCredentialHandler(CredentialHandler credentialHandler) {
         this.credentialHandler = credentialHandler;
+        VerifiedCredentialCache cache = verifiedCredentialCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+
+    /**
+     * @return the maximum number of successfully verified credentials that
+     *         are remembered. Zero means the cache is disabled.
+     */
+    public int getVerifiedCredentialCacheSize() {
+        return verifiedCredentialCacheSize;
+    }
+
+
+    /**
+     * Set the maximum number of successfully verified credentials to remember.
+     * While a presented credential is remembered, authenticating with it again
+     * does not run the (possibly deliberately slow) credential handler. Only an
+     * HMAC of the presented and stored credentials is kept. Takes effect when
+     * the Realm is next started.
+     *
+     * @param verifiedCredentialCacheSize The size of the cache. Zero disables
+     *                                    the cache
+     */
+    public void setVerifiedCredentialCacheSize(int verifiedCredentialCacheSize) {
+        this.verifiedCredentialCacheSize = verifiedCredentialCacheSize;
+    }
+
+
+    /**
+     * @return the time in seconds for which a successful credential
+     *         verification is remembered
+     */
+    public int getVerifiedCredentialCacheTimeout() {
+        return verifiedCredentialCacheTimeout;
+    }
+
+
+    /**
+     * Set the time for which a successful credential verification is
+     * remembered. Takes effect when the Realm is next started.
+     *
+     * @param verifiedCredentialCacheTimeout The time in seconds
+     */
+    public void setVerifiedCredentialCacheTimeout(int verifiedCredentialCacheTimeout) {
+        this.verifiedCredentialCacheTimeout = verifiedCredentialCacheTimeout;
     }
 
 
@@ -349,7 +416,7 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
             return null;
         }
 
-        boolean validated = getCredentialHandler().matches(credentials, serverCredentials);
+        boolean validated = credentialsMatch(credentials, serverCredentials);
 
         if (validated) {
             if (containerLog.isTraceEnabled()) {
@@ -1107,6 +1174,15 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
             credentialHandler = new MessageDigestCredentialHandler();
         }
 
+        if (verifiedCredentialCacheSize > 0 && verifiedCredentialCacheTimeout > 0) {
+            try {
+                verifiedCredentialCache = new VerifiedCredentialCache(verifiedCredentialCacheSize,
+                        verifiedCredentialCacheTimeout * 1000L);
+            } catch (GeneralSecurityException e) {
+                containerLog.warn(sm.getString("realmBase.verifiedCredentialCacheFail"), e);
+            }
+        }
+
         setState(LifecycleState.STARTING);
     }
 
@@ -1122,6 +1198,11 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
     @Override
     protected void stopInternal() throws LifecycleException {
         setState(LifecycleState.STOPPING);
+        VerifiedCredentialCache cache = verifiedCredentialCache;
+        verifiedCredentialCache = null;
+        if (cache != null) {
+            cache.clear();
+        }
     }
 
 
@@ -1136,6 +1217,34 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
 
     // ------------------------------------------------------ Protected Methods
 
+    /**
+     * Check the presented credentials against the stored credentials using the
+     * configured {@link CredentialHandler}. If the verified credential cache is
+     * enabled, a recent successful verification of the same pair of
+     * credentials is re-used instead.
+     *
+     * @param inputCredentials  User provided credentials
+     * @param storedCredentials Credentials stored in the {@link Realm}
+     *
+     * @return <code>true</code> if the inputCredentials match the
+     *         storedCredentials, otherwise <code>false</code>
+     */
+    protected boolean credentialsMatch(String inputCredentials, String storedCredentials) {
+        VerifiedCredentialCache cache = verifiedCredentialCache;
+        if (cache == null || inputCredentials == null || storedCredentials == null) {
+            return getCredentialHandler().matches(inputCredentials, storedCredentials);
+        }
+        if (cache.isVerified(inputCredentials, storedCredentials)) {
+            return true;
+        }
+        boolean validated = getCredentialHandler().matches(inputCredentials, storedCredentials);
+        if (validated) {
+            cache.verified(inputCredentials, storedCredentials);
+        }
+        return validated;
+    }
+
+
     protected boolean hasMessageDigest() {
         CredentialHandler ch = credentialHandler;
         if (ch instanceof MessageDigestCredentialHandler) {
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.realm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.tomcat.util.buf.HexUtils;
+
+/**
+ * A bounded, time limited record of presented/stored credential pairs that
+ * have recently been verified by a {@link org.apache.catalina.CredentialHandler}.
+ * It allows repeated authentication with the same credentials (e.g. BASIC
+ * authentication on every request) to skip deliberately slow credential
+ * handlers such as PBKDF2.
+ * <p>
+ * Neither the presented nor the stored credentials are retained. Entries are
+ * keyed by an HMAC of both, calculated with a random key that is generated
+ * when the cache is created and never leaves this object. Since the stored
+ * credentials are part of the key, changing a user's password invalidates any
+ * cached entry for the old password. Only successful verifications are
+ * recorded.
+ */
+final class VerifiedCredentialCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int KEY_LENGTH = 32;
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+    private final int maxSize;
+    private final long timeout;
+
+    /**
+     * HMAC of the verified credentials to the time (in milliseconds) the
+     * entry expires.
+     */
+    private final Map<String,Long> entries;
+
+    /**
+     * The entries in the order they were added. As all entries have the same
+     * timeout this is also the order in which they expire. Entries that have
+     * since been removed or replaced are skipped when they reach the head.
+     */
+    private final Queue<Map.Entry<String,Long>> expiryOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger expiryOrderSize = new AtomicInteger();
+
+
+    /**
+     * @param maxSize The maximum number of verified credentials to retain
+     * @param timeout The time in milliseconds a verification remains valid
+     *
+     * @throws GeneralSecurityException if the HMAC algorithm is not available
+     */
+    VerifiedCredentialCache(int maxSize, long timeout) throws GeneralSecurityException {
+        byte[] keyBytes = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.prototype = Mac.getInstance(HMAC_ALGORITHM);
+        this.prototype.init(key);
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+
+    boolean isVerified(String inputCredentials, String storedCredentials) {
+        String hmac = hmac(inputCredentials, storedCredentials);
+        if (hmac == null) {
+            return false;
+        }
+        Long expires = entries.get(hmac);
+        if (expires == null) {
+            return false;
+        }
+        if (expires.longValue() < System.currentTimeMillis()) {
+            entries.remove(hmac, expires);
+            return false;
+        }
+        return true;
+    }
+
+
+    void verified(String inputCredentials, String storedCredentials) {
+        String hmac = hmac(inputCredentials, storedCredentials);
+        if (hmac == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Long expires = Long.valueOf(now + timeout);
+        entries.put(hmac, expires);
+        expiryOrder.offer(new SimpleImmutableEntry<>(hmac, expires));
+        expiryOrderSize.incrementAndGet();
+        evict(now);
+    }
+
+
+    void clear() {
+        entries.clear();
+        while (expiryOrder.poll() != null) {
+            expiryOrderSize.decrementAndGet();
+        }
+    }
+
+
+    int size() {
+        return entries.size();
+    }
+
+
+    /*
+     * Removes expired entries from the head of the queue and then the entries
+     * closest to expiry until no more than maxSize remain. Every entry is
+     * queued and dequeued once so the cost is constant per verification.
+     */
+    private void evict(long now) {
+        while (true) {
+            Map.Entry<String,Long> eldest = expiryOrder.peek();
+            if (eldest == null || (expiryOrderSize.get() <= maxSize &&
+                    eldest.getValue().longValue() >= now)) {
+                return;
+            }
+            eldest = expiryOrder.poll();
+            if (eldest != null) {
+                expiryOrderSize.decrementAndGet();
+                entries.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+
+    private String hmac(String inputCredentials, String storedCredentials) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException gse) {
+                return null;
+            }
+        }
+        mac.update(inputCredentials.getBytes(StandardCharsets.UTF_8));
+        // Separator that can't appear in UTF-8 encoded text
+        mac.update((byte) 0xFF);
+        mac.update(storedCredentials.getBytes(StandardCharsets.UTF_8));
+        return HexUtils.toHexString(mac.doFinal());
+    }
+}
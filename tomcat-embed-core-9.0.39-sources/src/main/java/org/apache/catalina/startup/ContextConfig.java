@@ -1378,7 +1378,7 @@ public class ContextConfig implements LifecycleListener {
 
         Map<String, JavaClassCacheEntry> javaClassCache;
 
-        if (context.isParallelAnnotationScanning()) {
+        if (isParallelAnnotationScanning()) {
             javaClassCache = new ConcurrentHashMap<>();
         } else {
             javaClassCache = new HashMap<>();
@@ -2146,7 +2146,7 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotations(Set<WebXml> fragments,
             boolean handlesTypesOnly, Map<String, JavaClassCacheEntry> javaClassCache) {
 
-        if (context.isParallelAnnotationScanning()) {
+        if (isParallelAnnotationScanning()) {
             processAnnotationsInParallel(fragments, handlesTypesOnly, javaClassCache);
         } else {
             for (WebXml fragment : fragments) {
@@ -2177,6 +2177,12 @@ public class ContextConfig implements LifecycleListener {
         fragment.merge(set);
     }
 
+    private boolean isParallelAnnotationScanning() {
+        return context.isParallelAnnotationScanning() ||
+                (context instanceof StandardContext &&
+                        ((StandardContext) context).getPhasedStartup());
+    }
+
     /**
      * Executable task to scan a segment for annotations. Each task does the
      * same work as the for loop inside processAnnotations();
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.LifecycleState;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+
+/**
+ * <p>Implementation of a Valve that limits the number of requests processed
+ * concurrently, adjusting the limit automatically from the observed request
+ * latency instead of relying on a fixed value like {@link SemaphoreValve}.</p>
+ *
+ * <p>Request processing time is sampled around the rest of the pipeline. Every
+ * <code>sampleWindow</code> requests the average time of the window (the
+ * short RTT) is compared with a slowly moving average (the long RTT) and the
+ * limit is recalculated using a gradient algorithm:</p>
+ * <pre>
+ * gradient = max(0.5, min(1.0, rttTolerance * longRtt / shortRtt))
+ * newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ * <p>The result is smoothed and bounded by <code>minLimit</code> and
+ * <code>maxLimit</code>. The limit only grows while the valve is actually
+ * using most of it. Requests that arrive while the limit is reached are
+ * rejected immediately with a 503 rather than queued.</p>
+ *
+ * <p>Requests may be grouped into priority partitions by URI pattern using
+ * the <code>partitions</code> attribute, a comma separated list of
+ * <code>pattern=share</code> entries such as
+ * <code>/api/*=0.6,*.jsp=0.2</code>. Patterns use the Servlet mapping syntax
+ * (exact, <code>/path/*</code> and <code>*.extension</code>). A partition is
+ * guaranteed its share of the current limit even if the valve as a whole is
+ * saturated; requests that match no pattern are only admitted while the total
+ * is below the limit.</p>
+ *
+ * <p>The time measured for asynchronous requests ends when the container
+ * thread returns from the pipeline, not when the response completes.</p>
+ */
+public class AdaptiveConcurrencyLimitValve extends ValveBase {
+
+    private static final Log log = LogFactory.getLog(AdaptiveConcurrencyLimitValve.class);
+
+    /**
+     * Number of windows over which the long RTT is averaged.
+     */
+    private static final int LONG_RTT_WINDOWS = 100;
+
+
+    //------------------------------------------------------ Constructor
+    public AdaptiveConcurrencyLimitValve() {
+        super(true);
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The number of requests in progress.
+     */
+    protected final AtomicInteger inFlight = new AtomicInteger();
+
+
+    /**
+     * The current concurrency limit.
+     */
+    protected volatile double limit;
+
+
+    /**
+     * Smoothed request time over many windows, in nanoseconds.
+     */
+    protected volatile double longRtt;
+
+
+    /**
+     * Average request time of the last completed window, in nanoseconds.
+     */
+    protected volatile long shortRtt;
+
+
+    private final AtomicLong windowRttSum = new AtomicLong();
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong acceptedCount = new AtomicLong();
+
+    private volatile Partition[] partitionList = new Partition[0];
+    private volatile AtomicInteger[] partitionInFlight =
+            new AtomicInteger[] { new AtomicInteger() };
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Limit used until enough requests have been measured.
+     */
+    protected int initialLimit = 20;
+    public int getInitialLimit() { return initialLimit; }
+    public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+
+    /**
+     * Lower bound of the limit.
+     */
+    protected int minLimit = 4;
+    public int getMinLimit() { return minLimit; }
+    public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+
+    /**
+     * Upper bound of the limit.
+     */
+    protected int maxLimit = 1000;
+    public int getMaxLimit() { return maxLimit; }
+    public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+
+    /**
+     * Weight of a newly computed limit against the previous one.
+     */
+    protected double smoothing = 0.2;
+    public double getSmoothing() { return smoothing; }
+    public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
+
+
+    /**
+     * Ratio by which the short RTT may exceed the long RTT before the limit
+     * is reduced.
+     */
+    protected double rttTolerance = 1.5;
+    public double getRttTolerance() { return rttTolerance; }
+    public void setRttTolerance(double rttTolerance) { this.rttTolerance = rttTolerance; }
+
+
+    /**
+     * Number of completed requests per limit update.
+     */
+    protected int sampleWindow = 50;
+    public int getSampleWindow() { return sampleWindow; }
+    public void setSampleWindow(int sampleWindow) { this.sampleWindow = sampleWindow; }
+
+
+    /**
+     * Priority partitions as a comma separated list of
+     * <code>pattern=share</code> entries.
+     */
+    protected String partitions = null;
+    public String getPartitions() { return partitions; }
+    public void setPartitions(String partitions) {
+        Partition[] parsed = parsePartitions(partitions);
+        AtomicInteger[] counters = new AtomicInteger[parsed.length + 1];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicInteger();
+        }
+        this.partitions = partitions;
+        this.partitionInFlight = counters;
+        this.partitionList = parsed;
+    }
+
+
+    public int getLimit() { return (int) limit; }
+    public int getInFlight() { return inFlight.get(); }
+    public long getShedCount() { return shedCount.get(); }
+    public long getAcceptedCount() { return acceptedCount.get(); }
+    public double getShortRttMillis() { return shortRtt / 1000000.0; }
+    public double getLongRttMillis() { return longRtt / 1000000.0; }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Start this component and implement the requirements
+     * of {@link org.apache.catalina.util.LifecycleBase#startInternal()}.
+     *
+     * @exception LifecycleException if this component detects a fatal error
+     *  that prevents this component from being used
+     */
+    @Override
+    protected synchronized void startInternal() throws LifecycleException {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new LifecycleException(sm.getString(
+                    "adaptiveConcurrencyLimitValve.invalidLimits",
+                    Integer.valueOf(minLimit), Integer.valueOf(maxLimit)));
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        longRtt = 0;
+        shortRtt = 0;
+        windowRttSum.set(0);
+        windowCount.set(0);
+        windowMaxInFlight.set(0);
+        setState(LifecycleState.STARTING);
+    }
+
+
+    /**
+     * Do concurrency control on the request using the adaptive limit.
+     *
+     * @param request The servlet request to be processed
+     * @param response The servlet response to be created
+     *
+     * @exception IOException if an input/output error occurs
+     * @exception ServletException if a servlet error occurs
+     */
+    @Override
+    public void invoke(Request request, Response response)
+        throws IOException, ServletException {
+
+        AtomicInteger[] partitionInFlight = this.partitionInFlight;
+        int partition = findPartition(request, partitionList);
+        AtomicInteger partitionCount = partitionInFlight[partition];
+
+        int currentLimit = (int) limit;
+        int total = inFlight.incrementAndGet();
+        int inPartition = partitionCount.incrementAndGet();
+        if (total > currentLimit && !withinShare(partition, inPartition, currentLimit)) {
+            partitionCount.decrementAndGet();
+            inFlight.decrementAndGet();
+            shedCount.incrementAndGet();
+            permitDenied(request, response);
+            return;
+        }
+        acceptedCount.incrementAndGet();
+        updateMax(windowMaxInFlight, total);
+
+        long start = System.nanoTime();
+        try {
+            getNext().invoke(request, response);
+        } finally {
+            partitionCount.decrementAndGet();
+            inFlight.decrementAndGet();
+            sample(System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Subclass friendly method to add error handling when a request is
+     * rejected because the limit has been reached.
+     *
+     * @param request The servlet request to be processed
+     * @param response The servlet response to be created
+     *
+     * @exception IOException if an input/output error occurs
+     * @exception ServletException if a servlet error occurs
+     */
+    public void permitDenied(Request request, Response response)
+        throws IOException, ServletException {
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private boolean withinShare(int partition, int inPartition, int currentLimit) {
+        Partition[] partitionList = this.partitionList;
+        if (partition >= partitionList.length) {
+            return false;
+        }
+        return inPartition <= Math.ceil(partitionList[partition].share * currentLimit);
+    }
+
+
+    private void sample(long rtt) {
+        windowRttSum.addAndGet(rtt);
+        if (windowCount.incrementAndGet() >= sampleWindow &&
+                updating.compareAndSet(false, true)) {
+            try {
+                int count = windowCount.getAndSet(0);
+                long sum = windowRttSum.getAndSet(0);
+                int maxInFlight = windowMaxInFlight.getAndSet(0);
+                if (count > 0) {
+                    updateLimit(sum / count, maxInFlight);
+                }
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+
+    private void updateLimit(long rtt, int maxInFlight) {
+        if (rtt <= 0) {
+            rtt = 1;
+        }
+        shortRtt = rtt;
+        double longRtt = this.longRtt;
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / LONG_RTT_WINDOWS;
+            // After a sustained slow down let the baseline catch up quickly
+            // once latency recovers, otherwise the limit overshoots
+            if (longRtt > 2 * rtt) {
+                longRtt *= 0.95;
+            }
+        }
+        this.longRtt = longRtt;
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / rtt));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - smoothing) + newLimit * smoothing;
+        if (newLimit > current && maxInFlight < current / 2) {
+            // Not using the limit so there is no evidence it can be raised
+            newLimit = current;
+        }
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = newLimit;
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("adaptiveConcurrencyLimitValve.limitUpdated",
+                    Integer.valueOf((int) newLimit), Long.valueOf(rtt / 1000),
+                    Long.valueOf((long) longRtt / 1000)));
+        }
+    }
+
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+
+    private static int findPartition(Request request, Partition[] partitionList) {
+        if (partitionList.length == 0) {
+            return 0;
+        }
+        String uri = request.getDecodedRequestURI();
+        if (uri != null) {
+            for (int i = 0; i < partitionList.length; i++) {
+                if (partitionList[i].matches(uri)) {
+                    return i;
+                }
+            }
+        }
+        return partitionList.length;
+    }
+
+
+    private static Partition[] parsePartitions(String partitions) {
+        List<Partition> result = new ArrayList<>();
+        if (partitions != null) {
+            double total = 0;
+            for (String entry : partitions.split(",")) {
+                entry = entry.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int eq = entry.lastIndexOf('=');
+                double share = -1;
+                if (eq > 0) {
+                    try {
+                        share = Double.parseDouble(entry.substring(eq + 1).trim());
+                    } catch (NumberFormatException e) {
+                        // Reported below
+                    }
+                }
+                if (share <= 0 || share > 1) {
+                    throw new IllegalArgumentException(sm.getString(
+                            "adaptiveConcurrencyLimitValve.invalidPartition", entry));
+                }
+                total += share;
+                result.add(new Partition(entry.substring(0, eq).trim(), share));
+            }
+            if (total > 1) {
+                throw new IllegalArgumentException(sm.getString(
+                        "adaptiveConcurrencyLimitValve.invalidShares", partitions));
+            }
+        }
+        return result.toArray(new Partition[0]);
+    }
+
+
+    private static final class Partition {
+
+        private final String pattern;
+        private final double share;
+
+        Partition(String pattern, double share) {
+            this.pattern = pattern;
+            this.share = share;
+        }
+
+        boolean matches(String uri) {
+            if (pattern.endsWith("/*")) {
+                int len = pattern.length() - 2;
+                return uri.startsWith(pattern.substring(0, len)) &&
+                        (uri.length() == len || uri.charAt(len) == '/');
+            }
+            if (pattern.startsWith("*.")) {
+                int slash = uri.lastIndexOf('/');
+                int dot = uri.lastIndexOf('.');
+                return dot > slash && uri.regionMatches(dot, pattern, 1, pattern.length() - 1) &&
+                        uri.length() - dot == pattern.length() - 1;
+            }
+            return pattern.equals(uri);
+        }
+    }
+}
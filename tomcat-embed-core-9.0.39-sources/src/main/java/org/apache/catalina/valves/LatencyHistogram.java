@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size, lock free histogram of request latencies in the style of
+ * HdrHistogram. Values are recorded in microseconds into buckets that are
+ * linear up to 64&micro;s and then logarithmic with 32 sub-buckets for each
+ * power of two, which bounds the error of any reported percentile to about 3%
+ * while covering latencies of up to about 19 hours in around 1000 buckets.
+ * Longer latencies are recorded in the last bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        total.add(micros);
+        long currentMax = max.get();
+        while (micros > currentMax && !max.compareAndSet(currentMax, micros)) {
+            currentMax = max.get();
+        }
+    }
+
+
+    /**
+     * Clear all recorded latencies. Latencies recorded concurrently with a
+     * reset may be partially retained.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+
+    /**
+     * @return a consistent copy of the latencies recorded so far that can be
+     *         queried without affecting the recording of new latencies
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            sum += copy[i];
+        }
+        // Use the bucket counts so percentiles are consistent with the count
+        return new Snapshot(copy, sum, total.sum(), max.get());
+    }
+
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (micros >>> shift);
+    }
+
+
+    static long bucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF_COUNT) << shift;
+    }
+
+
+    static long bucketHighestValue(int index) {
+        return bucketLowestValue(index + 1) - 1;
+    }
+
+
+    /**
+     * An immutable copy of the contents of a {@link LatencyHistogram}. All
+     * times are reported in milliseconds.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalTimeMillis() {
+            return totalMicros / 1000.0;
+        }
+
+        public double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        public double getMeanMillis() {
+            return (count == 0) ? 0 : getTotalTimeMillis() / count;
+        }
+
+        /**
+         * Obtain the latency at or below which the given percentage of the
+         * recorded latencies fall.
+         *
+         * @param percentile The percentile, from 0 to 100
+         *
+         * @return the latency in milliseconds or zero if nothing has been
+         *         recorded
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double p = Math.min(Math.max(percentile, 0), 100);
+            long target = Math.max(1, (long) Math.ceil(p / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(bucketHighestValue(i), maxMicros) / 1000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+}
@@ -18,7 +18,9 @@ package org.apache.catalina.valves;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -27,10 +29,12 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.servlet.ServletException;
 
 import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
 import org.apache.catalina.connector.Request;
 import org.apache.catalina.connector.Response;
 import org.apache.juli.logging.Log;
@@ -40,6 +44,21 @@ import org.apache.tomcat.util.res.StringManager;
 /**
  * This valve allows to detect requests that take a long time to process, which
  * might indicate that the thread that is processing it is stuck.
+ * <p>
+ * The requests being processed are tracked in a fixed array, striped by the
+ * id of the thread processing them, so tracking a request does not allocate
+ * or update a shared map. The array is scanned by the background process to
+ * detect stuck threads and may be sampled on demand, through
+ * {@link #sampleSlowRequests(long)}, to obtain the stack traces of the
+ * threads processing slow requests.
+ * <p>
+ * Optionally, the valve also records the latency of every request in a
+ * {@link LatencyHistogram} per route, from which percentiles can be obtained
+ * without an external agent. The route is the value of the request attribute
+ * named by {@link #setRouteAttribute(String)}, if set, such as the best
+ * matching handler pattern set by Spring MVC, or else the name of the servlet
+ * the request was mapped to. Only the time spent on the container thread is
+ * recorded for asynchronous requests.
  */
 public class StuckThreadDetectionValve extends ValveBase {
 
@@ -74,17 +93,43 @@ public class StuckThreadDetectionValve extends ValveBase {
      */
     private int interruptThreadThreshold;
 
+    private static final int ACTIVE_THREADS_SIZE = 512;
+
+    private static final int ACTIVE_THREADS_MAX_PROBES = 8;
+
     /**
      * The only references we keep to actual running Thread objects are in
-     * this Map (which is automatically cleaned in invoke()s finally clause).
-     * That way, Threads can be GC'ed, even though the Valve still thinks they
-     * are stuck (caused by a long monitor interval)
+     * this array and map (which are automatically cleaned in invoke()s finally
+     * clause). That way, Threads can be GC'ed, even though the Valve still
+     * thinks they are stuck (caused by a long monitor interval). A request is
+     * stored at the index given by the id of its thread, or one of the next
+     * few indexes if that one is in use. Requests that find no free index are
+     * stored in the map.
      */
-    private final Map<Long, MonitoredThread> activeThreads = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<MonitoredThread> activeThreads =
+            new AtomicReferenceArray<>(ACTIVE_THREADS_SIZE);
+
+    private final Map<Long, MonitoredThread> overflowThreads = new ConcurrentHashMap<>();
 
     private final Queue<CompletedStuckThread> completedStuckThreadsQueue =
             new ConcurrentLinkedQueue<>();
 
+    private boolean latencyHistograms = false;
+
+    private String routeAttribute = null;
+
+    private int maxRoutes = 64;
+
+    /**
+     * Replaced rather than cleared on reset so that a concurrent request can
+     * not add a route to a map that is being discarded.
+     */
+    private volatile RouteLatencies routeLatencies = new RouteLatencies();
+
+    private static final String OTHER_ROUTES = "other";
+
+    private static final String UNMAPPED_ROUTE = "unmapped";
+
     /**
      * Specifies the threshold (in seconds) used when checking for stuck threads.
      * If &lt;=0, the detection is disabled. The default is 600 seconds.
@@ -121,6 +166,51 @@ public class StuckThreadDetectionValve extends ValveBase {
         this.interruptThreadThreshold = interruptThreadThreshold;
     }
 
+    public boolean getLatencyHistograms() {
+        return latencyHistograms;
+    }
+
+    /**
+     * Specifies whether the latency of each request is recorded in a
+     * histogram for its route. The default is false.
+     *
+     * @param latencyHistograms <code>true</code> to record latencies
+     */
+    public void setLatencyHistograms(boolean latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    public String getRouteAttribute() {
+        return routeAttribute;
+    }
+
+    /**
+     * Specifies the name of a request attribute, read once the request has
+     * been processed, that identifies the route of the request for the
+     * latency histograms. If the attribute is not set, or not set for a
+     * request, the name of the servlet the request was mapped to is used.
+     *
+     * @param routeAttribute The name of the request attribute
+     */
+    public void setRouteAttribute(String routeAttribute) {
+        this.routeAttribute = routeAttribute;
+    }
+
+    public int getMaxRoutes() {
+        return maxRoutes;
+    }
+
+    /**
+     * Specifies the maximum number of routes for which a separate latency
+     * histogram is kept. The requests for any further routes are recorded
+     * together under the route "other". The default is 64.
+     *
+     * @param maxRoutes The maximum number of routes
+     */
+    public void setMaxRoutes(int maxRoutes) {
+        this.maxRoutes = maxRoutes;
+    }
+
     /**
      * Required to enable async support.
      */
@@ -182,30 +272,39 @@ public class StuckThreadDetectionValve extends ValveBase {
     public void invoke(Request request, Response response)
             throws IOException, ServletException {
 
-        if (threshold <= 0) {
-            // short-circuit if not monitoring stuck threads
+        boolean recordLatency = latencyHistograms;
+        if (threshold <= 0 && !recordLatency) {
+            // short-circuit if not monitoring stuck threads or latency
             getNext().invoke(request, response);
             return;
         }
 
         // Save the thread/runnable
         // Keeping a reference to the thread object here does not prevent
-        // GC'ing, as the reference is removed from the Map in the finally clause
-
-        Long key = Long.valueOf(Thread.currentThread().getId());
-        StringBuffer requestUrl = request.getRequestURL();
-        if(request.getQueryString()!=null) {
-            requestUrl.append('?');
-            requestUrl.append(request.getQueryString());
+        // GC'ing, as the reference is removed from the array in the finally
+        // clause
+
+        long start = System.nanoTime();
+        String requestUri;
+        if (threshold > 0) {
+            StringBuffer requestUrl = request.getRequestURL();
+            if(request.getQueryString()!=null) {
+                requestUrl.append('?');
+                requestUrl.append(request.getQueryString());
+            }
+            requestUri = requestUrl.toString();
+        } else {
+            // Only reported by sampleSlowRequests()
+            requestUri = request.getRequestURI();
         }
         MonitoredThread monitoredThread = new MonitoredThread(Thread.currentThread(),
-            requestUrl.toString(), interruptThreadThreshold > 0);
-        activeThreads.put(key, monitoredThread);
+            requestUri, interruptThreadThreshold > 0);
+        int index = addActiveThread(monitoredThread);
 
         try {
             getNext().invoke(request, response);
         } finally {
-            activeThreads.remove(key);
+            removeActiveThread(index, monitoredThread);
             if (monitoredThread.markAsDone() == MonitoredThreadState.STUCK) {
                 if(monitoredThread.wasInterrupted()) {
                     interruptedThreadsCount.incrementAndGet();
@@ -214,7 +313,62 @@ public class StuckThreadDetectionValve extends ValveBase {
                         new CompletedStuckThread(monitoredThread.getThread(),
                             monitoredThread.getActiveTimeInMillis()));
             }
+            if (recordLatency) {
+                getRouteHistogram(request).record(System.nanoTime() - start);
+            }
+        }
+    }
+
+
+    private int addActiveThread(MonitoredThread monitoredThread) {
+        int mask = ACTIVE_THREADS_SIZE - 1;
+        int index = (int) monitoredThread.getThread().getId() & mask;
+        for (int i = 0; i < ACTIVE_THREADS_MAX_PROBES; i++) {
+            if (activeThreads.compareAndSet(index, null, monitoredThread)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        overflowThreads.put(Long.valueOf(monitoredThread.getThread().getId()), monitoredThread);
+        return -1;
+    }
+
+
+    private void removeActiveThread(int index, MonitoredThread monitoredThread) {
+        if (index < 0) {
+            overflowThreads.remove(Long.valueOf(monitoredThread.getThread().getId()));
+        } else {
+            activeThreads.set(index, null);
+        }
+    }
+
+
+    private List<MonitoredThread> getActiveThreads() {
+        List<MonitoredThread> result = new ArrayList<>();
+        for (int i = 0; i < ACTIVE_THREADS_SIZE; i++) {
+            MonitoredThread monitoredThread = activeThreads.get(i);
+            if (monitoredThread != null) {
+                result.add(monitoredThread);
+            }
         }
+        result.addAll(overflowThreads.values());
+        return result;
+    }
+
+
+    private LatencyHistogram getRouteHistogram(Request request) {
+        String route = null;
+        if (routeAttribute != null) {
+            Object value = request.getAttribute(routeAttribute);
+            if (value != null) {
+                route = value.toString();
+            }
+        }
+        if (route == null) {
+            Wrapper wrapper = request.getWrapper();
+            route = (wrapper == null) ? UNMAPPED_ROUTE : wrapper.getName();
+        }
+        return routeLatencies.getHistogram(route, maxRoutes);
     }
 
     @Override
@@ -224,8 +378,12 @@ public class StuckThreadDetectionValve extends ValveBase {
         long thresholdInMillis = threshold * 1000L;
 
         // Check monitored threads, being careful that the request might have
-        // completed by the time we examine it
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        // completed by the time we examine it. Threads are also monitored
+        // when only latencies are recorded.
+        if (thresholdInMillis <= 0) {
+            return;
+        }
+        for (MonitoredThread monitoredThread : getActiveThreads()) {
             long activeTime = monitoredThread.getActiveTimeInMillis();
 
             if (activeTime >= thresholdInMillis && monitoredThread.markAsStuckIfStillRunning()) {
@@ -251,7 +409,7 @@ public class StuckThreadDetectionValve extends ValveBase {
 
     public long[] getStuckThreadIds() {
         List<Long> idList = new ArrayList<>();
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        for (MonitoredThread monitoredThread : getActiveThreads()) {
             if (monitoredThread.isMarkedAsStuck()) {
                 idList.add(Long.valueOf(monitoredThread.getThread().getId()));
             }
@@ -266,7 +424,7 @@ public class StuckThreadDetectionValve extends ValveBase {
 
     public String[] getStuckThreadNames() {
         List<String> nameList = new ArrayList<>();
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        for (MonitoredThread monitoredThread : getActiveThreads()) {
             if (monitoredThread.isMarkedAsStuck()) {
                 nameList.add(monitoredThread.getThread().getName());
             }
@@ -278,6 +436,166 @@ public class StuckThreadDetectionValve extends ValveBase {
         return interruptedThreadsCount.get();
     }
 
+    /**
+     * Obtain the stack traces of the threads that have been processing their
+     * current request for at least the given time.
+     *
+     * @param minActiveMillis The minimum time, in milliseconds, for which a
+     *                        request must have been active
+     *
+     * @return a description of each slow request and the stack trace of the
+     *         thread processing it. The request is described by its URL if
+     *         stuck thread detection is enabled or else by its URI.
+     */
+    public String[] sampleSlowRequests(long minActiveMillis) {
+        List<String> samples = new ArrayList<>();
+        for (MonitoredThread monitoredThread : getActiveThreads()) {
+            long activeTime = monitoredThread.getActiveTimeInMillis();
+            if (activeTime < minActiveMillis) {
+                continue;
+            }
+            Thread thread = monitoredThread.getThread();
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            if (monitoredThread.isDone()) {
+                // Completed while the stack trace was obtained
+                continue;
+            }
+            StringBuilder sample = new StringBuilder();
+            sample.append('[').append(thread.getName()).append("] (id=[");
+            sample.append(thread.getId()).append("]) active for [").append(activeTime);
+            sample.append("] milliseconds serving [").append(monitoredThread.getRequestUri());
+            sample.append(']');
+            for (StackTraceElement element : stackTrace) {
+                sample.append(System.lineSeparator()).append("\tat ").append(element);
+            }
+            samples.add(sample.toString());
+        }
+        return samples.toArray(new String[0]);
+    }
+
+    /**
+     * @return the routes for which latencies have been recorded
+     */
+    public String[] getLatencyRoutes() {
+        RouteLatencies latencies = routeLatencies;
+        List<String> routes = new ArrayList<>(latencies.histograms.keySet());
+        if (latencies.otherRoutes.snapshot().getCount() > 0) {
+            routes.add(OTHER_ROUTES);
+        }
+        Collections.sort(routes);
+        return routes.toArray(new String[0]);
+    }
+
+    /**
+     * Obtain a copy of the latency histogram of each route, suitable for
+     * exporting to a metrics library.
+     *
+     * @return the latency histograms keyed by route
+     */
+    public Map<String, LatencyHistogram.Snapshot> getLatencySnapshots() {
+        RouteLatencies latencies = routeLatencies;
+        Map<String, LatencyHistogram.Snapshot> snapshots = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        LatencyHistogram.Snapshot other = latencies.otherRoutes.snapshot();
+        if (other.getCount() > 0) {
+            snapshots.put(OTHER_ROUTES, other);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Obtain a latency percentile for a route.
+     *
+     * @param route      The route
+     * @param percentile The percentile, from 0 to 100
+     *
+     * @return the latency in milliseconds or -1 if no latency has been
+     *         recorded for the route
+     */
+    public double getLatencyPercentile(String route, double percentile) {
+        RouteLatencies latencies = routeLatencies;
+        LatencyHistogram histogram = OTHER_ROUTES.equals(route) ?
+                latencies.otherRoutes : latencies.histograms.get(route);
+        if (histogram == null) {
+            return -1;
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        return (snapshot.getCount() == 0) ? -1 : snapshot.getPercentileMillis(percentile);
+    }
+
+    /**
+     * @return a summary of the count, mean, median, 99th percentile and
+     *         maximum latency of each route
+     */
+    public String[] getLatencySummary() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = getLatencySnapshots();
+        List<String> routes = new ArrayList<>(snapshots.keySet());
+        Collections.sort(routes);
+        String[] result = new String[routes.size()];
+        for (int i = 0; i < result.length; i++) {
+            LatencyHistogram.Snapshot snapshot = snapshots.get(routes.get(i));
+            result[i] = routes.get(i) + " count=" + snapshot.getCount() +
+                    " mean=" + snapshot.getMeanMillis() +
+                    "ms p50=" + snapshot.getPercentileMillis(50) +
+                    "ms p99=" + snapshot.getPercentileMillis(99) +
+                    "ms max=" + snapshot.getMaxMillis() + "ms";
+        }
+        return result;
+    }
+
+    /**
+     * Discard all the recorded latencies.
+     */
+    public void resetLatencyHistograms() {
+        routeLatencies = new RouteLatencies();
+    }
+
+
+    /**
+     * The latency histograms of the routes seen since the last reset.
+     */
+    private static class RouteLatencies {
+
+        private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+        private final AtomicInteger routeCount = new AtomicInteger();
+
+        /**
+         * Used for the requests of any route beyond the maximum number of
+         * routes.
+         */
+        private final LatencyHistogram otherRoutes = new LatencyHistogram();
+
+        LatencyHistogram getHistogram(String route, int maxRoutes) {
+            LatencyHistogram histogram = histograms.get(route);
+            if (histogram == null) {
+                if (routeCount.get() >= maxRoutes) {
+                    return otherRoutes;
+                }
+                histogram = histograms.computeIfAbsent(route,
+                        k -> reserveRoute(maxRoutes) ? new LatencyHistogram() : null);
+                if (histogram == null) {
+                    return otherRoutes;
+                }
+            }
+            return histogram;
+        }
+
+        private boolean reserveRoute(int maxRoutes) {
+            while (true) {
+                int count = routeCount.get();
+                if (count >= maxRoutes) {
+                    return false;
+                }
+                if (routeCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
 
     private static class MonitoredThread {
 
@@ -357,6 +675,10 @@ public class StuckThreadDetectionValve extends ValveBase {
             return threadState;
         }
 
+        boolean isDone() {
+            return this.state.get() == MonitoredThreadState.DONE.ordinal();
+        }
+
         boolean isMarkedAsStuck() {
             return this.state.get() == MonitoredThreadState.STUCK.ordinal();
         }
@@ -56,89 +56,91 @@ public class ResolverImpl extends Resolver {
      */
     @Override
     public String resolve(String key) {
-        if (key.equals("HTTP_USER_AGENT")) {
+        switch (key) {
+        case "HTTP_USER_AGENT":
             return request.getHeader("user-agent");
-        } else if (key.equals("HTTP_REFERER")) {
+        case "HTTP_REFERER":
             return request.getHeader("referer");
-        } else if (key.equals("HTTP_COOKIE")) {
+        case "HTTP_COOKIE":
             return request.getHeader("cookie");
-        } else if (key.equals("HTTP_FORWARDED")) {
+        case "HTTP_FORWARDED":
             return request.getHeader("forwarded");
-        } else if (key.equals("HTTP_HOST")) {
+        case "HTTP_HOST":
             // Don't look directly at the host header to handle:
             // - Host name in HTTP/1.1 request line
             // - HTTP/0.9 & HTTP/1.0 requests
             // - HTTP/2 :authority pseudo header
             return request.getServerName();
-        } else if (key.equals("HTTP_PROXY_CONNECTION")) {
+        case "HTTP_PROXY_CONNECTION":
             return request.getHeader("proxy-connection");
-        } else if (key.equals("HTTP_ACCEPT")) {
+        case "HTTP_ACCEPT":
             return request.getHeader("accept");
-        } else if (key.equals("REMOTE_ADDR")) {
+        case "REMOTE_ADDR":
             return request.getRemoteAddr();
-        } else if (key.equals("REMOTE_HOST")) {
+        case "REMOTE_HOST":
             return request.getRemoteHost();
-        } else if (key.equals("REMOTE_PORT")) {
+        case "REMOTE_PORT":
             return String.valueOf(request.getRemotePort());
-        } else if (key.equals("REMOTE_USER")) {
+        case "REMOTE_USER":
             return request.getRemoteUser();
-        } else if (key.equals("REMOTE_IDENT")) {
+        case "REMOTE_IDENT":
             return request.getRemoteUser();
-        } else if (key.equals("REQUEST_METHOD")) {
+        case "REQUEST_METHOD":
             return request.getMethod();
-        } else if (key.equals("SCRIPT_FILENAME")) {
+        case "SCRIPT_FILENAME":
             return request.getServletContext().getRealPath(request.getServletPath());
-        } else if (key.equals("REQUEST_PATH")) {
+        case "REQUEST_PATH":
             return request.getRequestPathMB().toString();
-        } else if (key.equals("CONTEXT_PATH")) {
+        case "CONTEXT_PATH":
             return request.getContextPath();
-        } else if (key.equals("SERVLET_PATH")) {
+        case "SERVLET_PATH":
             return emptyStringIfNull(request.getServletPath());
-        } else if (key.equals("PATH_INFO")) {
+        case "PATH_INFO":
             return emptyStringIfNull(request.getPathInfo());
-        } else if (key.equals("QUERY_STRING")) {
+        case "QUERY_STRING":
             return emptyStringIfNull(request.getQueryString());
-        } else if (key.equals("AUTH_TYPE")) {
+        case "AUTH_TYPE":
             return request.getAuthType();
-        } else if (key.equals("DOCUMENT_ROOT")) {
+        case "DOCUMENT_ROOT":
             return request.getServletContext().getRealPath("/");
-        } else if (key.equals("SERVER_NAME")) {
+        case "SERVER_NAME":
             return request.getLocalName();
-        } else if (key.equals("SERVER_ADDR")) {
+        case "SERVER_ADDR":
             return request.getLocalAddr();
-        } else if (key.equals("SERVER_PORT")) {
+        case "SERVER_PORT":
             return String.valueOf(request.getLocalPort());
-        } else if (key.equals("SERVER_PROTOCOL")) {
+        case "SERVER_PROTOCOL":
             return request.getProtocol();
-        } else if (key.equals("SERVER_SOFTWARE")) {
+        case "SERVER_SOFTWARE":
             return "tomcat";
-        } else if (key.equals("THE_REQUEST")) {
+        case "THE_REQUEST":
             return request.getMethod() + " " + request.getRequestURI()
             + " " + request.getProtocol();
-        } else if (key.equals("REQUEST_URI")) {
+        case "REQUEST_URI":
             return request.getRequestURI();
-        } else if (key.equals("REQUEST_FILENAME")) {
+        case "REQUEST_FILENAME":
             return request.getPathTranslated();
-        } else if (key.equals("HTTPS")) {
+        case "HTTPS":
             return request.isSecure() ? "on" : "off";
-        } else if (key.equals("TIME_YEAR")) {
+        case "TIME_YEAR":
             return String.valueOf(Calendar.getInstance().get(Calendar.YEAR));
-        } else if (key.equals("TIME_MON")) {
+        case "TIME_MON":
             return String.valueOf(Calendar.getInstance().get(Calendar.MONTH));
-        } else if (key.equals("TIME_DAY")) {
+        case "TIME_DAY":
             return String.valueOf(Calendar.getInstance().get(Calendar.DAY_OF_MONTH));
-        } else if (key.equals("TIME_HOUR")) {
+        case "TIME_HOUR":
             return String.valueOf(Calendar.getInstance().get(Calendar.HOUR_OF_DAY));
-        } else if (key.equals("TIME_MIN")) {
+        case "TIME_MIN":
             return String.valueOf(Calendar.getInstance().get(Calendar.MINUTE));
-        } else if (key.equals("TIME_SEC")) {
+        case "TIME_SEC":
             return String.valueOf(Calendar.getInstance().get(Calendar.SECOND));
-        } else if (key.equals("TIME_WDAY")) {
+        case "TIME_WDAY":
             return String.valueOf(Calendar.getInstance().get(Calendar.DAY_OF_WEEK));
-        } else if (key.equals("TIME")) {
+        case "TIME":
             return FastHttpDateFormat.getCurrentDate();
+        default:
+            return null;
         }
-        return null;
     }
 
     @Override
@@ -34,6 +34,18 @@ public class RewriteRule {
     protected String flagsString = null;
     protected boolean positive = true;
 
+    /**
+     * Pattern compiled once when the rule is parsed. {@link Pattern} is thread
+     * safe so there is no need to compile it again for each thread.
+     */
+    private Pattern compiledPattern = null;
+
+    /**
+     * Literal text any URL matched by a positive pattern has to start with, or
+     * <code>null</code> if there is none.
+     */
+    private String literalPrefix = null;
+
     public void parse(Map<String, RewriteMap> maps) {
         // Parse the substitution
         if (!"-".equals(substitutionString)) {
@@ -51,7 +63,8 @@ public class RewriteRule {
         if (isNocase()) {
             flags |= Pattern.CASE_INSENSITIVE;
         }
-        Pattern.compile(patternString, flags);
+        compiledPattern = Pattern.compile(patternString, flags);
+        literalPrefix = positive ? RewriteRuleIndex.literalPrefix(patternString) : null;
         // Parse conditions
         for (RewriteCond condition : conditions) {
             condition.parse(maps);
@@ -86,7 +99,15 @@ public class RewriteRule {
      * @return <code>null</code> if no rewrite took place
      */
     public CharSequence evaluate(CharSequence url, Resolver resolver) {
-        Pattern pattern = this.pattern.get();
+        if (literalPrefix != null &&
+                !RewriteRuleIndex.startsWith(url, literalPrefix, isNocase())) {
+            // The pattern cannot match so there is no need to run it
+            return null;
+        }
+        Pattern pattern = compiledPattern;
+        if (pattern == null) {
+            pattern = this.pattern.get();
+        }
         if (pattern == null) {
             // Parse the pattern
             int flags = 0;
@@ -335,6 +356,16 @@ public class RewriteRule {
     protected boolean type = false;
     protected String typeValue = null;
 
+
+    /**
+     * @return the literal text any URL matched by this rule has to start with,
+     *         or <code>null</code> if the rule has no such prefix or has not
+     *         been parsed
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
     public boolean isEscapeBackReferences() {
         return escapeBackReferences;
     }
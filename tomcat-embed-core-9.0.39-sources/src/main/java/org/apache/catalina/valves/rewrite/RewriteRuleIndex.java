@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves.rewrite;
+
+import java.util.Arrays;
+
+/**
+ * Index of the rules of a {@link RewriteValve} keyed on the literal prefix of
+ * their patterns. Large rule sets are often mostly made of rules such as
+ * <code>^/old/path/(.*)$</code> which can only match URLs starting with a fixed
+ * string. Walking a trie of these prefixes once per URL identifies the few
+ * rules that may match, and the valve can skip evaluating the regular
+ * expressions of all the others. Since a positive pattern that does not match
+ * has no side effect, skipping it does not change the result of the rewrite.
+ * <p>
+ * Host rules, negated patterns and patterns without a usable literal prefix
+ * are always evaluated.
+ */
+final class RewriteRuleIndex {
+
+    private final RewriteRule[] rules;
+    private final long[] alwaysEvaluated;
+    private final Node exact = new Node();
+    private final Node nocase = new Node();
+
+
+    RewriteRuleIndex(RewriteRule[] rules) {
+        this.rules = rules;
+        alwaysEvaluated = new long[(rules.length + 63) >>> 6];
+        for (int i = 0; i < rules.length; i++) {
+            RewriteRule rule = rules[i];
+            String prefix = rule.getLiteralPrefix();
+            if (rule.isHost() || prefix == null) {
+                alwaysEvaluated[i >>> 6] |= 1L << i;
+            } else if (rule.isNocase()) {
+                nocase.add(prefix, 0, true, i);
+            } else {
+                exact.add(prefix, 0, false, i);
+            }
+        }
+    }
+
+
+    /**
+     * Identify the rules that have to be evaluated for the given URL.
+     *
+     * @param url The URL the rules will be applied to
+     * @return a bit set with the bit of each rule that may match the URL set
+     */
+    long[] candidates(CharSequence url) {
+        long[] result = alwaysEvaluated.clone();
+        exact.collect(url, false, result);
+        nocase.collect(url, true, result);
+        return result;
+    }
+
+
+    static boolean isCandidate(long[] candidates, int rule) {
+        return (candidates[rule >>> 6] & (1L << rule)) != 0;
+    }
+
+
+    /**
+     * @param rules The rules the valve is about to evaluate
+     * @return <code>true</code> if this index was built for these rules
+     */
+    boolean isFor(RewriteRule[] rules) {
+        return this.rules == rules;
+    }
+
+
+    /**
+     * Extract the literal text any input fully matched by the given regular
+     * expression has to start with.
+     *
+     * @param regex The regular expression
+     * @return the literal prefix or <code>null</code> if the expression has
+     *         no literal prefix or if it could not be determined safely
+     */
+    static String literalPrefix(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder();
+        int pos = regex.startsWith("^") ? 1 : 0;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '\\') {
+                if (pos + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(pos + 1))) {
+                    // Character class, back reference, quoting etc.
+                    break;
+                }
+                prefix.append(regex.charAt(pos + 1));
+                pos += 2;
+            } else if ("[](){}.*+?^$|".indexOf(c) >= 0) {
+                break;
+            } else {
+                prefix.append(c);
+                pos++;
+            }
+        }
+        if (pos < regex.length() && prefix.length() > 0) {
+            char c = regex.charAt(pos);
+            if (c == '?' || c == '*' || c == '{') {
+                // The last character is optional
+                prefix.setLength(prefix.length() - 1);
+                if (prefix.length() > 0 &&
+                        Character.isHighSurrogate(prefix.charAt(prefix.length() - 1))) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+            }
+        }
+        return prefix.length() == 0 ? null : prefix.toString();
+    }
+
+
+    /**
+     * Test whether the given text starts with the prefix, folding ASCII case
+     * if required in the same way as {@link java.util.regex.Pattern#CASE_INSENSITIVE}.
+     *
+     * @param text The text to test
+     * @param prefix The prefix
+     * @param nocase Should ASCII case be ignored
+     * @return <code>true</code> if the text starts with the prefix
+     */
+    static boolean startsWith(CharSequence text, String prefix, boolean nocase) {
+        int len = prefix.length();
+        if (text.length() < len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            char p = prefix.charAt(i);
+            if (c != p && (!nocase || fold(c) != fold(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end == -1) {
+                        return false;
+                    }
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                // Nested classes are only used in combination with the
+                // outermost one so tracking the outermost one is enough
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+                // A leading ] (possibly after ^) is a literal
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int[] rules = new int[0];
+
+        void add(String prefix, int pos, boolean nocase, int rule) {
+            if (pos == prefix.length()) {
+                rules = Arrays.copyOf(rules, rules.length + 1);
+                rules[rules.length - 1] = rule;
+                return;
+            }
+            char c = nocase ? fold(prefix.charAt(pos)) : prefix.charAt(pos);
+            Node child = child(c);
+            if (child == null) {
+                int index = -(Arrays.binarySearch(keys, c) + 1);
+                char[] newKeys = new char[keys.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, index);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                child = new Node();
+                newKeys[index] = c;
+                newChildren[index] = child;
+                keys = newKeys;
+                children = newChildren;
+            }
+            child.add(prefix, pos + 1, nocase, rule);
+        }
+
+        void collect(CharSequence url, boolean nocase, long[] result) {
+            Node node = this;
+            int pos = 0;
+            while (node != null) {
+                for (int rule : node.rules) {
+                    result[rule >>> 6] |= 1L << rule;
+                }
+                if (pos == url.length()) {
+                    break;
+                }
+                char c = url.charAt(pos++);
+                node = node.child(nocase ? fold(c) : c);
+            }
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -74,6 +74,12 @@ public class RewriteValve extends ValveBase {
     protected RewriteRule[] rules = null;
 
 
+    /**
+     * Index used to skip the rules that cannot match a URL.
+     */
+    private volatile RewriteRuleIndex ruleIndex = null;
+
+
     /**
      * If rewriting occurs, the whole request will be processed again.
      */
@@ -266,6 +272,7 @@ public class RewriteValve extends ValveBase {
         for (RewriteRule rule : this.rules) {
             rule.parse(maps);
         }
+        this.ruleIndex = new RewriteRuleIndex(this.rules);
     }
 
     @Override
@@ -278,6 +285,7 @@ public class RewriteValve extends ValveBase {
         }
         maps.clear();
         rules = null;
+        ruleIndex = null;
     }
 
 
@@ -318,10 +326,26 @@ public class RewriteValve extends ValveBase {
             boolean done = false;
             boolean qsa = false;
             boolean qsd = false;
+            RewriteRuleIndex ruleIndex = this.ruleIndex;
+            if (ruleIndex != null && !ruleIndex.isFor(rules)) {
+                ruleIndex = null;
+            }
+            long[] candidates = null;
+            CharSequence candidatesUrl = null;
             for (int i = 0; i < rules.length; i++) {
                 RewriteRule rule = rules[i];
                 CharSequence test = (rule.isHost()) ? host : urlDecoded;
-                CharSequence newtest = rule.evaluate(test, resolver);
+                CharSequence newtest;
+                if (ruleIndex != null && !rule.isHost()) {
+                    if (candidatesUrl != urlDecoded) {
+                        candidates = ruleIndex.candidates(urlDecoded);
+                        candidatesUrl = urlDecoded;
+                    }
+                    newtest = RewriteRuleIndex.isCandidate(candidates, i) ?
+                            rule.evaluate(test, resolver) : null;
+                } else {
+                    newtest = rule.evaluate(test, resolver);
+                }
                 if (newtest != null && !test.equals(newtest.toString())) {
                     if (containerLog.isDebugEnabled()) {
                         containerLog.debug("Rewrote " + test + " as " + newtest
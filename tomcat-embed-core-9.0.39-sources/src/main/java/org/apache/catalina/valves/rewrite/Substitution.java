@@ -259,10 +259,35 @@ public class Substitution {
             }
         }
 
-        return elements.toArray(new SubstitutionElement[0]);
+        return coalesce(elements);
 
     }
 
+    /**
+     * Merge adjacent static elements so that the text between variable parts
+     * is appended in one operation when the substitution is evaluated.
+     */
+    private SubstitutionElement[] coalesce(List<SubstitutionElement> elements) {
+        List<SubstitutionElement> result = new ArrayList<>(elements.size());
+        StaticElement previous = null;
+        for (SubstitutionElement element : elements) {
+            if (element instanceof StaticElement) {
+                if (previous != null) {
+                    StaticElement merged = new StaticElement();
+                    merged.value = previous.value + ((StaticElement) element).value;
+                    result.set(result.size() - 1, merged);
+                    previous = merged;
+                    continue;
+                }
+                previous = (StaticElement) element;
+            } else {
+                previous = null;
+            }
+            result.add(element);
+        }
+        return result.toArray(new SubstitutionElement[0]);
+    }
+
     private static int findMatchingBrace(String sub, int start) {
         int nesting = 1;
         for (int i = start + 1; i < sub.length(); i++) {
@@ -314,6 +339,10 @@ public class Substitution {
     }
 
     private String evaluateSubstitution(SubstitutionElement[] elements, Matcher rule, Matcher cond, Resolver resolver) {
+        if (elements.length == 1) {
+            // Plain text or a single variable, no need to copy it
+            return String.valueOf(elements[0].evaluate(rule, cond, resolver));
+        }
         StringBuilder buf = new StringBuilder();
         for (SubstitutionElement element : elements) {
             buf.append(element.evaluate(rule, cond, resolver));
@@ -31,6 +31,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.management.ObjectName;
 
@@ -83,6 +87,8 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     private final Set<TrackedWebResource> trackedResources =
             Collections.newSetFromMap(new ConcurrentHashMap<TrackedWebResource,Boolean>());
 
+    private volatile Executor startExecutor = null;
+
     // Constructs to make iteration over all WebResourceSets simpler
     private final List<WebResourceSet> mainResources = new ArrayList<>();
     private final List<List<WebResourceSet>> allResources =
@@ -554,6 +560,23 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return result;
     }
 
+    /**
+     * Set the executor used to start the resource sets created for the JARs
+     * in /WEB-INF/lib. Starting a JAR resource set opens the JAR and reads its
+     * manifest so, for web applications with many JARs, starting them
+     * concurrently can noticeably reduce the time taken to start.
+     *
+     * @param startExecutor The executor to use or <code>null</code> to start
+     *                      the resource sets on the thread starting this root
+     */
+    public void setStartExecutor(Executor startExecutor) {
+        this.startExecutor = startExecutor;
+    }
+
+    public Executor getStartExecutor() {
+        return startExecutor;
+    }
+
     @Override
     public Context getContext() {
         return context;
@@ -722,15 +745,57 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         // else it won't find all the matching resources
         processWebInfLib();
         // Need to start the newly found resources
-        for (WebResourceSet classResource : classResources) {
-            classResource.start();
-        }
+        startClassResources();
 
         cache.enforceObjectMaxSizeLimit();
 
         setState(LifecycleState.STARTING);
     }
 
+    private void startClassResources() throws LifecycleException {
+        Executor executor = startExecutor;
+        if (executor == null || classResources.size() < 2) {
+            for (WebResourceSet classResource : classResources) {
+                classResource.start();
+            }
+            return;
+        }
+
+        List<FutureTask<Void>> tasks = new ArrayList<>(classResources.size());
+        for (WebResourceSet classResource : classResources) {
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                classResource.start();
+                return null;
+            });
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Started below
+            }
+        }
+        for (FutureTask<Void> task : tasks) {
+            // Run any task the executor has not picked up yet on this thread
+            // rather than wait for it
+            task.run();
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LifecycleException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof LifecycleException) {
+                    throw (LifecycleException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new LifecycleException(cause);
+            }
+        }
+    }
+
     protected WebResourceSet createMainResourceSet() {
         String docBase = context.getDocBase();
 
@@ -25,10 +25,12 @@ import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.collections.SynchronizedStack;
 import org.apache.tomcat.util.http.MimeHeaders;
 import org.apache.tomcat.util.http.ResponseUtil;
 import org.apache.tomcat.util.http.parser.AcceptEncoding;
@@ -47,6 +49,15 @@ public class CompressionConfig {
     private String[] compressibleMimeTypes = null;
     private int compressionMinSize = 2048;
     private boolean noCompressionStrongETag = true;
+    private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+    private int deflateStrategy = Deflater.DEFAULT_STRATEGY;
+
+    /*
+     * Deflaters hold native memory and are relatively expensive to create so
+     * they are re-used across responses rather than being created for each
+     * compressed response.
+     */
+    private final SynchronizedStack<Deflater> deflaterPool = new SynchronizedStack<>();
 
 
     /**
@@ -212,6 +223,110 @@ public class CompressionConfig {
     }
 
 
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+
+    /**
+     * Set the deflate compression level used for gzip encoded responses.
+     *
+     * @param deflateLevel The compression level (0-9) or -1 for the zlib
+     *                     default
+     */
+    public void setDeflateLevel(int deflateLevel) {
+        if (deflateLevel < Deflater.DEFAULT_COMPRESSION || deflateLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(
+                    sm.getString("compressionConfig.invalidDeflateLevel", Integer.toString(deflateLevel)));
+        }
+        this.deflateLevel = deflateLevel;
+    }
+
+
+    /**
+     * Obtain the deflate strategy used for gzip encoded responses.
+     *
+     * @return One of <code>default</code>, <code>filtered</code> or
+     *         <code>huffmanOnly</code>
+     */
+    public String getDeflateStrategy() {
+        switch (deflateStrategy) {
+        case Deflater.FILTERED:
+            return "filtered";
+        case Deflater.HUFFMAN_ONLY:
+            return "huffmanOnly";
+        }
+        return "default";
+    }
+
+
+    /**
+     * Set the deflate strategy used for gzip encoded responses.
+     *
+     * @param deflateStrategy One of <code>default</code>,
+     *                        <code>filtered</code> or
+     *                        <code>huffmanOnly</code>
+     */
+    public void setDeflateStrategy(String deflateStrategy) {
+        if ("default".equalsIgnoreCase(deflateStrategy)) {
+            this.deflateStrategy = Deflater.DEFAULT_STRATEGY;
+        } else if ("filtered".equalsIgnoreCase(deflateStrategy)) {
+            this.deflateStrategy = Deflater.FILTERED;
+        } else if ("huffmanOnly".equalsIgnoreCase(deflateStrategy)) {
+            this.deflateStrategy = Deflater.HUFFMAN_ONLY;
+        } else {
+            throw new IllegalArgumentException(
+                    sm.getString("compressionConfig.invalidDeflateStrategy", deflateStrategy));
+        }
+    }
+
+
+    /**
+     * Obtain a {@link Deflater} configured with the current level and strategy,
+     * creating one if none is available for re-use. The Deflater produces raw
+     * deflate data without the zlib wrapper. It must be handed back via
+     * {@link #releaseDeflater(Deflater)} once the response is complete.
+     *
+     * @return A Deflater ready to compress a new response
+     */
+    public Deflater borrowDeflater() {
+        Deflater deflater = deflaterPool.pop();
+        if (deflater == null) {
+            deflater = new Deflater(deflateLevel, true);
+        } else {
+            deflater.setLevel(deflateLevel);
+        }
+        deflater.setStrategy(deflateStrategy);
+        return deflater;
+    }
+
+
+    /**
+     * Return a {@link Deflater} obtained from {@link #borrowDeflater()} so it
+     * can be used for another response.
+     *
+     * @param deflater The Deflater to return
+     */
+    public void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaterPool.push(deflater)) {
+            deflater.end();
+        }
+    }
+
+
+    /**
+     * Free the native resources associated with any Deflaters that are
+     * currently available for re-use.
+     */
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = deflaterPool.pop()) != null) {
+            deflater.end();
+        }
+    }
+
+
     /**
      * Determines if compression should be enabled for the given response and if
      * it is, sets any necessary headers to mark it as such.
@@ -294,7 +409,9 @@ public class CompressionConfig {
             }
 
             for (AcceptEncoding acceptEncoding : acceptEncodings) {
-                if ("gzip".equalsIgnoreCase(acceptEncoding.getEncoding())) {
+                // A quality of zero means gzip is explicitly not acceptable
+                if ("gzip".equalsIgnoreCase(acceptEncoding.getEncoding()) &&
+                        acceptEncoding.getQuality() > 0) {
                     foundGzip = true;
                     break;
                 }
@@ -33,6 +33,7 @@ public class RequestGroupInfo extends BaseModelMBean {
     private int deadErrorCount = 0;
     private long deadBytesReceived = 0;
     private long deadBytesSent = 0;
+    private long deadAllocatedBytes = 0;
 
     public synchronized void addRequestProcessor( RequestInfo rp ) {
         processors.add( rp );
@@ -47,6 +48,7 @@ public class RequestGroupInfo extends BaseModelMBean {
             deadErrorCount += rp.getErrorCount();
             deadBytesReceived += rp.getBytesReceived();
             deadBytesSent += rp.getBytesSent();
+            deadAllocatedBytes += rp.getAllocatedBytes();
 
             processors.remove( rp );
         }
@@ -145,9 +147,25 @@ public class RequestGroupInfo extends BaseModelMBean {
         }
     }
 
+    public synchronized long getAllocatedBytes() {
+        long bytes = deadAllocatedBytes;
+        for (RequestInfo rp : processors) {
+            bytes += rp.getAllocatedBytes();
+        }
+        return bytes;
+    }
+
+    public synchronized void setAllocatedBytes(long allocatedBytes) {
+        deadAllocatedBytes = allocatedBytes;
+        for (RequestInfo rp : processors) {
+            rp.setAllocatedBytes( allocatedBytes );
+        }
+    }
+
     public void resetCounters() {
         this.setBytesReceived(0);
         this.setBytesSent(0);
+        this.setAllocatedBytes(0);
         this.setRequestCount(0);
         this.setProcessingTime(0);
         this.setMaxTime(0);
@@ -152,6 +152,10 @@ public class RequestInfo  {
     //the time of the last request
     private long lastRequestProcessingTime = 0;
 
+    // Heap allocated while processing requests, only collected when the
+    // connector tracks allocations
+    private long allocatedBytes;
+
 
     /** Called by the processor before recycling the request. It'll collect
      * statistic information.
@@ -261,4 +265,23 @@ public class RequestInfo  {
     public void setLastRequestProcessingTime(long lastRequestProcessingTime) {
         this.lastRequestProcessingTime = lastRequestProcessingTime;
     }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Add to the bytes allocated on the heap while processing requests. Called
+     * by the adapter for each dispatch to the container when allocation
+     * tracking is enabled.
+     *
+     * @param allocatedBytes The bytes allocated by the processing thread
+     */
+    public void addAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes += allocatedBytes;
+    }
 }
@@ -107,4 +107,16 @@ public interface UpgradeProtocol {
     public default void setHttp11Protocol(AbstractProtocol<?> protocol) {
         // NO-OP
     }
+
+
+    /**
+     * Release any resources held by this UpgradeProtocol. Called when the
+     * HTTP/1.1 protocol that this UpgradeProtocol is nested under is
+     * destroyed.
+     * <p>
+     * The default implementation is a NO-OP.
+     */
+    public default void destroy() {
+        // NO-OP
+    }
 }
@@ -209,6 +209,8 @@ public abstract class AbstractAjpProtocol<S> extends AbstractProtocol<S> {
     public void setPacketSize(int packetSize) {
         if(packetSize < Constants.MAX_PACKET_SIZE) {
             this.packetSize = Constants.MAX_PACKET_SIZE;
+        } else if (packetSize > Constants.MAX_NEGOTIATED_PACKET_SIZE) {
+            this.packetSize = Constants.MAX_NEGOTIATED_PACKET_SIZE;
         } else {
             this.packetSize = packetSize;
         }
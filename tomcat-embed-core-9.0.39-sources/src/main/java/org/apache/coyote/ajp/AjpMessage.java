@@ -18,12 +18,14 @@
 package org.apache.coyote.ajp;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.buf.HexUtils;
 import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.http.HeaderUtil;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
@@ -169,6 +171,13 @@ public class AjpMessage {
             appendByte(0);
             return;
         }
+        if (mb.getType() == MessageBytes.T_STR &&
+                StandardCharsets.ISO_8859_1.equals(mb.getCharset())) {
+            // Header names and values set by the application. Copy the
+            // String directly rather than encoding it to a new array first.
+            appendString(mb.getString());
+            return;
+        }
         if (mb.getType() != MessageBytes.T_BYTES) {
             mb.toBytes();
             ByteChunk bc = mb.getByteChunk();
@@ -192,6 +201,22 @@ public class AjpMessage {
     }
 
 
+    /*
+     * Copy an ISO-8859-1 String into the packet, filtering out CTLs in the same
+     * way as appendBytes(MessageBytes). Characters that can't be represented
+     * in ISO-8859-1 are written as '?' as they would be by the encoder.
+     */
+    private void appendString(String s) {
+        int numBytes = HeaderUtil.getIso88591Length(s);
+        if (checkOverflow(numBytes)) {
+            return;
+        }
+        appendInt(numBytes);
+        pos = HeaderUtil.writeIso88591(s, buf, pos);
+        appendByte(0);
+    }
+
+
     /**
      * Write a ByteChunk out at the current write position. A null ByteChunk is
      * encoded as a string with length 0.
@@ -83,6 +83,12 @@ public class AjpProcessor extends AbstractProcessor {
     private static final byte[] pongMessageArray;
 
 
+    /**
+     * Terminator of a body chunk message.
+     */
+    private static final byte[] bodyChunkEndArray = { 0 };
+
+
     private static final Set<String> javaxAttributes;
     private static final Set<String> iisTlsAttributes;
 
@@ -182,6 +188,13 @@ public class AjpProcessor extends AbstractProcessor {
     private final AjpMessage responseMessage;
 
 
+    /**
+     * Header of the body chunk message being written. The body itself is
+     * written directly from the buffer provided by the application.
+     */
+    private final byte[] bodyChunkHeader = new byte[Constants.SEND_HEAD_LEN - 1];
+
+
     /**
      * Location of next write of the response message (used with non-blocking
      * writes when the message may not be written in a single write). A value of
@@ -1246,27 +1259,55 @@ public class AjpProcessor extends AbstractProcessor {
 
         int len = chunk.remaining();
         int off = 0;
+        int limit = chunk.limit();
 
-        // Write this chunk
+        // Write this chunk. The socket is only flushed once all the messages
+        // for the chunk have been written so they are sent in as few writes
+        // as possible.
         while (len > 0) {
             int thisTime = Math.min(len, outputMaxChunkSize);
 
-            responseMessage.reset();
-            responseMessage.appendByte(Constants.JK_AJP13_SEND_BODY_CHUNK);
             chunk.limit(chunk.position() + thisTime);
-            responseMessage.appendBytes(chunk);
-            responseMessage.end();
-            socketWrapper.write(blocking, responseMessage.getBuffer(), 0, responseMessage.getLen());
-            socketWrapper.flush(blocking);
+            if (blocking) {
+                // Write the data straight from the chunk to the socket buffer
+                // rather than copying it into an AjpMessage first
+                writeBodyChunkHeader(thisTime);
+                socketWrapper.write(true, chunk);
+                socketWrapper.write(true, bodyChunkEndArray, 0, bodyChunkEndArray.length);
+            } else {
+                // Keep each message in a single non-blocking write
+                responseMessage.reset();
+                responseMessage.appendByte(Constants.JK_AJP13_SEND_BODY_CHUNK);
+                responseMessage.appendBytes(chunk);
+                responseMessage.end();
+                socketWrapper.write(false, responseMessage.getBuffer(), 0, responseMessage.getLen());
+            }
+            chunk.limit(limit);
 
             len -= thisTime;
             off += thisTime;
         }
+        socketWrapper.flush(blocking);
 
         bytesWritten += off;
     }
 
 
+    private void writeBodyChunkHeader(int chunkLen) throws IOException {
+        // Message length covers the type, the chunk length, the chunk and its
+        // terminator
+        int messageLen = chunkLen + 4;
+        bodyChunkHeader[0] = (byte) 0x41;
+        bodyChunkHeader[1] = (byte) 0x42;
+        bodyChunkHeader[2] = (byte) ((messageLen >>> 8) & 0xFF);
+        bodyChunkHeader[3] = (byte) (messageLen & 0xFF);
+        bodyChunkHeader[4] = Constants.JK_AJP13_SEND_BODY_CHUNK;
+        bodyChunkHeader[5] = (byte) ((chunkLen >>> 8) & 0xFF);
+        bodyChunkHeader[6] = (byte) (chunkLen & 0xFF);
+        socketWrapper.write(true, bodyChunkHeader, 0, bodyChunkHeader.length);
+    }
+
+
     private boolean hasDataToWrite() {
         return responseMsgPos != -1 || socketWrapper.hasDataToWrite();
     }
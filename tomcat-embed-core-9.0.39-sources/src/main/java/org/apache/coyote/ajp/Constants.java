@@ -16,7 +16,8 @@
  */
 package org.apache.coyote.ajp;
 
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Constants.
@@ -87,6 +88,11 @@ public final class Constants {
      * Default maximum total byte size for an AJP packet
      */
     public static final int MAX_PACKET_SIZE = 8192;
+    /**
+     * Largest packet size that can be negotiated. The length of the payload
+     * is encoded in two bytes.
+     */
+    public static final int MAX_NEGOTIATED_PACKET_SIZE = 65536;
     /**
      * Size of basic packet header
      */
@@ -213,8 +219,9 @@ public final class Constants {
         return responseTransArray[code];
     }
 
-    private static final Hashtable<String,Integer>  responseTransHash =
-            new Hashtable<>(20);
+    // Only modified during class initialisation
+    private static final Map<String,Integer>  responseTransHash =
+            new HashMap<>(20);
 
     static {
         try {
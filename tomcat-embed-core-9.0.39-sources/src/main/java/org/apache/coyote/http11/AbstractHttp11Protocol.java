@@ -78,6 +78,19 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    @Override
+    public void destroy() throws Exception {
+        try {
+            super.destroy();
+        } finally {
+            compressionConfig.destroy();
+            for (UpgradeProtocol upgradeProtocol : upgradeProtocols) {
+                upgradeProtocol.destroy();
+            }
+        }
+    }
+
+
     @Override
     protected String getProtocolName() {
         return "Http";
@@ -323,6 +336,22 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    public int getDeflateLevel() {
+        return compressionConfig.getDeflateLevel();
+    }
+    public void setDeflateLevel(int deflateLevel) {
+        compressionConfig.setDeflateLevel(deflateLevel);
+    }
+
+
+    public String getDeflateStrategy() {
+        return compressionConfig.getDeflateStrategy();
+    }
+    public void setDeflateStrategy(String deflateStrategy) {
+        compressionConfig.setDeflateStrategy(deflateStrategy);
+    }
+
+
     @Deprecated
     public boolean getNoCompressionStrongETag() {
         return compressionConfig.getNoCompressionStrongETag();
@@ -336,6 +365,9 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     public boolean useCompression(Request request, Response response) {
         return compressionConfig.useCompression(request, response);
     }
+    protected CompressionConfig getCompressionConfig() {
+        return compressionConfig;
+    }
 
 
     private Pattern restrictedUserAgents = null;
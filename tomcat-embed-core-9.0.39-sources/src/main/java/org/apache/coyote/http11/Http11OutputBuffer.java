@@ -18,6 +18,7 @@ package org.apache.coyote.http11;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import org.apache.coyote.ActionCode;
@@ -25,6 +26,7 @@ import org.apache.coyote.CloseNowException;
 import org.apache.coyote.Response;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.http.HeaderUtil;
 import org.apache.tomcat.util.net.SocketWrapperBase;
 import org.apache.tomcat.util.res.StringManager;
 
@@ -389,6 +391,14 @@ public class Http11OutputBuffer implements HttpOutputBuffer {
      * @param mb data to be written
      */
     private void write(MessageBytes mb) {
+        if (mb.getType() == MessageBytes.T_STR &&
+                StandardCharsets.ISO_8859_1.equals(mb.getCharset())) {
+            // The common case for header names and values set by the
+            // application. Write the String directly rather than encoding it
+            // to a new array first.
+            write(mb.getString());
+            return;
+        }
         if (mb.getType() != MessageBytes.T_BYTES) {
             mb.toBytes();
             ByteChunk bc = mb.getByteChunk();
@@ -412,6 +422,23 @@ public class Http11OutputBuffer implements HttpOutputBuffer {
     }
 
 
+    /**
+     * This method will write the specified ISO-8859-1 String to the output
+     * stream, filtering out CTLs in the same way as
+     * {@link #write(MessageBytes)}. Characters that can't be represented in
+     * ISO-8859-1 are written as '?' as they would be by the encoder.
+     *
+     * @param s data to be written
+     */
+    private void write(String s) {
+        // The String length is an upper bound of the number of bytes written
+        checkLengthBeforeWrite(s.length());
+        int start = headerBuffer.arrayOffset() + headerBuffer.position();
+        int end = HeaderUtil.writeIso88591(s, headerBuffer.array(), start);
+        headerBuffer.position(headerBuffer.position() + end - start);
+    }
+
+
     /**
      * This method will write the contents of the specified byte chunk to the
      * output stream, without filtering. This method is meant to be used to
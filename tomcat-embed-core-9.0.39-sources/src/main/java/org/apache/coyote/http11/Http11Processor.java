@@ -182,7 +182,7 @@ public class Http11Processor extends AbstractProcessor {
 
         // Create and add the gzip filters.
         //inputBuffer.addFilter(new GzipInputFilter());
-        outputBuffer.addFilter(new GzipOutputFilter());
+        outputBuffer.addFilter(new GzipOutputFilter(protocol.getCompressionConfig()));
 
         pluggableFilterIndex = inputBuffer.getFilters().length;
     }
@@ -288,7 +288,11 @@ public class Http11Processor extends AbstractProcessor {
                         readComplete = false;
                         break;
                     }
-                    if (!protocol.getDisableUploadTimeout()) {
+                    if (!socketWrapper.acquireClientRequest()) {
+                        // 429 - Too many requests
+                        response.setStatus(429);
+                        setErrorState(ErrorState.CLOSE_CLEAN, null);
+                    } else if (!protocol.getDisableUploadTimeout()) {
                         socketWrapper.setReadTimeout(protocol.getConnectionUploadTimeout());
                     }
                 }
@@ -19,8 +19,11 @@ package org.apache.coyote.http11.filters;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.coyote.CompressionConfig;
 import org.apache.coyote.Response;
 import org.apache.coyote.http11.HttpOutputBuffer;
 import org.apache.coyote.http11.OutputFilter;
@@ -29,6 +32,11 @@ import org.apache.juli.logging.LogFactory;
 
 /**
  * Gzip output filter.
+ * <p>
+ * The gzip header and trailer are written directly and the body is compressed
+ * with a {@link Deflater} that is borrowed from the {@link CompressionConfig}
+ * for the duration of the response so that the native compression state is
+ * re-used rather than re-created for every compressed response.
  *
  * @author Remy Maucherat
  */
@@ -37,6 +45,26 @@ public class GzipOutputFilter implements OutputFilter {
     protected static final Log log = LogFactory.getLog(GzipOutputFilter.class);
 
 
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final byte[] GZIP_HEADER = new byte[] {
+            (byte) GZIP_MAGIC,        // Magic number (short)
+            (byte) (GZIP_MAGIC >> 8), // Magic number (short)
+            Deflater.DEFLATED,        // Compression method (CM)
+            0,                        // Flags (FLG)
+            0,                        // Modification time MTIME (int)
+            0,                        // Modification time MTIME (int)
+            0,                        // Modification time MTIME (int)
+            0,                        // Modification time MTIME (int)
+            0,                        // Extra flags (XFLG)
+            0                         // Operating system (OS)
+    };
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+
     // ----------------------------------------------------- Instance Variables
 
     /**
@@ -47,30 +75,99 @@ public class GzipOutputFilter implements OutputFilter {
 
     /**
      * Compression output stream.
+     *
+     * @deprecated Unused by this filter which compresses with a pooled
+     *             {@link Deflater}. If a sub-class sets a stream it is used
+     *             instead of the pooled Deflater for the current response.
+     *             Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected GZIPOutputStream compressionStream = null;
 
 
     /**
      * Fake internal output stream.
+     *
+     * @deprecated Only used with {@link #compressionStream}. Will be removed
+     *             in Tomcat 10.
      */
+    @Deprecated
     protected final OutputStream fakeOutputStream = new FakeOutputStream();
 
 
+    /**
+     * Source of the Deflater used for each response. May be {@code null} in
+     * which case a Deflater is created for each response.
+     */
+    private final CompressionConfig compressionConfig;
+
+
+    /**
+     * Deflater for the current response or {@code null} if compression of the
+     * current response has not started.
+     */
+    private Deflater deflater = null;
+
+
+    private final CRC32 crc = new CRC32();
+
+
+    /**
+     * Compressed output is written here before being passed to the next
+     * buffer. The next buffer copies the data so it is safe to re-use.
+     */
+    private final byte[] outputBytes = new byte[DEFAULT_BUFFER_SIZE];
+    private final ByteBuffer outputChunk = ByteBuffer.wrap(outputBytes);
+
+
+    /**
+     * Used to copy the content of direct buffers as the Deflater requires a
+     * byte array. Allocated when first required.
+     */
+    private byte[] inputBytes = null;
+
+
+    // ------------------------------------------------------------ Constructors
+
+    public GzipOutputFilter() {
+        this(null);
+    }
+
+
+    public GzipOutputFilter(CompressionConfig compressionConfig) {
+        this.compressionConfig = compressionConfig;
+    }
+
+
     // --------------------------------------------------- OutputBuffer Methods
 
     @Override
     public int doWrite(ByteBuffer chunk) throws IOException {
-        if (compressionStream == null) {
-            compressionStream = new GZIPOutputStream(fakeOutputStream, true);
-        }
         int len = chunk.remaining();
+        if (compressionStream != null) {
+            if (chunk.hasArray()) {
+                compressionStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+                chunk.position(chunk.limit());
+            } else {
+                byte[] bytes = new byte[len];
+                chunk.get(bytes);
+                compressionStream.write(bytes, 0, len);
+            }
+            return len;
+        }
+        start();
         if (chunk.hasArray()) {
-            compressionStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+            deflate(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+            chunk.position(chunk.limit());
         } else {
-            byte[] bytes = new byte[len];
-            chunk.put(bytes);
-            compressionStream.write(bytes, 0, len);
+            if (inputBytes == null) {
+                inputBytes = new byte[DEFAULT_BUFFER_SIZE];
+            }
+            while (chunk.hasRemaining()) {
+                int n = Math.min(chunk.remaining(), inputBytes.length);
+                chunk.get(inputBytes, 0, n);
+                deflate(inputBytes, 0, n);
+            }
         }
         return len;
     }
@@ -90,11 +187,23 @@ public class GzipOutputFilter implements OutputFilter {
     @Override
     public void flush() throws IOException {
         if (compressionStream != null) {
+            try {
+                compressionStream.flush();
+            } catch (IOException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Ignored exception while flushing gzip filter", e);
+                }
+            }
+        } else if (deflater != null) {
             try {
                 if (log.isDebugEnabled()) {
                     log.debug("Flushing the compression stream!");
                 }
-                compressionStream.flush();
+                int len;
+                do {
+                    len = deflater.deflate(outputBytes, 0, outputBytes.length, Deflater.SYNC_FLUSH);
+                    writeOutput(len);
+                } while (len == outputBytes.length);
             } catch (IOException e) {
                 if (log.isDebugEnabled()) {
                     log.debug("Ignored exception while flushing gzip filter", e);
@@ -119,11 +228,24 @@ public class GzipOutputFilter implements OutputFilter {
 
     @Override
     public void end() throws IOException {
-        if (compressionStream == null) {
-            compressionStream = new GZIPOutputStream(fakeOutputStream, true);
+        if (compressionStream != null) {
+            compressionStream.finish();
+            compressionStream.close();
+            buffer.end();
+            return;
+        }
+        start();
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                writeOutput(deflater.deflate(outputBytes, 0, outputBytes.length));
+            }
+            writeInt((int) crc.getValue(), outputBytes, 0);
+            writeInt(deflater.getTotalIn(), outputBytes, 4);
+            writeOutput(TRAILER_SIZE);
+        } finally {
+            releaseDeflater();
         }
-        compressionStream.finish();
-        compressionStream.close();
         buffer.end();
     }
 
@@ -133,14 +255,73 @@ public class GzipOutputFilter implements OutputFilter {
      */
     @Override
     public void recycle() {
-        // Set compression stream to null
+        // Return the Deflater if the response was not completed normally
+        releaseDeflater();
         compressionStream = null;
     }
 
 
+    // -------------------------------------------------------- Private Methods
+
+    private void start() throws IOException {
+        if (deflater != null) {
+            return;
+        }
+        if (compressionConfig == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        } else {
+            deflater = compressionConfig.borrowDeflater();
+        }
+        crc.reset();
+        System.arraycopy(GZIP_HEADER, 0, outputBytes, 0, GZIP_HEADER.length);
+        writeOutput(GZIP_HEADER.length);
+    }
+
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            writeOutput(deflater.deflate(outputBytes, 0, outputBytes.length));
+        }
+    }
+
+
+    private void writeOutput(int len) throws IOException {
+        if (len > 0) {
+            outputChunk.limit(len);
+            outputChunk.position(0);
+            buffer.doWrite(outputChunk);
+        }
+    }
+
+
+    private void releaseDeflater() {
+        if (deflater == null) {
+            return;
+        }
+        if (compressionConfig == null) {
+            deflater.end();
+        } else {
+            compressionConfig.releaseDeflater(deflater);
+        }
+        deflater = null;
+    }
+
+
     // ------------------------------------------- FakeOutputStream Inner Class
 
 
+    /**
+     * Passes the output of {@link #compressionStream} to the next buffer.
+     *
+     * @deprecated Only used with {@link #compressionStream}. Will be removed
+     *             in Tomcat 10.
+     */
+    @Deprecated
     protected class FakeOutputStream
         extends OutputStream {
         protected final ByteBuffer outputChunk = ByteBuffer.allocate(1);
@@ -164,4 +345,14 @@ public class GzipOutputFilter implements OutputFilter {
     }
 
 
+    /*
+     * Writes integer in Intel byte order to a byte array, starting at a given
+     * offset.
+     */
+    private static void writeInt(int i, byte[] buf, int offset) {
+        buf[offset] = (byte) i;
+        buf[offset + 1] = (byte) (i >> 8);
+        buf[offset + 2] = (byte) (i >> 16);
+        buf[offset + 3] = (byte) (i >> 24);
+    }
 }
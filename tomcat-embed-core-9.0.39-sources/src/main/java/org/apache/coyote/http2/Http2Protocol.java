@@ -410,6 +410,22 @@ public class Http2Protocol implements UpgradeProtocol {
     }
 
 
+    public int getDeflateLevel() {
+        return compressionConfig.getDeflateLevel();
+    }
+    public void setDeflateLevel(int deflateLevel) {
+        compressionConfig.setDeflateLevel(deflateLevel);
+    }
+
+
+    public String getDeflateStrategy() {
+        return compressionConfig.getDeflateStrategy();
+    }
+    public void setDeflateStrategy(String deflateStrategy) {
+        compressionConfig.setDeflateStrategy(deflateStrategy);
+    }
+
+
     @Deprecated
     public boolean getNoCompressionStrongETag() {
         return compressionConfig.getNoCompressionStrongETag();
@@ -423,6 +439,16 @@ public class Http2Protocol implements UpgradeProtocol {
     public boolean useCompression(Request request, Response response) {
         return compressionConfig.useCompression(request, response);
     }
+    protected CompressionConfig getCompressionConfig() {
+        return compressionConfig;
+    }
+
+
+    @Override
+    public void destroy() {
+        // Free the native memory of the pooled Deflaters
+        compressionConfig.destroy();
+    }
 
 
     public ContinueResponseTiming getContinueResponseTimingInternal() {
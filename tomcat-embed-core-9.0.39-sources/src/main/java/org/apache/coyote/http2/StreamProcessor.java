@@ -165,7 +165,7 @@ class StreamProcessor extends AbstractProcessor {
                 protocol.useCompression(coyoteRequest, coyoteResponse)) {
             // Enable compression. Headers will have been set. Need to configure
             // output filter at this point.
-            stream.addOutputFilter(new GzipOutputFilter());
+            stream.addOutputFilter(new GzipOutputFilter(protocol.getCompressionConfig()));
         }
 
         // Check to see if a response body is present
@@ -262,6 +262,20 @@ public class FileHandler extends Handler {
             return;
         }
 
+        publishRecord(record, bufferSize.intValue() < 0);
+    }
+
+
+    /**
+     * Format and write a <code>LogRecord</code> that has already passed the
+     * {@link #isLoggable(LogRecord)} check.
+     *
+     * @param record description of the log event
+     * @param flush  should the writer be flushed once the record has been
+     *               written
+     */
+    protected void publishRecord(LogRecord record, boolean flush) {
+
         // Construct the timestamp we will use, if requested
         Timestamp ts = new Timestamp(System.currentTimeMillis());
         String tsDate = ts.toString().substring(0, 10);
@@ -300,7 +314,7 @@ public class FileHandler extends Handler {
             try {
                 if (writer != null) {
                     writer.write(result);
-                    if (bufferSize.intValue() < 0) {
+                    if (flush) {
                         writer.flush();
                     }
                 } else {
@@ -468,7 +482,7 @@ public class FileHandler extends Handler {
     }
 
 
-    private String getProperty(String name, String defaultValue) {
+    protected String getProperty(String name, String defaultValue) {
         String value = LogManager.getLogManager().getProperty(name);
         if (value == null) {
             value = defaultValue;
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.juli;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link FileHandler} implementation that hands log records to a dedicated
+ * writer thread through a pre-allocated, bounded ring buffer.
+ *
+ * <p>Publishing a record never blocks and never takes a lock: the record is
+ * placed in the next free slot of the ring or, if the ring is full, dropped
+ * and counted. Formatting and writing happen on the writer thread which
+ * drains the ring and only flushes the log file once a batch has been written,
+ * i.e. when the ring is empty, when <code>maxBatchSize</code> records have
+ * been written since the last flush or when <code>flushInterval</code> has
+ * elapsed since the last flush, whichever comes first.</p>
+ *
+ * <p>In addition to the properties inherited from {@link FileHandler} the
+ * following configuration properties are available:</p>
+ *
+ * <ul>
+ *   <li><code>capacity</code> - The number of slots in the ring buffer. It is
+ *    rounded up to a power of two. Default value: <code>8192</code></li>
+ *   <li><code>maxBatchSize</code> - The maximum number of records written
+ *    between flushes while records keep arriving.
+ *    Default value: <code>256</code></li>
+ *   <li><code>flushInterval</code> - The maximum time in milliseconds between
+ *    flushes while records keep arriving. This is also the longest time the
+ *    writer thread sleeps when the ring is empty.
+ *    Default value: <code>1000</code></li>
+ * </ul>
+ *
+ * <p>{@link #getQueuedCount()} and {@link #getDroppedCount()} report the
+ * number of records currently waiting in the ring and the number of records
+ * dropped because the ring was full.</p>
+ */
+public class RingBufferFileHandler extends FileHandler {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+
+    /**
+     * The records. A slot is only read by the writer thread once its sequence
+     * shows it has been filled.
+     */
+    private final AtomicReferenceArray<LogRecord> records;
+
+
+    /**
+     * Per slot sequence numbers. A slot with a sequence equal to the next
+     * producer position is free, one with a sequence of that position plus
+     * one holds a record for the writer thread.
+     */
+    private final AtomicLongArray sequences;
+
+
+    private final int mask;
+
+
+    /**
+     * Next position to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+
+    /**
+     * Next position to be read by the writer thread. Only written by the
+     * writer thread.
+     */
+    private volatile long head = 0;
+
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+
+    private final int maxBatchSize;
+
+
+    private final long flushIntervalNanos;
+
+
+    private final WriterThread writerThread;
+
+
+    protected volatile boolean closed = false;
+
+
+    public RingBufferFileHandler() {
+        this(null, null, null);
+    }
+
+
+    public RingBufferFileHandler(String directory, String prefix, String suffix) {
+        this(directory, prefix, suffix, null);
+    }
+
+
+    public RingBufferFileHandler(String directory, String prefix, String suffix, Integer maxDays) {
+        super(directory, prefix, suffix, maxDays);
+
+        String className = this.getClass().getName();
+        int capacity = getIntProperty(className + ".capacity", DEFAULT_CAPACITY);
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        records = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+
+        maxBatchSize = Math.max(1, getIntProperty(className + ".maxBatchSize", DEFAULT_MAX_BATCH_SIZE));
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(1, getIntProperty(className + ".flushInterval", DEFAULT_FLUSH_INTERVAL)));
+
+        writerThread = new WriterThread();
+        writerThread.start();
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // fill source entries, before we hand the record over to another
+        // thread with another class loader
+        record.getSourceMethodName();
+        if (!offer(record)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (writerThread.parked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            // The writer thread closes the file once it has written the
+            // remaining records. Wait for it for a while but don't close the
+            // file from here if it is still writing.
+            writerThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * @return the number of records that have been published but not yet
+     *         written
+     */
+    public long getQueuedCount() {
+        return Math.max(0, tail.get() - head);
+    }
+
+
+    /**
+     * @return the number of records that have been dropped because the ring
+     *         buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+
+    /**
+     * @return the number of slots in the ring buffer
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private boolean offer(LogRecord record) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    records.lazySet(index, record);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // Full
+                return false;
+            } else {
+                // Another producer claimed the slot
+                pos = tail.get();
+            }
+        }
+    }
+
+
+    /*
+     * Only called by the writer thread.
+     */
+    private LogRecord poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        LogRecord record = records.get(index);
+        records.lazySet(index, null);
+        sequences.lazySet(index, pos + mask + 1);
+        head = pos + 1;
+        return record;
+    }
+
+
+    private int getIntProperty(String name, int defaultValue) {
+        String value = getProperty(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+
+    // --------------------------------------------------- WriterThread Inner Class
+
+    private class WriterThread extends Thread {
+
+        private volatile boolean parked = false;
+
+        public WriterThread() {
+            this.setDaemon(true);
+            this.setName("RingBufferFileHandlerWriter-" + System.identityHashCode(this));
+            // Don't pin the class loader of whichever web application happened
+            // to trigger the creation of this handler
+            this.setContextClassLoader(RingBufferFileHandler.class.getClassLoader());
+        }
+
+        @Override
+        public void run() {
+            try {
+                writeRecords();
+            } finally {
+                RingBufferFileHandler.super.close();
+            }
+        }
+
+        private void writeRecords() {
+            int unflushed = 0;
+            long lastFlush = System.nanoTime();
+            while (true) {
+                LogRecord record = poll();
+                if (record != null) {
+                    try {
+                        publishRecord(record, false);
+                    } catch (Exception x) {
+                        x.printStackTrace();
+                    }
+                    unflushed++;
+                    if (unflushed >= maxBatchSize ||
+                            System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                        flush();
+                        unflushed = 0;
+                        lastFlush = System.nanoTime();
+                    }
+                    continue;
+                }
+
+                if (unflushed > 0) {
+                    flush();
+                    unflushed = 0;
+                    lastFlush = System.nanoTime();
+                }
+                if (closed) {
+                    return;
+                }
+
+                parked = true;
+                // Re-check after announcing the park so a record published
+                // concurrently is not left waiting for the timeout
+                if (getQueuedCount() == 0) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+                parked = false;
+            }
+        }
+    }
+}
@@ -18,15 +18,30 @@ package org.apache.tomcat.util.buf;
 
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 
 /**
  * This class implements a String cache for ByteChunk and CharChunk.
+ * <p>
+ * A fraction of the conversions are sampled into a concurrent statistics map.
+ * Once {@link #getTrainThreshold()} samples have been collected the most
+ * frequently seen Strings are published as an immutable, open addressing hash
+ * table and the statistics are cleared so that the cache keeps adapting to the
+ * current traffic. Lookups hash the raw bytes or chars of the chunk so a cache
+ * hit neither locks nor creates a String.
  *
  * @author Remy Maucherat
  */
@@ -43,13 +58,16 @@ public class StringCache {
      * Enabled ?
      */
     protected static boolean byteEnabled = ("true".equals(System.getProperty(
-            "tomcat.util.buf.StringCache.byte.enabled", "false")));
+            "tomcat.util.buf.StringCache.byte.enabled", "true")));
 
 
     protected static boolean charEnabled = ("true".equals(System.getProperty(
             "tomcat.util.buf.StringCache.char.enabled", "false")));
 
 
+    /**
+     * Number of samples collected before the cache is (re-)generated.
+     */
     protected static int trainThreshold = Integer.parseInt(System.getProperty(
             "tomcat.util.buf.StringCache.trainThreshold", "20000"));
 
@@ -63,53 +81,139 @@ public class StringCache {
                     "tomcat.util.buf.StringCache.maxStringSize", "128"));
 
 
+    /**
+     * On average, one in this many conversions is sampled.
+     */
+    protected static final int sampleRate =
+            Integer.parseInt(System.getProperty(
+                    "tomcat.util.buf.StringCache.sampleRate", "8"));
+
+
+    /**
+     * The statistics maps hold at most this many distinct Strings per cache
+     * size entry. Strings first seen once the limit is reached are not tracked
+     * until the next generation.
+     */
+    private static final int STATS_SIZE_FACTOR = 8;
+
+
+    private static final Map<ByteEntry,AtomicInteger> byteStats =
+            new ConcurrentHashMap<>(cacheSize);
+
+
+    private static final AtomicInteger byteSampleCount = new AtomicInteger();
+
+
+    private static final AtomicBoolean byteGenerating = new AtomicBoolean();
+
+
+    /*
+     * Cache for byte chunk. An open addressing hash table with a power of two
+     * length.
+     */
+    private static volatile ByteEntry[] byteCache = null;
+
+
+    private static final Map<CharEntry,AtomicInteger> charStats =
+            new ConcurrentHashMap<>(cacheSize);
+
+
+    private static final AtomicInteger charSampleCount = new AtomicInteger();
+
+
+    private static final AtomicBoolean charGenerating = new AtomicBoolean();
+
+
+    /*
+     * Cache for char chunk. An open addressing hash table with a power of two
+     * length.
+     */
+    private static volatile CharEntry[] charCache = null;
+
+
+    private static final LongAdder accessCounter = new LongAdder();
+
+
+    private static final LongAdder hitCounter = new LongAdder();
+
+
    /**
      * Statistics hash map for byte chunk.
+     *
+     * @deprecated Unused. Statistics are now sampled into a private concurrent
+     *             map. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final HashMap<ByteEntry,int[]> bcStats =
             new HashMap<>(cacheSize);
 
 
     /**
      * toString count for byte chunk.
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static int bcCount = 0;
 
 
     /**
      * Cache for byte chunk.
+     *
+     * @deprecated Unused. The cache is now a private hash table. Will be
+     *             removed in Tomcat 10.
      */
+    @Deprecated
     protected static volatile ByteEntry[] bcCache = null;
 
 
     /**
      * Statistics hash map for char chunk.
+     *
+     * @deprecated Unused. Statistics are now sampled into a private concurrent
+     *             map. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final HashMap<CharEntry,int[]> ccStats =
             new HashMap<>(cacheSize);
 
 
     /**
      * toString count for char chunk.
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static int ccCount = 0;
 
 
     /**
      * Cache for char chunk.
+     *
+     * @deprecated Unused. The cache is now a private hash table. Will be
+     *             removed in Tomcat 10.
      */
+    @Deprecated
     protected static volatile CharEntry[] ccCache = null;
 
 
     /**
      * Access count.
+     *
+     * @deprecated Unused. Use {@link #getAccessCount()}. Will be removed in
+     *             Tomcat 10.
      */
+    @Deprecated
     protected static int accessCount = 0;
 
 
     /**
      * Hit count.
+     *
+     * @deprecated Unused. Use {@link #getHitCount()}. Will be removed in
+     *             Tomcat 10.
      */
+    @Deprecated
     protected static int hitCount = 0;
 
 
@@ -184,7 +288,7 @@ public class StringCache {
      * @return Returns the accessCount.
      */
     public int getAccessCount() {
-        return accessCount;
+        return accessCounter.intValue();
     }
 
 
@@ -192,7 +296,7 @@ public class StringCache {
      * @return Returns the hitCount.
      */
     public int getHitCount() {
-        return hitCount;
+        return hitCounter.intValue();
     }
 
 
@@ -200,248 +304,153 @@ public class StringCache {
 
 
     public void reset() {
-        hitCount = 0;
-        accessCount = 0;
-        synchronized (bcStats) {
-            bcCache = null;
-            bcCount = 0;
-        }
-        synchronized (ccStats) {
-            ccCache = null;
-            ccCount = 0;
-        }
+        hitCounter.reset();
+        accessCounter.reset();
+        byteCache = null;
+        byteStats.clear();
+        byteSampleCount.set(0);
+        charCache = null;
+        charStats.clear();
+        charSampleCount.set(0);
     }
 
 
     public static String toString(ByteChunk bc) {
+        int len = bc.getLength();
+        if (!byteEnabled || len >= maxStringSize) {
+            return bc.toStringInternal();
+        }
 
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (bcCache == null) {
+        byte[] buff = bc.getBuffer();
+        int start = bc.getStart();
+        int hash = hash(buff, start, len);
+        ByteEntry entry = null;
+
+        ByteEntry[] cache = byteCache;
+        if (cache != null) {
+            accessCounter.increment();
+            entry = findEntry(cache, buff, start, len, bc.getCharset(), hash);
+            if (entry != null) {
+                hitCounter.increment();
+            }
+        }
+
+        if (entry == null) {
             String value = bc.toStringInternal();
-            if (byteEnabled && (value.length() < maxStringSize)) {
-                // If training, everything is synced
-                synchronized (bcStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting for the lock, just return the toString
-                    // value we just calculated
-                    if (bcCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in
-                    // which case the cache must be created, or we just update
-                    // the count for the string
-                    if (bcCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer,ArrayList<ByteEntry>> tempMap =
-                                new TreeMap<>();
-                        for (Entry<ByteEntry,int[]> item : bcStats.entrySet()) {
-                            ByteEntry entry = item.getKey();
-                            int[] countA = item.getValue();
-                            Integer count = Integer.valueOf(countA[0]);
-                            // Add to the list for that count
-                            ArrayList<ByteEntry> list = tempMap.get(count);
-                            if (list == null) {
-                                // Create list
-                                list = new ArrayList<>();
-                                tempMap.put(count, list);
-                            }
-                            list.add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = bcStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        ByteEntry[] tempbcCache = new ByteEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        ByteChunk tempChunk = new ByteChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<ByteEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                ByteEntry entry = list.get(i);
-                                tempChunk.setBytes(entry.name, 0,
-                                        entry.name.length);
-                                int insertPos = findClosest(tempChunk,
-                                        tempbcCache, n);
-                                if (insertPos == n) {
-                                    tempbcCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempbcCache, insertPos + 1,
-                                            tempbcCache, insertPos + 2,
-                                            n - insertPos - 1);
-                                    tempbcCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        bcCount = 0;
-                        bcStats.clear();
-                        bcCache = tempbcCache;
-                        if (log.isDebugEnabled()) {
-                            long t2 = System.currentTimeMillis();
-                            log.debug("ByteCache generation time: " +
-                                    (t2 - t1) + "ms");
-                        }
-                    } else {
-                        bcCount++;
-                        // Allocate new ByteEntry for the lookup
-                        ByteEntry entry = new ByteEntry();
-                        entry.value = value;
-                        int[] count = bcStats.get(entry);
-                        if (count == null) {
-                            int end = bc.getEnd();
-                            int start = bc.getStart();
-                            // Create byte array and copy bytes
-                            entry.name = new byte[bc.getLength()];
-                            System.arraycopy(bc.getBuffer(), start, entry.name,
-                                    0, end - start);
-                            // Set encoding
-                            entry.charset = bc.getCharset();
-                            // Initialize occurrence count to one
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            bcStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
+            if (!sample()) {
+                return value;
             }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(bc);
-            if (result == null) {
-                return bc.toStringInternal();
+            entry = new ByteEntry(Arrays.copyOfRange(buff, start, start + len),
+                    bc.getCharset(), value, hash);
+        } else if (!sample()) {
+            return entry.value;
+        }
+
+        AtomicInteger count = byteStats.get(entry);
+        if (count != null) {
+            count.incrementAndGet();
+        } else if (byteStats.size() < cacheSize * STATS_SIZE_FACTOR) {
+            count = byteStats.putIfAbsent(entry, new AtomicInteger(1));
+            if (count != null) {
+                count.incrementAndGet();
             }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
         }
 
+        if (byteSampleCount.incrementAndGet() > trainThreshold && byteGenerating.compareAndSet(false, true)) {
+            try {
+                long t1 = System.currentTimeMillis();
+                List<ByteEntry> hottest = hottest(byteStats);
+                ByteEntry[] newCache = new ByteEntry[tableSize(hottest.size())];
+                int mask = newCache.length - 1;
+                for (ByteEntry hot : hottest) {
+                    int pos = hot.hash & mask;
+                    while (newCache[pos] != null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    newCache[pos] = hot;
+                }
+                byteStats.clear();
+                byteSampleCount.set(0);
+                byteCache = newCache;
+                if (log.isDebugEnabled()) {
+                    long t2 = System.currentTimeMillis();
+                    log.debug("ByteCache generation time: " +
+                            (t2 - t1) + "ms");
+                }
+            } finally {
+                byteGenerating.set(false);
+            }
+        }
+        return entry.value;
     }
 
 
     public static String toString(CharChunk cc) {
+        int len = cc.getLength();
+        if (!charEnabled || len >= maxStringSize) {
+            return cc.toStringInternal();
+        }
+
+        char[] buff = cc.getBuffer();
+        int start = cc.getStart();
+        int hash = hash(buff, start, len);
+        CharEntry entry = null;
+
+        CharEntry[] cache = charCache;
+        if (cache != null) {
+            accessCounter.increment();
+            entry = findEntry(cache, buff, start, len, hash);
+            if (entry != null) {
+                hitCounter.increment();
+            }
+        }
 
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (ccCache == null) {
+        if (entry == null) {
             String value = cc.toStringInternal();
-            if (charEnabled && (value.length() < maxStringSize)) {
-                // If training, everything is synced
-                synchronized (ccStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting for the lock, just return the toString
-                    // value we just calculated
-                    if (ccCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in
-                    // which case the cache must be created, or we just update
-                    // the count for the string
-                    if (ccCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer,ArrayList<CharEntry>> tempMap =
-                                new TreeMap<>();
-                        for (Entry<CharEntry,int[]> item : ccStats.entrySet()) {
-                            CharEntry entry = item.getKey();
-                            int[] countA = item.getValue();
-                            Integer count = Integer.valueOf(countA[0]);
-                            // Add to the list for that count
-                            ArrayList<CharEntry> list = tempMap.get(count);
-                            if (list == null) {
-                                // Create list
-                                list = new ArrayList<>();
-                                tempMap.put(count, list);
-                            }
-                            list.add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = ccStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        CharEntry[] tempccCache = new CharEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        CharChunk tempChunk = new CharChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<CharEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                CharEntry entry = list.get(i);
-                                tempChunk.setChars(entry.name, 0,
-                                        entry.name.length);
-                                int insertPos = findClosest(tempChunk,
-                                        tempccCache, n);
-                                if (insertPos == n) {
-                                    tempccCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempccCache, insertPos + 1,
-                                            tempccCache, insertPos + 2,
-                                            n - insertPos - 1);
-                                    tempccCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        ccCount = 0;
-                        ccStats.clear();
-                        ccCache = tempccCache;
-                        if (log.isDebugEnabled()) {
-                            long t2 = System.currentTimeMillis();
-                            log.debug("CharCache generation time: " +
-                                    (t2 - t1) + "ms");
-                        }
-                    } else {
-                        ccCount++;
-                        // Allocate new CharEntry for the lookup
-                        CharEntry entry = new CharEntry();
-                        entry.value = value;
-                        int[] count = ccStats.get(entry);
-                        if (count == null) {
-                            int end = cc.getEnd();
-                            int start = cc.getStart();
-                            // Create char array and copy chars
-                            entry.name = new char[cc.getLength()];
-                            System.arraycopy(cc.getBuffer(), start, entry.name,
-                                    0, end - start);
-                            // Initialize occurrence count to one
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            ccStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
+            if (!sample()) {
+                return value;
             }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(cc);
-            if (result == null) {
-                return cc.toStringInternal();
+            entry = new CharEntry(Arrays.copyOfRange(buff, start, start + len), value, hash);
+        } else if (!sample()) {
+            return entry.value;
+        }
+
+        AtomicInteger count = charStats.get(entry);
+        if (count != null) {
+            count.incrementAndGet();
+        } else if (charStats.size() < cacheSize * STATS_SIZE_FACTOR) {
+            count = charStats.putIfAbsent(entry, new AtomicInteger(1));
+            if (count != null) {
+                count.incrementAndGet();
             }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
         }
 
+        if (charSampleCount.incrementAndGet() > trainThreshold && charGenerating.compareAndSet(false, true)) {
+            try {
+                long t1 = System.currentTimeMillis();
+                List<CharEntry> hottest = hottest(charStats);
+                CharEntry[] newCache = new CharEntry[tableSize(hottest.size())];
+                int mask = newCache.length - 1;
+                for (CharEntry hot : hottest) {
+                    int pos = hot.hash & mask;
+                    while (newCache[pos] != null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    newCache[pos] = hot;
+                }
+                charStats.clear();
+                charSampleCount.set(0);
+                charCache = newCache;
+                if (log.isDebugEnabled()) {
+                    long t2 = System.currentTimeMillis();
+                    log.debug("CharCache generation time: " +
+                            (t2 - t1) + "ms");
+                }
+            } finally {
+                charGenerating.set(false);
+            }
+        }
+        return entry.value;
     }
 
 
@@ -453,7 +462,10 @@ public class StringCache {
      * @param name The name to compare
      * @param compareTo The compared to data
      * @return -1, 0 or +1 if inferior, equal, or superior to the String.
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final int compare(ByteChunk name, byte[] compareTo) {
         int result = 0;
 
@@ -488,15 +500,19 @@ public class StringCache {
      * String.
      * @param name The name to find
      * @return the corresponding value
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final String find(ByteChunk name) {
-        int pos = findClosest(name, bcCache, bcCache.length);
-        if ((pos < 0) || (compare(name, bcCache[pos].name) != 0)
-                || !(name.getCharset().equals(bcCache[pos].charset))) {
+        ByteEntry[] cache = byteCache;
+        if (cache == null) {
             return null;
-        } else {
-            return bcCache[pos].value;
         }
+        int len = name.getLength();
+        ByteEntry entry = findEntry(cache, name.getBuffer(), name.getStart(), len,
+                name.getCharset(), hash(name.getBuffer(), name.getStart(), len));
+        return (entry == null) ? null : entry.value;
     }
 
 
@@ -508,7 +524,10 @@ public class StringCache {
      * @param array The array in which to look
      * @param len The effective length of the array
      * @return the position of the best match
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final int findClosest(ByteChunk name, ByteEntry[] array,
             int len) {
 
@@ -556,7 +575,10 @@ public class StringCache {
      * @param name The name to compare
      * @param compareTo The compared to data
      * @return -1, 0 or +1 if inferior, equal, or superior to the String.
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final int compare(CharChunk name, char[] compareTo) {
         int result = 0;
 
@@ -591,14 +613,19 @@ public class StringCache {
      * String.
      * @param name The name to find
      * @return the corresponding value
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final String find(CharChunk name) {
-        int pos = findClosest(name, ccCache, ccCache.length);
-        if ((pos < 0) || (compare(name, ccCache[pos].name) != 0)) {
+        CharEntry[] cache = charCache;
+        if (cache == null) {
             return null;
-        } else {
-            return ccCache[pos].value;
         }
+        int len = name.getLength();
+        CharEntry entry = findEntry(cache, name.getBuffer(), name.getStart(), len,
+                hash(name.getBuffer(), name.getStart(), len));
+        return (entry == null) ? null : entry.value;
     }
 
 
@@ -610,7 +637,10 @@ public class StringCache {
      * @param array The array in which to look
      * @param len The effective length of the array
      * @return the position of the best match
+     *
+     * @deprecated Unused. Will be removed in Tomcat 10.
      */
+    @Deprecated
     protected static final int findClosest(CharChunk name, CharEntry[] array,
             int len) {
 
@@ -653,14 +683,143 @@ public class StringCache {
     }
 
 
+    // ------------------------------------------------------- Private Methods
+
+
+    /**
+     * Find an entry given its content in the cache.
+     * @param cache The cache to search
+     * @param b The buffer holding the bytes to find
+     * @param start The start of the bytes to find
+     * @param len The number of bytes to find
+     * @param charset The charset the bytes will be decoded with
+     * @param hash The hash of the bytes to find
+     * @return the matching entry or {@code null} if there is no match
+     */
+    private static ByteEntry findEntry(ByteEntry[] cache, byte[] b, int start, int len,
+            Charset charset, int hash) {
+        int mask = cache.length - 1;
+        int pos = hash & mask;
+        ByteEntry entry;
+        while ((entry = cache[pos]) != null) {
+            if (entry.hash == hash && entry.matches(b, start, len) &&
+                    entry.charset.equals(charset)) {
+                return entry;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+
+    /**
+     * Find an entry given its content in the cache.
+     * @param cache The cache to search
+     * @param c The buffer holding the chars to find
+     * @param start The start of the chars to find
+     * @param len The number of chars to find
+     * @param hash The hash of the chars to find
+     * @return the matching entry or {@code null} if there is no match
+     */
+    private static CharEntry findEntry(CharEntry[] cache, char[] c, int start, int len,
+            int hash) {
+        int mask = cache.length - 1;
+        int pos = hash & mask;
+        CharEntry entry;
+        while ((entry = cache[pos]) != null) {
+            if (entry.hash == hash && entry.matches(c, start, len)) {
+                return entry;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+
+    private static boolean sample() {
+        return sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+
+    /*
+     * Returns up to cacheSize entries from the given statistics, most
+     * frequently used first.
+     */
+    private static <T> List<T> hottest(Map<T,AtomicInteger> stats) {
+        List<Map.Entry<T,AtomicInteger>> entries = new ArrayList<>(stats.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<T,AtomicInteger>>() {
+            @Override
+            public int compare(Map.Entry<T,AtomicInteger> e1, Map.Entry<T,AtomicInteger> e2) {
+                return Integer.compare(e2.getValue().get(), e1.getValue().get());
+            }
+        });
+        int size = Math.min(entries.size(), cacheSize);
+        List<T> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(entries.get(i).getKey());
+        }
+        return result;
+    }
+
+
+    /*
+     * Power of two table size that keeps the load factor at or below 0.5.
+     */
+    private static int tableSize(int entries) {
+        int size = 2;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+
+    private static int hash(byte[] b, int start, int len) {
+        int h = 0;
+        for (int i = start; i < start + len; i++) {
+            h = 31 * h + b[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+
+    private static int hash(char[] c, int start, int len) {
+        int h = 0;
+        for (int i = start; i < start + len; i++) {
+            h = 31 * h + c[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+
     // -------------------------------------------------- ByteEntry Inner Class
 
 
     private static class ByteEntry {
 
-        private byte[] name = null;
-        private Charset charset = null;
-        private String value = null;
+        private final byte[] name;
+        private final Charset charset;
+        private final String value;
+        private final int hash;
+
+        private ByteEntry(byte[] name, Charset charset, String value, int hash) {
+            this.name = name;
+            this.charset = charset;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        private boolean matches(byte[] b, int start, int len) {
+            if (name.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name[i] != b[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
         @Override
         public String toString() {
@@ -668,12 +827,14 @@ public class StringCache {
         }
         @Override
         public int hashCode() {
-            return value.hashCode();
+            return hash;
         }
         @Override
         public boolean equals(Object obj) {
             if (obj instanceof ByteEntry) {
-                return value.equals(((ByteEntry) obj).value);
+                ByteEntry other = (ByteEntry) obj;
+                return hash == other.hash && Arrays.equals(name, other.name) &&
+                        charset.equals(other.charset);
             }
             return false;
         }
@@ -686,8 +847,27 @@ public class StringCache {
 
     private static class CharEntry {
 
-        private char[] name = null;
-        private String value = null;
+        private final char[] name;
+        private final String value;
+        private final int hash;
+
+        private CharEntry(char[] name, String value, int hash) {
+            this.name = name;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        private boolean matches(char[] c, int start, int len) {
+            if (name.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name[i] != c[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
         @Override
         public String toString() {
@@ -695,12 +875,13 @@ public class StringCache {
         }
         @Override
         public int hashCode() {
-            return value.hashCode();
+            return hash;
         }
         @Override
         public boolean equals(Object obj) {
             if (obj instanceof CharEntry) {
-                return value.equals(((CharEntry) obj).value);
+                CharEntry other = (CharEntry) obj;
+                return hash == other.hash && Arrays.equals(name, other.name);
             }
             return false;
         }
@@ -47,6 +47,63 @@ public class HeaderUtil {
     }
 
 
+    /**
+     * Determine the number of bytes that
+     * {@link #writeIso88591(String, byte[], int)} writes for the given String.
+     *
+     * @param s The String to write
+     *
+     * @return The number of bytes written for the String
+     */
+    public static int getIso88591Length(String s) {
+        int len = s.length();
+        int result = len;
+        for (int i = 0; i < len - 1; i++) {
+            if (Character.isHighSurrogate(s.charAt(i)) &&
+                    Character.isLowSurrogate(s.charAt(i + 1))) {
+                // Written as a single '?'
+                result--;
+                i++;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Write the given String as ISO-8859-1 into the given array, replacing
+     * CTLs excluding TAB with a space. Characters that can't be represented in
+     * ISO-8859-1 are written as '?' as they would be by the encoder, so a
+     * surrogate pair is written as a single '?'.
+     *
+     * @param s      The String to write
+     * @param dest   The array to write to which must have space for
+     *               {@link #getIso88591Length(String)} bytes
+     * @param offset The position in the array to start writing at
+     *
+     * @return The position in the array after the last byte written
+     */
+    public static int writeIso88591(String s, byte[] dest, int offset) {
+        int len = s.length();
+        int pos = offset;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c > 255) {
+                if (Character.isHighSurrogate(c) && i + 1 < len &&
+                        Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // The encoder replaces a surrogate pair with a single '?'
+                    i++;
+                }
+                c = '?';
+            } else if ((c <= 31 && c != 9) || c == 127) {
+                c = ' ';
+            }
+            dest[pos++] = (byte) c;
+        }
+        return pos;
+    }
+
+
     private HeaderUtil() {
         // Utility class. Hide default constructor.
     }
@@ -19,8 +19,12 @@ package org.apache.tomcat.util.http;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Enumeration;
 
+import org.apache.tomcat.util.buf.Ascii;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.CharChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
 import org.apache.tomcat.util.res.StringManager;
 
@@ -113,6 +117,33 @@ public class MimeHeaders {
      */
     private int limit = -1;
 
+    /**
+     * Open addressing index of the header names, built lazily on the first
+     * lookup by name once there are enough headers for a linear scan to be
+     * slower. Each slot holds the position of a header plus one, zero meaning
+     * the slot is empty.
+     */
+    private int[] nameIndex = new int[0];
+
+    /**
+     * The case insensitive hash of the name of the header in each slot of
+     * {@link #nameIndex}.
+     */
+    private int[] nameIndexHashes = new int[0];
+
+    /**
+     * The number of headers, from the first one, that have been added to the
+     * index.
+     */
+    private int indexedCount;
+
+    /**
+     * Set when a header name can't be indexed (because it isn't set or isn't
+     * ASCII), in which case lookups use a linear scan until the headers are
+     * cleared.
+     */
+    private boolean indexDisabled;
+
     /**
      * Creates a new MimeHeaders object using a default buffer size.
      */
@@ -150,6 +181,7 @@ public class MimeHeaders {
             headers[i].recycle();
         }
         count = 0;
+        resetIndex();
     }
 
     /**
@@ -217,13 +249,14 @@ public class MimeHeaders {
      * @return the header index
      */
     public int findHeader( String name, int starting ) {
-        // We can use a hash - but it's not clear how much
-        // benefit you can get - there is an  overhead
-        // and the number of headers is small (4-5 ?)
-        // Another problem is that we'll pay the overhead
-        // of constructing the hashtable
-
-        // A custom search tree may be better
+        // The number of headers is usually small so a linear scan is
+        // cheaper than building an index for a handful of headers
+        if (count > INDEX_THRESHOLD && !indexDisabled) {
+            int hash = hash(name);
+            if (hash != NO_HASH && updateIndex()) {
+                return findIndexed(name, hash, starting);
+            }
+        }
         for (int i = starting; i < count; i++) {
             if (headers[i].getName().equalsIgnoreCase(name)) {
                 return i;
@@ -313,15 +346,15 @@ public class MimeHeaders {
      * @return the message bytes container for the value
      */
     public MessageBytes setValue( String name ) {
-        for ( int i = 0; i < count; i++ ) {
-            if(headers[i].getName().equalsIgnoreCase(name)) {
-                for ( int j=i+1; j < count; j++ ) {
-                    if(headers[j].getName().equalsIgnoreCase(name)) {
-                        removeHeader(j--);
-                    }
-                }
-                return headers[i].getValue();
+        int i = findHeader(name, 0);
+        if (i != -1) {
+            // Removing a header moves the last one into its position, which
+            // is always after i
+            int j;
+            while ((j = findHeader(name, i + 1)) != -1) {
+                removeHeader(j);
             }
+            return headers[i].getValue();
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
@@ -337,12 +370,8 @@ public class MimeHeaders {
      * @return the value
      */
     public MessageBytes getValue(String name) {
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        int i = findHeader(name, 0);
+        return i == -1 ? null : headers[i].getValue();
     }
 
     /**
@@ -354,17 +383,14 @@ public class MimeHeaders {
      * @throws IllegalArgumentException if the header has multiple values
      */
     public MessageBytes getUniqueValue(String name) {
-        MessageBytes result = null;
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                if (result == null) {
-                    result = headers[i].getValue();
-                } else {
-                    throw new IllegalArgumentException();
-                }
-            }
+        int i = findHeader(name, 0);
+        if (i == -1) {
+            return null;
         }
-        return result;
+        if (findHeader(name, i + 1) != -1) {
+            throw new IllegalArgumentException();
+        }
+        return headers[i].getValue();
     }
 
     // bad shortcut - it'll convert to string ( too early probably,
@@ -402,6 +428,137 @@ public class MimeHeaders {
         headers[idx] = headers[count - 1];
         headers[count - 1] = mh;
         count--;
+        resetIndex();
+    }
+
+
+    // -------------------- Name index --------------------
+
+    private static final int INDEX_THRESHOLD = 4;
+
+    private static final int NO_HASH = 0;
+
+    private void resetIndex() {
+        if (indexedCount > 0) {
+            Arrays.fill(nameIndex, 0);
+            indexedCount = 0;
+        }
+        indexDisabled = false;
+    }
+
+
+    /**
+     * Add the headers added since the last lookup to the index.
+     *
+     * @return <code>false</code> if the index can't be used
+     */
+    private boolean updateIndex() {
+        if (indexedCount == count) {
+            return true;
+        }
+        if (count * 2 > nameIndex.length) {
+            int size = Integer.highestOneBit(count * 4 - 1) << 1;
+            nameIndex = new int[size];
+            nameIndexHashes = new int[size];
+            indexedCount = 0;
+        }
+        int mask = nameIndex.length - 1;
+        for (int i = indexedCount; i < count; i++) {
+            int hash = hash(headers[i].getName());
+            if (hash == NO_HASH) {
+                indexDisabled = true;
+                return false;
+            }
+            int slot = spread(hash) & mask;
+            while (nameIndex[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            nameIndex[slot] = i + 1;
+            nameIndexHashes[slot] = hash;
+            indexedCount = i + 1;
+        }
+        return true;
+    }
+
+
+    private int findIndexed(String name, int hash, int starting) {
+        int mask = nameIndex.length - 1;
+        int slot = spread(hash) & mask;
+        int result = -1;
+        int pos;
+        while ((pos = nameIndex[slot]) != 0) {
+            pos--;
+            if (nameIndexHashes[slot] == hash && pos >= starting &&
+                    (result == -1 || pos < result) &&
+                    headers[pos].getName().equalsIgnoreCase(name)) {
+                result = pos;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return result;
+    }
+
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /*
+     * Hash of the ASCII lower case form of a name. Any name that is not pure
+     * ASCII hashes to NO_HASH so that it is handled by a linear scan, which
+     * keeps the exact semantics of the equalsIgnoreCase() methods used to
+     * compare names.
+     */
+    private static int hash(String name) {
+        if (name == null) {
+            return NO_HASH;
+        }
+        int hash = 1;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c > 0x7F) {
+                return NO_HASH;
+            }
+            hash = 31 * hash + Ascii.toLower(c);
+        }
+        return hash == NO_HASH ? 1 : hash;
+    }
+
+
+    private static int hash(MessageBytes name) {
+        int hash = 1;
+        switch (name.getType()) {
+        case MessageBytes.T_BYTES: {
+            ByteChunk bc = name.getByteChunk();
+            byte[] bytes = bc.getBuffer();
+            for (int i = bc.getStart(); i < bc.getEnd(); i++) {
+                byte b = bytes[i];
+                if (b < 0) {
+                    return NO_HASH;
+                }
+                hash = 31 * hash + Ascii.toLower(b);
+            }
+            break;
+        }
+        case MessageBytes.T_CHARS: {
+            CharChunk cc = name.getCharChunk();
+            char[] chars = cc.getBuffer();
+            for (int i = cc.getStart(); i < cc.getEnd(); i++) {
+                char c = chars[i];
+                if (c > 0x7F) {
+                    return NO_HASH;
+                }
+                hash = 31 * hash + Ascii.toLower(c);
+            }
+            break;
+        }
+        case MessageBytes.T_STR:
+            return hash(name.getString());
+        default:
+            return NO_HASH;
+        }
+        return hash == NO_HASH ? 1 : hash;
     }
 
 }
@@ -480,11 +637,13 @@ class ValuesEnumerator implements Enumeration<String> {
 
     private void findNext() {
         next=null;
-        for(; pos< size; pos++ ) {
-            MessageBytes n1=headers.getName( pos );
-            if( n1.equalsIgnoreCase( name )) {
-                next=headers.getValue( pos );
-                break;
+        if (pos < size) {
+            int found = headers.findHeader(name, pos);
+            if (found != -1 && found < size) {
+                next = headers.getValue(found);
+                pos = found;
+            } else {
+                pos = size;
             }
         }
         pos++;
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
@@ -64,6 +65,32 @@ public final class Parameters {
     private int limit = -1;
     private int parameterCount = 0;
 
+    /*
+     * Lazily decoded index of the query string parameters. When the query
+     * string is well formed the names and values are not decoded during
+     * parsing. Instead, the byte ranges of each parameter are recorded and
+     * an open addressing hash table keyed on the raw name bytes is built so
+     * that a single parameter can be looked up - and only its value decoded -
+     * without converting the remainder of the query string. The index is
+     * merged into paramHashValues as soon as a caller needs the full set of
+     * parameters.
+     */
+    private static final int QUERY_ENTRY_SIZE = 5;
+    private static final int QUERY_NAME_START = 0;
+    private static final int QUERY_NAME_END = 1;
+    private static final int QUERY_VALUE_START = 2;
+    private static final int QUERY_VALUE_END = 3;
+    private static final int QUERY_NEXT = 4;
+    private static final int QUERY_VALUE_DECODE = Integer.MIN_VALUE;
+
+    private boolean queryIndexed = false;
+    private Charset queryIndexCharset;
+    private int queryEntryCount = 0;
+    private int[] queryEntries = new int[8 * QUERY_ENTRY_SIZE];
+    private String[] queryValues = new String[8];
+    private int[] queryTable = new int[16];
+    private int[] queryTableTail = new int[16];
+
     /**
      * Set to the reason for the failure (the first failure if there is more
      * than one) if there were failures during parameter parsing.
@@ -128,6 +155,7 @@ public final class Parameters {
     public void recycle() {
         parameterCount = 0;
         paramHashValues.clear();
+        recycleQueryIndex();
         didQueryParameters = false;
         charset = DEFAULT_BODY_CHARSET;
         decodedQuery.recycle();
@@ -143,6 +171,20 @@ public final class Parameters {
         handleQueryParameters();
         // no "facade"
         ArrayList<String> values = paramHashValues.get(name);
+        if (queryIndexed) {
+            int entry = findQueryEntry(name);
+            if (entry >= 0) {
+                ArrayList<String> result = new ArrayList<>();
+                while (entry >= 0) {
+                    result.add(getQueryValue(entry));
+                    entry = queryEntries[entry * QUERY_ENTRY_SIZE + QUERY_NEXT];
+                }
+                if (values != null) {
+                    result.addAll(values);
+                }
+                return result.toArray(new String[0]);
+            }
+        }
         if (values == null) {
             return null;
         }
@@ -151,11 +193,18 @@ public final class Parameters {
 
     public Enumeration<String> getParameterNames() {
         handleQueryParameters();
+        mergeQueryIndex();
         return Collections.enumeration(paramHashValues.keySet());
     }
 
     public String getParameter(String name ) {
         handleQueryParameters();
+        if (queryIndexed) {
+            int entry = findQueryEntry(name);
+            if (entry >= 0) {
+                return getQueryValue(entry);
+            }
+        }
         ArrayList<String> values = paramHashValues.get(name);
         if (values != null) {
             if(values.size() == 0) {
@@ -190,10 +239,327 @@ public final class Parameters {
             // Can't happen, as decodedQuery can't overflow
             e.printStackTrace();
         }
+        // Debug logging reports every decoded parameter so always use the
+        // eager parser in that case
+        if (!log.isDebugEnabled() && indexQueryParameters(decodedQuery, queryStringCharset)) {
+            return;
+        }
         processParameters(decodedQuery, queryStringCharset);
     }
 
 
+    // -------------------- Lazily decoded query string --------------------
+
+    /*
+     * Records the parameters of the query string without decoding them. This
+     * only succeeds when the eager parser would neither log nor fail for any of
+     * the parameters, i.e. every parameter has a name, no name needs %xx or '+'
+     * decoding, all names are plain ASCII, every %xx sequence in a value is
+     * valid and the parameter limit is not exceeded. Otherwise nothing is
+     * recorded and false is returned so the caller can fall back to the eager
+     * parser.
+     */
+    private boolean indexQueryParameters(MessageBytes data, Charset charset) {
+        if (data == null || data.isNull() || data.getLength() <= 0) {
+            return true;
+        }
+        if (!isAsciiCompatible(charset)) {
+            return false;
+        }
+
+        if (data.getType() != MessageBytes.T_BYTES) {
+            data.toBytes();
+        }
+        ByteChunk bc = data.getByteChunk();
+        byte[] bytes = bc.getBytes();
+        int pos = bc.getOffset();
+        int end = bc.getEnd();
+
+        while (pos < end) {
+            int nameStart = pos;
+            int nameEnd = -1;
+            int valueStart = -1;
+            boolean decodeValue = false;
+
+            while (pos < end) {
+                byte b = bytes[pos];
+                if (b == '&') {
+                    break;
+                }
+                if (nameEnd == -1) {
+                    if (b == '=') {
+                        nameEnd = pos;
+                        valueStart = pos + 1;
+                    } else if (b == '%' || b == '+' || b < 0) {
+                        queryEntryCount = 0;
+                        return false;
+                    }
+                } else if (b == '+') {
+                    decodeValue = true;
+                } else if (b == '%') {
+                    if (pos + 2 >= end || !isHexDigit(bytes[pos + 1]) ||
+                            !isHexDigit(bytes[pos + 2])) {
+                        queryEntryCount = 0;
+                        return false;
+                    }
+                    decodeValue = true;
+                    pos += 2;
+                }
+                pos++;
+            }
+            int valueEnd = pos;
+            if (nameEnd == -1) {
+                nameEnd = pos;
+            }
+            // Skip the '&'
+            pos++;
+
+            if (nameEnd <= nameStart) {
+                if (valueStart == -1) {
+                    // &&
+                    continue;
+                }
+                // &=foo& is logged and flagged by the eager parser
+                queryEntryCount = 0;
+                return false;
+            }
+
+            if (limit > -1 && parameterCount + queryEntryCount >= limit) {
+                queryEntryCount = 0;
+                return false;
+            }
+
+            int base = queryEntryCount * QUERY_ENTRY_SIZE;
+            if (base + QUERY_ENTRY_SIZE > queryEntries.length) {
+                queryEntries = Arrays.copyOf(queryEntries, queryEntries.length * 2);
+            }
+            queryEntries[base + QUERY_NAME_START] = nameStart;
+            queryEntries[base + QUERY_NAME_END] = nameEnd;
+            queryEntries[base + QUERY_VALUE_START] = valueStart;
+            queryEntries[base + QUERY_VALUE_END] = decodeValue ? (valueEnd | QUERY_VALUE_DECODE) : valueEnd;
+            queryEntries[base + QUERY_NEXT] = -1;
+            queryEntryCount++;
+        }
+
+        if (queryEntryCount == 0) {
+            return true;
+        }
+
+        int tableSize = queryTable.length;
+        while (tableSize < queryEntryCount * 2) {
+            tableSize <<= 1;
+        }
+        if (tableSize != queryTable.length) {
+            queryTable = new int[tableSize];
+            queryTableTail = new int[tableSize];
+        }
+        if (queryValues.length < queryEntryCount) {
+            queryValues = new String[queryEntries.length / QUERY_ENTRY_SIZE];
+        }
+
+        // Slots hold the index of the first entry for a name plus one so that
+        // zero marks an empty slot
+        int mask = tableSize - 1;
+        for (int entry = 0; entry < queryEntryCount; entry++) {
+            int base = entry * QUERY_ENTRY_SIZE;
+            int nameStart = queryEntries[base + QUERY_NAME_START];
+            int nameEnd = queryEntries[base + QUERY_NAME_END];
+            int slot = hash(bytes, nameStart, nameEnd) & mask;
+            while (true) {
+                int head = queryTable[slot] - 1;
+                if (head < 0) {
+                    queryTable[slot] = entry + 1;
+                    queryTableTail[slot] = entry;
+                    break;
+                }
+                int headBase = head * QUERY_ENTRY_SIZE;
+                if (equalBytes(bytes, queryEntries[headBase + QUERY_NAME_START],
+                        queryEntries[headBase + QUERY_NAME_END], bytes, nameStart, nameEnd)) {
+                    queryEntries[queryTableTail[slot] * QUERY_ENTRY_SIZE + QUERY_NEXT] = entry;
+                    queryTableTail[slot] = entry;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        parameterCount += queryEntryCount;
+        queryIndexCharset = charset;
+        queryIndexed = true;
+        return true;
+    }
+
+
+    private int findQueryEntry(String name) {
+        if (name == null || queryEntryCount == 0) {
+            return -1;
+        }
+        int len = name.length();
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            char c = name.charAt(i);
+            if (c > 0x7F) {
+                // Only ASCII names are indexed
+                return -1;
+            }
+            h = 31 * h + c;
+        }
+
+        byte[] bytes = decodedQuery.getByteChunk().getBytes();
+        int mask = queryTable.length - 1;
+        int slot = spread(h) & mask;
+        while (true) {
+            int head = queryTable[slot] - 1;
+            if (head < 0) {
+                return -1;
+            }
+            int base = head * QUERY_ENTRY_SIZE;
+            int nameStart = queryEntries[base + QUERY_NAME_START];
+            if (queryEntries[base + QUERY_NAME_END] - nameStart == len) {
+                int i = 0;
+                while (i < len && bytes[nameStart + i] == name.charAt(i)) {
+                    i++;
+                }
+                if (i == len) {
+                    return head;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    private String getQueryValue(int entry) {
+        String value = queryValues[entry];
+        if (value != null) {
+            return value;
+        }
+
+        int base = entry * QUERY_ENTRY_SIZE;
+        int valueStart = queryEntries[base + QUERY_VALUE_START];
+        if (valueStart < 0) {
+            value = "";
+        } else {
+            int valueEnd = queryEntries[base + QUERY_VALUE_END];
+            boolean decodeValue = (valueEnd & QUERY_VALUE_DECODE) != 0;
+            valueEnd &= ~QUERY_VALUE_DECODE;
+            tmpValue.setBytes(decodedQuery.getByteChunk().getBytes(), valueStart,
+                    valueEnd - valueStart);
+            try {
+                // Decoding is in place. Safe since the value is only ever
+                // decoded once and all %xx sequences were validated when the
+                // query string was indexed.
+                if (decodeValue) {
+                    urlDecode(tmpValue);
+                }
+                tmpValue.setCharset(queryIndexCharset);
+                value = tmpValue.toString();
+            } catch (IOException e) {
+                // Can't happen, as the value was validated
+                setParseFailedReason(FailReason.URL_DECODING);
+                value = "";
+            }
+            tmpValue.recycle();
+        }
+        queryValues[entry] = value;
+        return value;
+    }
+
+
+    /*
+     * Moves the indexed query string parameters into paramHashValues ahead of
+     * any parameters that have been added since, preserving the order the
+     * eager parser would have produced.
+     */
+    private void mergeQueryIndex() {
+        if (!queryIndexed) {
+            return;
+        }
+        queryIndexed = false;
+
+        Map<String,ArrayList<String>> added = null;
+        if (!paramHashValues.isEmpty()) {
+            added = new LinkedHashMap<>(paramHashValues);
+            paramHashValues.clear();
+        }
+
+        byte[] bytes = decodedQuery.getByteChunk().getBytes();
+        for (int entry = 0; entry < queryEntryCount; entry++) {
+            int base = entry * QUERY_ENTRY_SIZE;
+            int nameStart = queryEntries[base + QUERY_NAME_START];
+            String name = new String(bytes, nameStart,
+                    queryEntries[base + QUERY_NAME_END] - nameStart, StandardCharsets.ISO_8859_1);
+            ArrayList<String> values = paramHashValues.get(name);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                paramHashValues.put(name, values);
+            }
+            values.add(getQueryValue(entry));
+        }
+
+        if (added != null) {
+            for (Map.Entry<String,ArrayList<String>> e : added.entrySet()) {
+                ArrayList<String> values = paramHashValues.get(e.getKey());
+                if (values == null) {
+                    paramHashValues.put(e.getKey(), e.getValue());
+                } else {
+                    values.addAll(e.getValue());
+                }
+            }
+        }
+    }
+
+
+    private void recycleQueryIndex() {
+        if (queryEntryCount > 0) {
+            Arrays.fill(queryTable, 0);
+            Arrays.fill(queryValues, 0, queryEntryCount, null);
+            queryEntryCount = 0;
+        }
+        queryIndexed = false;
+        queryIndexCharset = null;
+    }
+
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return spread(h);
+    }
+
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+
+    private static boolean equalBytes(byte[] b1, int start1, int end1, byte[] b2, int start2, int end2) {
+        if (end1 - start1 != end2 - start2) {
+            return false;
+        }
+        for (int i = start1, j = start2; i < end1; i++, j++) {
+            if (b1[i] != b2[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean isHexDigit(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'f') || (b >= 'A' && b <= 'F');
+    }
+
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset) ||
+                StandardCharsets.ISO_8859_1.equals(charset) ||
+                StandardCharsets.US_ASCII.equals(charset);
+    }
+
+
     public void addParameter( String key, String value )
             throws IllegalStateException {
 
@@ -500,6 +866,7 @@ public final class Parameters {
      */
     @Override
     public String toString() {
+        mergeQueryIndex();
         StringBuilder sb = new StringBuilder();
         for (Map.Entry<String, ArrayList<String>> e : paramHashValues.entrySet()) {
             sb.append(e.getKey()).append('=');
@@ -495,6 +495,77 @@ public abstract class AbstractEndpoint<S,U> {
         return -1;
     }
 
+
+    /**
+     * Per client IP address limits, applied before any data is read from a
+     * connection.
+     */
+    private final ClientLimiter clientLimiter = new ClientLimiter();
+
+    /**
+     * Set the maximum number of connections that a single client IP address
+     * may have open at the same time. Further connections from that client are
+     * closed as soon as they are accepted.
+     *
+     * @param maxConnectionsPerClient The maximum number of connections or
+     *                                <code>-1</code> for no limit
+     */
+    public void setMaxConnectionsPerClient(int maxConnectionsPerClient) {
+        clientLimiter.setMaxConnections(maxConnectionsPerClient);
+    }
+    public int getMaxConnectionsPerClient() { return clientLimiter.getMaxConnections(); }
+
+    /**
+     * Set the average number of requests per second that a single client IP
+     * address may make. Requests are counted by HTTP/1.1 processors once the
+     * request headers have been read and a request that exceeds the rate is
+     * rejected with a 429 response, and the connection closed, without being
+     * passed to the container.
+     *
+     * @param clientRequestRate The number of requests per second or
+     *                          <code>-1</code> for no limit
+     */
+    public void setClientRequestRate(int clientRequestRate) {
+        clientLimiter.setRequestRate(clientRequestRate);
+    }
+    public int getClientRequestRate() { return clientLimiter.getRequestRate(); }
+
+    /**
+     * Set the number of requests a single client IP address may make at once
+     * without being limited by {@link #getClientRequestRate()}.
+     *
+     * @param clientRequestBurst The size of the burst or <code>-1</code> to
+     *                           allow one second's worth of requests
+     */
+    public void setClientRequestBurst(int clientRequestBurst) {
+        clientLimiter.setRequestBurst(clientRequestBurst);
+    }
+    public int getClientRequestBurst() { return clientLimiter.getRequestBurst(); }
+
+    /**
+     * @return the number of client IP addresses currently tracked to enforce
+     *         the per client limits
+     */
+    public int getClientCount() {
+        return clientLimiter.getClientCount();
+    }
+
+    /**
+     * @return the number of connections closed because the client had reached
+     *         {@link #getMaxConnectionsPerClient()}
+     */
+    public long getClientConnectionRejectedCount() {
+        return clientLimiter.getRejectedConnectionCount();
+    }
+
+    /**
+     * @return the number of requests rejected because the client had
+     *         exceeded {@link #getClientRequestRate()}
+     */
+    public long getClientRequestRejectedCount() {
+        return clientLimiter.getRejectedRequestCount();
+    }
+
     /**
      * External Executor based thread pool.
      */
@@ -1362,6 +1433,48 @@ public abstract class AbstractEndpoint<S,U> {
 
     protected abstract boolean setSocketOptions(U socket);
 
+
+    /**
+     * Register a newly accepted connection against the per client limits.
+     * Called once the socket wrapper has been created and added to the
+     * connections, before anything is read from the socket.
+     *
+     * @param socketWrapper The wrapper for the new connection
+     *
+     * @return <code>false</code> if the client has too many connections, in
+     *         which case the connection should be closed
+     */
+    protected boolean registerClient(SocketWrapperBase<S> socketWrapper) {
+        if (!clientLimiter.isEnabled()) {
+            return true;
+        }
+        String remoteAddr = socketWrapper.getRemoteAddr();
+        if (remoteAddr == null) {
+            return true;
+        }
+        ClientLimiter.Client client = clientLimiter.acquireConnection(remoteAddr,
+                getUtilityExecutor());
+        if (client == null) {
+            if (getLog().isDebugEnabled()) {
+                getLog().debug(sm.getString("endpoint.clientConnectionLimit", remoteAddr));
+            }
+            return false;
+        }
+        socketWrapper.setClient(client);
+        return true;
+    }
+
+
+    boolean acquireClientRequest(ClientLimiter.Client client) {
+        if (clientLimiter.acquireRequest(client)) {
+            return true;
+        }
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(sm.getString("endpoint.clientRequestLimit", client.getAddress()));
+        }
+        return false;
+    }
+
     /**
      * Close the socket when the connection has to be immediately closed when
      * an error occurs while configuring the accepted socket or trying to
@@ -668,6 +668,9 @@ public class AprEndpoint extends AbstractEndpoint<Long,Long> implements SNICallB
             }
             AprSocketWrapper wrapper = new AprSocketWrapper(socket, this);
             connections.put(socket, wrapper);
+            if (!registerClient(wrapper)) {
+                return false;
+            }
             wrapper.setKeepAliveLeft(getMaxKeepAliveRequests());
             wrapper.setReadTimeout(getConnectionTimeout());
             wrapper.setWriteTimeout(getConnectionTimeout());
@@ -0,0 +1,239 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent connections and the rate of requests for
+ * each client IP address. The connection limit is applied by the endpoint as
+ * soon as a connection is accepted, before anything is read from it, and the
+ * request rate limit by the processor before a request is passed to the
+ * container.
+ * <p>
+ * The request rate is enforced with a token bucket, implemented as a single
+ * theoretical arrival time per client that is updated with a CAS. Clients that
+ * have no open connections and a full bucket are evicted from the table once
+ * they have been idle for {@link #IDLE_TIMEOUT_NANOS}. The table is scanned
+ * for idle clients on the utility executor of the endpoint so the thread
+ * accepting connections never has to.
+ */
+final class ClientLimiter {
+
+    static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // Connection count of a client that has been removed from the table
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final Map<String,Client> clients = new ConcurrentHashMap<>();
+    private final AtomicLong nextEviction = new AtomicLong(System.nanoTime() + IDLE_TIMEOUT_NANOS);
+
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    private volatile int maxConnections = -1;
+    private volatile int requestRate = -1;
+    private volatile int requestBurst = -1;
+
+    // Derived from the request rate and burst
+    private volatile long nanosPerRequest;
+    private volatile long burstNanos;
+
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    int getRequestRate() {
+        return requestRate;
+    }
+
+    void setRequestRate(int requestRate) {
+        this.requestRate = requestRate;
+        updateBucket();
+    }
+
+    int getRequestBurst() {
+        return requestBurst;
+    }
+
+    void setRequestBurst(int requestBurst) {
+        this.requestBurst = requestBurst;
+        updateBucket();
+    }
+
+    private void updateBucket() {
+        int rate = requestRate;
+        if (rate > 0) {
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            // A burst of n requests means n - 1 may arrive ahead of schedule.
+            // The default allows a second's worth of requests at once.
+            int burst = requestBurst > 0 ? requestBurst : rate;
+            burstNanos = interval * (burst - 1);
+            nanosPerRequest = interval;
+        } else {
+            nanosPerRequest = 0;
+        }
+    }
+
+    boolean isEnabled() {
+        return maxConnections > 0 || nanosPerRequest > 0;
+    }
+
+    long getRejectedConnectionCount() {
+        return rejectedConnections.sum();
+    }
+
+    long getRejectedRequestCount() {
+        return rejectedRequests.sum();
+    }
+
+    int getClientCount() {
+        return clients.size();
+    }
+
+
+    /**
+     * Register a new connection for the given client.
+     *
+     * @param address          The IP address of the client
+     * @param evictionExecutor The executor used to evict idle clients
+     *
+     * @return The client to release when the connection closes or
+     *         <code>null</code> if the client has reached the maximum number
+     *         of connections
+     */
+    Client acquireConnection(String address, Executor evictionExecutor) {
+        long now = System.nanoTime();
+        long next = nextEviction.get();
+        if (now - next >= 0 && nextEviction.compareAndSet(next, now + IDLE_TIMEOUT_NANOS)) {
+            try {
+                evictionExecutor.execute(this::evictIdle);
+            } catch (RejectedExecutionException e) {
+                // Try again once the next eviction is due
+            }
+        }
+        String key = canonize(address);
+        while (true) {
+            Client client = clients.computeIfAbsent(key, Client::new);
+            int max = maxConnections;
+            int count = client.connections.get();
+            if (count == RETIRED) {
+                // Evicted concurrently, will be replaced on the next attempt
+                clients.remove(key, client);
+                continue;
+            }
+            if (max > 0 && count >= max) {
+                rejectedConnections.increment();
+                return null;
+            }
+            if (client.connections.compareAndSet(count, count + 1)) {
+                return client;
+            }
+        }
+    }
+
+
+    /**
+     * Take a token from the bucket of the given client.
+     *
+     * @param client The client returned when the connection was registered
+     *
+     * @return <code>true</code> if the request may be processed or
+     *         <code>false</code> if the client has exceeded the request rate
+     */
+    boolean acquireRequest(Client client) {
+        long interval = nanosPerRequest;
+        if (interval <= 0) {
+            return true;
+        }
+        long tolerance = burstNanos;
+        long now = System.nanoTime();
+        while (true) {
+            long tat = client.arrival.get();
+            long next = (tat - now > 0 ? tat : now) + interval;
+            if (next - now > tolerance + interval) {
+                rejectedRequests.increment();
+                return false;
+            }
+            if (client.arrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Client client : clients.values()) {
+            // The bucket refills once the arrival time has passed
+            if (now - client.arrival.get() > IDLE_TIMEOUT_NANOS &&
+                    client.connections.compareAndSet(0, RETIRED)) {
+                // Only remove this client, not any replacement
+                clients.remove(client.address, client);
+            }
+        }
+    }
+
+
+    private static String canonize(String address) {
+        if (address.indexOf(':') >= 0) {
+            try {
+                return IPv6Utils.canonize(address);
+            } catch (IllegalArgumentException e) {
+                // Use the address as is
+            }
+        }
+        return address;
+    }
+
+
+    /**
+     * The state of a single client IP address.
+     */
+    static final class Client {
+
+        private final String address;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicLong arrival;
+
+        private Client(String address) {
+            this.address = address;
+            // Start with a full bucket
+            this.arrival = new AtomicLong(System.nanoTime() - IDLE_TIMEOUT_NANOS);
+        }
+
+        String getAddress() {
+            return address;
+        }
+
+        void releaseConnection() {
+            connections.decrementAndGet();
+        }
+    }
+}
@@ -324,6 +324,9 @@ public class Nio2Endpoint extends AbstractJsseEndpoint<Nio2Channel,AsynchronousS
             channel.reset(socket, newWrapper);
             connections.put(socket, newWrapper);
             socketWrapper = newWrapper;
+            if (!registerClient(socketWrapper)) {
+                return false;
+            }
 
             // Set socket properties
             socketProperties.setProperties(socket);
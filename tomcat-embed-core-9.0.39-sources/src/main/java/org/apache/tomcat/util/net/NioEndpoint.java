@@ -418,6 +418,9 @@ public class NioEndpoint extends AbstractJsseEndpoint<NioChannel,SocketChannel>
             channel.reset(socket, newWrapper);
             connections.put(socket, newWrapper);
             socketWrapper = newWrapper;
+            if (!registerClient(socketWrapper)) {
+                return false;
+            }
 
             // Set socket properties
             // Disable blocking, polling will be used
@@ -109,6 +109,12 @@ public abstract class SocketWrapperBase<E> {
      */
     protected Object currentProcessor = null;
 
+    /**
+     * The client this connection counts against for the per client limits,
+     * if they are enabled.
+     */
+    private volatile ClientLimiter.Client client;
+
     public SocketWrapperBase(E socket, AbstractEndpoint<E,?> endpoint) {
         this.socket = socket;
         this.endpoint = endpoint;
@@ -141,6 +147,22 @@ public abstract class SocketWrapperBase<E> {
         this.currentProcessor = currentProcessor;
     }
 
+    void setClient(ClientLimiter.Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Called by the processor as it starts to process each new request to
+     * apply the request rate limit of the client, if any.
+     *
+     * @return <code>true</code> if the request may be processed or
+     *         <code>false</code> if it should be rejected
+     */
+    public boolean acquireClientRequest() {
+        ClientLimiter.Client client = this.client;
+        return client == null || getEndpoint().acquireClientRequest(client);
+    }
+
     /**
      * Transfers processing to a container thread.
      *
@@ -417,6 +439,10 @@ public abstract class SocketWrapperBase<E> {
                 }
             } finally {
                 getEndpoint().countDownConnection();
+                ClientLimiter.Client client = this.client;
+                if (client != null) {
+                    client.releaseConnection();
+                }
                 doClose();
             }
         }